@@ -33,6 +33,21 @@ public class ConfigProperties {
     public static final String CONNECTIONS_FAILED_BACKOFF = "cryostat.connections.failed-backoff";
     public static final String CONNECTIONS_FAILED_TIMEOUT = "cryostat.connections.failed-timeout";
 
+    public static final String AGENT_HTTP_MAX_POOL_SIZE = "cryostat.agent.http.max-pool-size";
+    public static final String AGENT_HTTP_KEEP_ALIVE_TIMEOUT =
+            "cryostat.agent.http.keep-alive-timeout";
+    public static final String AGENT_HTTP_CONNECT_TIMEOUT = "cryostat.agent.http.connect-timeout";
+    public static final String AGENT_HTTP_CONTROL_TIMEOUT = "cryostat.agent.http.control-timeout";
+    public static final String AGENT_HTTP_STREAM_TIMEOUT = "cryostat.agent.http.stream-timeout";
+    public static final String AGENT_HTTP2_ENABLED = "cryostat.agent.http.http2.enabled";
+    public static final String AGENT_HTTP2_MAX_POOL_SIZE =
+            "cryostat.agent.http.http2.max-pool-size";
+    public static final String AGENT_HTTP2_MULTIPLEXING_LIMIT =
+            "cryostat.agent.http.http2.multiplexing-limit";
+
+    public static final String RULES_ARCHIVAL_PHASE_SPREAD = "cryostat.rules.archival.phase-spread";
+    public static final String RULES_ARCHIVAL_JITTER = "cryostat.rules.archival.jitter";
+
     public static final String REPORTS_SIDECAR_URL = "quarkus.rest-client.reports.url";
     public static final String REPORTS_MEMORY_CACHE_ENABLED =
             "cryostat.services.reports.memory-cache.enabled";
@@ -47,15 +62,51 @@ public class ConfigProperties {
     public static final String GRAFANA_DASHBOARD_EXT_URL = "grafana-dashboard-ext.url";
     public static final String GRAFANA_DATASOURCE_URL = "grafana-datasource.url";
 
+    public static final String ARCHIVES_MAX_CONCURRENT = "cryostat.archives.max-concurrent";
+    public static final String ARCHIVES_MAX_CONCURRENT_PER_TARGET =
+            "cryostat.archives.max-concurrent-per-target";
+    public static final String ARCHIVES_TARGET_READ_RATE = "cryostat.archives.target-read-rate";
+    public static final String ARCHIVES_STORAGE_WRITE_RATE = "cryostat.archives.storage-write-rate";
+    public static final String ARCHIVES_CACHE_DIR = "cryostat.archives.cache.dir";
+    public static final String ARCHIVES_CACHE_MAX_SIZE = "cryostat.archives.cache.max-size";
+    public static final String ARCHIVES_RETENTION_PERIOD = "cryostat.archives.retention.period";
+    public static final String ARCHIVES_RETENTION_MAX_AGE = "cryostat.archives.retention.max-age";
+    public static final String ARCHIVES_RETENTION_MAX_FILES_PER_JVM =
+            "cryostat.archives.retention.max-files-per-jvm";
+    public static final String ARCHIVES_RETENTION_MAX_SIZE_PER_JVM =
+            "cryostat.archives.retention.max-size-per-jvm";
+    public static final String ARCHIVES_RETENTION_MAX_FILES =
+            "cryostat.archives.retention.max-files";
+    public static final String ARCHIVES_RETENTION_MAX_SIZE = "cryostat.archives.retention.max-size";
+    public static final String ARCHIVES_AGGREGATES_RECONCILE_PERIOD =
+            "cryostat.archives.aggregates.reconcile-period";
+
+    public static final String STORAGE_BACKEND = "storage.backend";
+    public static final String STORAGE_FILESYSTEM_DIR = "storage.filesystem.dir";
+    public static final String STORAGE_FILESYSTEM_EXPIRY_PERIOD =
+            "storage.filesystem.expiry-period";
     public static final String STORAGE_EXT_URL = "storage-ext.url";
     public static final String STORAGE_PRESIGNED_DOWNLOADS_ENABLED =
             "storage.presigned-downloads.enabled";
     public static final String STORAGE_TRANSIENT_ARCHIVES_ENABLED =
             "storage.transient-archives.enabled";
     public static final String STORAGE_TRANSIENT_ARCHIVES_TTL = "storage.transient-archives.ttl";
+    public static final String STORAGE_ARCHIVES_COMPRESSION = "storage.archives.compression";
+    public static final String STORAGE_UPLOAD_MAX_RETRIES = "storage.archives.upload.max-retries";
+    public static final String STORAGE_UPLOAD_RETRY_BACKOFF =
+            "storage.archives.upload.retry-backoff";
+    public static final String STORAGE_UPLOAD_MAX_RETRY_BACKOFF =
+            "storage.archives.upload.max-retry-backoff";
+    public static final String STORAGE_UPLOAD_RESUME_TTL = "storage.archives.upload.resume-ttl";
+    public static final String STORAGE_METADATA_CONCURRENCY =
+            "storage.archives.metadata.concurrency";
 
     public static final String TEMPLATES_DIR = "templates-dir";
     public static final String SSL_TRUSTSTORE_DIR = "ssl.truststore.dir";
 
     public static final String URI_RANGE = "cryostat.target.uri-range";
+
+    public static final String WEBSOCKET_QUEUE_CAPACITY = "cryostat.websocket.queue-capacity";
+    public static final String WEBSOCKET_OVERFLOW_POLICY = "cryostat.websocket.overflow-policy";
+    public static final String WEBSOCKET_BATCH_WINDOW = "cryostat.websocket.batch-window";
 }
@@ -15,6 +15,7 @@
  */
 package io.cryostat;
 
+import io.cryostat.storage.Storage;
 import io.cryostat.util.HttpStatusCodeIdentifier;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -27,7 +28,7 @@ import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
 @ApplicationScoped
 public class StorageBuckets {
 
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
     @Inject Logger logger;
 
     public void createIfNecessary(String bucket) {
@@ -22,18 +22,12 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.text.ParseException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.UUID;
 
-import io.cryostat.discovery.DiscoveryPlugin.PluginCallback;
 import io.cryostat.targets.TargetConnectionManager;
 import io.cryostat.util.URIUtil;
 
@@ -44,6 +38,7 @@ import com.nimbusds.jwt.proc.BadJWTException;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.mutiny.core.eventbus.EventBus;
@@ -62,41 +57,23 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriBuilder;
 import org.apache.commons.lang3.StringUtils;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestPath;
 import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.RestResponse.ResponseBuilder;
-import org.quartz.Job;
-import org.quartz.JobBuilder;
-import org.quartz.JobDataMap;
-import org.quartz.JobDetail;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
-import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.SimpleScheduleBuilder;
-import org.quartz.TriggerBuilder;
-import org.quartz.impl.matchers.GroupMatcher;
 
 @Path("")
 public class Discovery {
 
     static final String X_FORWARDED_FOR = "X-Forwarded-For";
 
-    private static final String JOB_PERIODIC = "periodic";
-    private static final String JOB_STARTUP = "startup";
-    private static final String PLUGIN_ID_MAP_KEY = "pluginId";
-    private static final String REFRESH_MAP_KEY = "refresh";
-
-    @ConfigProperty(name = "cryostat.discovery.plugins.ping-period")
-    Duration discoveryPingPeriod;
-
     @Inject Logger logger;
     @Inject ObjectMapper mapper;
     @Inject EventBus bus;
@@ -105,38 +82,15 @@ public class Discovery {
     @Inject DiscoveryJwtValidator jwtValidator;
     @Inject Scheduler scheduler;
     @Inject URIUtil uriUtil;
+    @Inject DiscoveryPluginCallbacks callbacks;
+    @Inject DiscoveryTree tree;
 
     @Transactional
     void onStart(@Observes StartupEvent evt) {
         // ensure lazily initialized entries are created
         DiscoveryNode.getUniverse();
 
-        DiscoveryPlugin.<DiscoveryPlugin>findAll().list().stream()
-                .filter(p -> !p.builtin)
-                .forEach(
-                        plugin -> {
-                            var dataMap = new JobDataMap();
-                            dataMap.put(PLUGIN_ID_MAP_KEY, plugin.id);
-                            dataMap.put(REFRESH_MAP_KEY, true);
-                            JobDetail jobDetail =
-                                    JobBuilder.newJob(RefreshPluginJob.class)
-                                            .withIdentity(plugin.id.toString(), JOB_STARTUP)
-                                            .usingJobData(dataMap)
-                                            .build();
-                            var trigger =
-                                    TriggerBuilder.newTrigger()
-                                            .usingJobData(jobDetail.getJobDataMap())
-                                            .startNow()
-                                            .withSchedule(
-                                                    SimpleScheduleBuilder.simpleSchedule()
-                                                            .withRepeatCount(0))
-                                            .build();
-                            try {
-                                scheduler.scheduleJob(jobDetail, trigger);
-                            } catch (SchedulerException e) {
-                                logger.warn("Failed to schedule plugin prune job", e);
-                            }
-                        });
+        Infrastructure.getDefaultWorkerPool().execute(callbacks::refreshAll);
     }
 
     void onStop(@Observes ShutdownEvent evt) throws SchedulerException {
@@ -155,8 +109,14 @@ public class Discovery {
     @GET
     @Path("/api/v3/discovery")
     @RolesAllowed("read")
-    public DiscoveryNode get() {
-        return DiscoveryNode.getUniverse();
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@Context Request request) {
+        DiscoveryTree.Snapshot snapshot = tree.snapshot();
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(snapshot.etag());
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(snapshot.json()).tag(snapshot.etag()).build();
     }
 
     @GET
@@ -189,8 +149,7 @@ public class Discovery {
                     UnknownHostException,
                     SocketException,
                     ParseException,
-                    BadJWTException,
-                    SchedulerException {
+                    BadJWTException {
         String pluginId = body.getString("id");
         String priorToken = body.getString("token");
         String realmName = body.getString("realm");
@@ -235,8 +194,7 @@ public class Discovery {
                     .ifPresent(
                             p -> {
                                 try {
-                                    var cb = PluginCallback.create(p);
-                                    cb.ping();
+                                    callbacks.get(p).ping();
                                     throw new IllegalArgumentException(
                                             String.format(
                                                     "Plugin with callback %s already exists and is"
@@ -244,6 +202,9 @@ public class Discovery {
                                                     unauthCallback));
                                 } catch (Exception e) {
                                     logger.error(e);
+                                    // the replacement is pinged before this deletion is
+                                    // flushed, so it must not pick up the old client
+                                    callbacks.evict(p.callback);
                                     p.delete();
                                 }
                             });
@@ -263,26 +224,6 @@ public class Discovery {
             universe.persist();
 
             location = jwtFactory.getPluginLocation(plugin);
-
-            var dataMap = new JobDataMap();
-            dataMap.put(PLUGIN_ID_MAP_KEY, plugin.id);
-            dataMap.put(REFRESH_MAP_KEY, true);
-            JobDetail jobDetail =
-                    JobBuilder.newJob(RefreshPluginJob.class)
-                            .withIdentity(plugin.id.toString(), JOB_PERIODIC)
-                            .usingJobData(dataMap)
-                            .build();
-            var trigger =
-                    TriggerBuilder.newTrigger()
-                            .usingJobData(jobDetail.getJobDataMap())
-                            .startAt(Date.from(Instant.now().plus(discoveryPingPeriod)))
-                            .withSchedule(
-                                    SimpleScheduleBuilder.simpleSchedule()
-                                            .repeatForever()
-                                            .withIntervalInSeconds(
-                                                    (int) discoveryPingPeriod.toSeconds()))
-                            .build();
-            scheduler.scheduleJob(jobDetail, trigger);
         }
 
         String token = jwtFactory.createDiscoveryPluginJwt(plugin, remoteAddress, location);
@@ -365,21 +306,13 @@ public class Discovery {
                     MalformedURLException,
                     ParseException,
                     JOSEException,
-                    URISyntaxException,
-                    SchedulerException {
+                    URISyntaxException {
         DiscoveryPlugin plugin = DiscoveryPlugin.find("id", id).singleResult();
         jwtValidator.validateJwt(ctx, plugin, token, false);
         if (plugin.builtin) {
             throw new ForbiddenException();
         }
 
-        Set<JobKey> jobKeys = new HashSet<>();
-        jobKeys.addAll(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(JOB_PERIODIC)));
-        jobKeys.addAll(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(JOB_STARTUP)));
-        for (var key : jobKeys) {
-            scheduler.deleteJob(key);
-        }
-
         plugin.delete();
         return Map.of(
                 "meta",
@@ -414,44 +347,6 @@ public class Discovery {
         return DiscoveryPlugin.find("id", id).singleResult();
     }
 
-    @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NULL_VALUE")
-    static class RefreshPluginJob implements Job {
-        @Inject Logger logger;
-
-        @Override
-        @Transactional
-        public void execute(JobExecutionContext context) throws JobExecutionException {
-            DiscoveryPlugin plugin = null;
-            try {
-                boolean refresh = context.getMergedJobDataMap().getBoolean(REFRESH_MAP_KEY);
-                plugin =
-                        DiscoveryPlugin.find(
-                                        "id", context.getMergedJobDataMap().get(PLUGIN_ID_MAP_KEY))
-                                .singleResult();
-                var cb = PluginCallback.create(plugin);
-                if (refresh) {
-                    cb.refresh();
-                    logger.debugv(
-                            "Refreshed discovery plugin: {0} @ {1}", plugin.realm, plugin.callback);
-                } else {
-                    cb.ping();
-                    logger.debugv(
-                            "Retained discovery plugin: {0} @ {1}", plugin.realm, plugin.callback);
-                }
-            } catch (Exception e) {
-                if (plugin != null) {
-                    logger.debugv(
-                            e, "Pruned discovery plugin: {0} @ {1}", plugin.realm, plugin.callback);
-                    plugin.delete();
-                } else {
-                    var ex = new JobExecutionException(e);
-                    ex.setUnscheduleFiringTrigger(true);
-                    throw ex;
-                }
-            }
-        }
-    }
-
     static String requireNonBlank(String in, String name) {
         if (StringUtils.isBlank(in)) {
             throw new IllegalArgumentException(
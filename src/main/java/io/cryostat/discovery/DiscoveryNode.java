@@ -34,6 +34,7 @@ import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -196,18 +197,33 @@ public class DiscoveryNode extends PanacheEntity {
 
         @Inject Logger logger;
         @Inject EventBus bus;
+        @Inject Event<DiscoveryTree.Changed> treeChanges;
 
         @PrePersist
         void prePersist(DiscoveryNode node) {}
 
         @PostPersist
-        void postPersist(DiscoveryNode node) {}
+        void postPersist(DiscoveryNode node) {
+            structureChanged(node);
+        }
 
         @PostUpdate
-        void postUpdate(DiscoveryNode node) {}
+        void postUpdate(DiscoveryNode node) {
+            structureChanged(node);
+        }
 
         @PostRemove
-        void postRemove(DiscoveryNode node) {}
+        void postRemove(DiscoveryNode node) {
+            structureChanged(node);
+        }
+
+        // the node of a target is added and removed along with it, and that change reaches the
+        // tree as the target's own FOUND or LOST delta
+        private void structureChanged(DiscoveryNode node) {
+            if (node.target == null) {
+                treeChanges.fire(new DiscoveryTree.Changed(null));
+            }
+        }
     }
 
     public static class Views {
@@ -15,8 +15,8 @@
  */
 package io.cryostat.discovery;
 
+import java.io.Closeable;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.UUID;
@@ -25,9 +25,7 @@ import io.cryostat.credentials.Credential;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
-import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
 import jakarta.annotation.Nullable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -40,6 +38,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PostRemove;
 import jakarta.persistence.PrePersist;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
@@ -93,6 +92,7 @@ public class DiscoveryPlugin extends PanacheEntityBase {
     static class Listener {
 
         @Inject Logger logger;
+        @Inject DiscoveryPluginCallbacks callbacks;
 
         @PrePersist
         @Transactional
@@ -110,20 +110,23 @@ public class DiscoveryPlugin extends PanacheEntityBase {
                 plugin.callback = UriBuilder.fromUri(plugin.callback).userInfo(null).build();
             }
             try {
-                PluginCallback.create(plugin).ping();
+                callbacks.get(plugin).ping();
                 logger.debugv(
                         "Registered discovery plugin: {0} @ {1}",
                         plugin.realm.name, plugin.callback);
-            } catch (URISyntaxException e) {
-                plugin.delete();
-                throw new IllegalArgumentException(e);
             } catch (Exception e) {
+                callbacks.evict(plugin.callback);
                 plugin.delete();
                 logger.error("Discovery Plugin ping failed", e);
                 throw e;
             }
         }
 
+        @PostRemove
+        public void postRemove(DiscoveryPlugin plugin) {
+            callbacks.evict(plugin.callback);
+        }
+
         private Credential getCredential(DiscoveryPlugin plugin) {
             String userInfo = plugin.callback.getUserInfo();
             if (StringUtils.isBlank(userInfo)) {
@@ -154,10 +157,10 @@ public class DiscoveryPlugin extends PanacheEntityBase {
         }
     }
 
+    // clients are long-lived and cached by DiscoveryPluginCallbacks, so they must be closeable to
+    // release their connection pools when the plugin goes away
     @Path("")
-    interface PluginCallback {
-
-        final Logger logger = Logger.getLogger(PluginCallback.class);
+    interface PluginCallback extends Closeable {
 
         @GET
         public void ping();
@@ -165,24 +168,18 @@ public class DiscoveryPlugin extends PanacheEntityBase {
         @POST
         public void refresh();
 
-        public static PluginCallback create(DiscoveryPlugin plugin) throws URISyntaxException {
-            PluginCallback client =
-                    QuarkusRestClientBuilder.newBuilder()
-                            .baseUri(plugin.callback)
-                            .clientHeadersFactory(
-                                    new DiscoveryPluginAuthorizationHeaderFactory(plugin))
-                            .build(PluginCallback.class);
-            return client;
-        }
-
         public static class DiscoveryPluginAuthorizationHeaderFactory
                 implements ClientHeadersFactory {
 
-            private final DiscoveryPlugin plugin;
+            private final String authorization;
 
-            @SuppressFBWarnings("EI_EXPOSE_REP2")
-            public DiscoveryPluginAuthorizationHeaderFactory(DiscoveryPlugin plugin) {
-                this.plugin = plugin;
+            public DiscoveryPluginAuthorizationHeaderFactory(Credential credential) {
+                // capture the header value eagerly, since the client outlives the persistence
+                // context that the credential entity was loaded in
+                String basicAuth = String.format("%s:%s", credential.username, credential.password);
+                byte[] authBytes = basicAuth.getBytes(StandardCharsets.UTF_8);
+                String base64Auth = Base64.getEncoder().encodeToString(authBytes);
+                this.authorization = String.format("Basic %s", base64Auth);
             }
 
             @Override
@@ -190,11 +187,7 @@ public class DiscoveryPlugin extends PanacheEntityBase {
                     MultivaluedMap<String, String> incomingHeaders,
                     MultivaluedMap<String, String> clientOutgoingHeaders) {
                 var result = new MultivaluedHashMap<String, String>();
-                var credential = plugin.credential;
-                String basicAuth = String.format("%s:%s", credential.username, credential.password);
-                byte[] authBytes = basicAuth.getBytes(StandardCharsets.UTF_8);
-                String base64Auth = Base64.getEncoder().encodeToString(authBytes);
-                result.add(HttpHeaders.AUTHORIZATION, String.format("Basic %s", base64Auth));
+                result.add(HttpHeaders.AUTHORIZATION, authorization);
                 return result;
             }
         }
@@ -0,0 +1,186 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.cryostat.credentials.Credential;
+import io.cryostat.discovery.DiscoveryPlugin.PluginCallback;
+import io.cryostat.discovery.DiscoveryPlugin.PluginCallback.DiscoveryPluginAuthorizationHeaderFactory;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.client.api.QuarkusRestClientProperties;
+
+@ApplicationScoped
+public class DiscoveryPluginCallbacks {
+
+    @ConfigProperty(name = "cryostat.discovery.plugins.ping-concurrency")
+    int concurrency;
+
+    @ConfigProperty(name = "cryostat.discovery.plugins.ping-jitter")
+    Duration jitter;
+
+    @ConfigProperty(name = "cryostat.discovery.plugins.callback.connection-pool-size")
+    int connectionPoolSize;
+
+    @ConfigProperty(name = "cryostat.discovery.plugins.callback.connection-ttl")
+    Duration connectionTtl;
+
+    @Inject Logger logger;
+
+    // keyed by credential as well as callback, since a plugin which registers again at the same
+    // callback may do so with a different credential before the old registration is removed
+    private final Map<ClientKey, PluginCallback> clients = new ConcurrentHashMap<>();
+
+    void onStop(@Observes ShutdownEvent evt) {
+        List.copyOf(clients.keySet()).forEach(k -> evict(k.callback()));
+    }
+
+    PluginCallback get(DiscoveryPlugin plugin) {
+        return clients.computeIfAbsent(
+                ClientKey.of(plugin), k -> create(k.callback(), plugin.credential));
+    }
+
+    // close and forget every client for the callback, whichever credential it was created with
+    void evict(URI callback) {
+        if (callback == null) {
+            return;
+        }
+        for (ClientKey key : List.copyOf(clients.keySet())) {
+            if (!callback.equals(key.callback())) {
+                continue;
+            }
+            PluginCallback client = clients.remove(key);
+            if (client == null) {
+                continue;
+            }
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger.warn(e);
+            }
+        }
+    }
+
+    @Scheduled(
+            every = "${cryostat.discovery.plugins.ping-period}",
+            delayed = "${cryostat.discovery.plugins.ping-period}",
+            concurrentExecution = ConcurrentExecution.SKIP)
+    void refreshAll() {
+        List<Registration> registrations =
+                QuarkusTransaction.joiningExisting()
+                        .call(
+                                () ->
+                                        DiscoveryPlugin.<DiscoveryPlugin>stream("builtin", false)
+                                                .map(
+                                                        p ->
+                                                                new Registration(
+                                                                        p.id,
+                                                                        p.realm.name,
+                                                                        p.callback,
+                                                                        get(p)))
+                                                .toList());
+        logger.debugv("Refreshing {0} discovery plugins", registrations.size());
+        Multi.createFrom()
+                .iterable(registrations)
+                .onItem()
+                .transformToUni(this::refresh)
+                .merge(Math.max(1, concurrency))
+                .collect()
+                .asList()
+                .await()
+                .indefinitely();
+    }
+
+    private Uni<Void> refresh(Registration registration) {
+        Uni<Void> uni = Uni.createFrom().voidItem();
+        long delay = ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        if (delay > 0) {
+            uni = uni.onItem().delayIt().by(Duration.ofMillis(delay));
+        }
+        return uni.emitOn(Infrastructure.getDefaultWorkerPool())
+                .invoke(
+                        () -> {
+                            registration.client().refresh();
+                            logger.debugv(
+                                    "Refreshed discovery plugin: {0} @ {1}",
+                                    registration.realm(), registration.callback());
+                        })
+                .onFailure()
+                .invoke(e -> prune(registration, e))
+                .onFailure()
+                .recoverWithNull();
+    }
+
+    private void prune(Registration registration, Throwable cause) {
+        logger.debugv(
+                cause,
+                "Pruned discovery plugin: {0} @ {1}",
+                registration.realm(),
+                registration.callback());
+        evict(registration.callback());
+        try {
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () ->
+                                    DiscoveryPlugin.<DiscoveryPlugin>findByIdOptional(
+                                                    registration.id())
+                                            .ifPresent(DiscoveryPlugin::delete));
+        } catch (Exception e) {
+            logger.warn(e);
+        }
+    }
+
+    PluginCallback create(URI callback, Credential credential) {
+        logger.debugv("Creating discovery plugin callback client for {0}", callback);
+        return QuarkusRestClientBuilder.newBuilder()
+                .baseUri(callback)
+                .clientHeadersFactory(new DiscoveryPluginAuthorizationHeaderFactory(credential))
+                .property(QuarkusRestClientProperties.KEEP_ALIVE_ENABLED, true)
+                .property(QuarkusRestClientProperties.CONNECTION_POOL_SIZE, connectionPoolSize)
+                .property(
+                        QuarkusRestClientProperties.CONNECTION_TTL, (int) connectionTtl.toSeconds())
+                .build(PluginCallback.class);
+    }
+
+    record Registration(UUID id, String realm, URI callback, PluginCallback client) {}
+
+    record ClientKey(URI callback, Long credentialId) {
+        static ClientKey of(DiscoveryPlugin plugin) {
+            return new ClientKey(
+                    plugin.callback, plugin.credential == null ? null : plugin.credential.id);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.cryostat.targets.Target;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.TargetDiscovery;
+import io.cryostat.ws.MessagingServer;
+import io.cryostat.ws.Notification;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.EntityTag;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+@ApplicationScoped
+public class DiscoveryTree {
+
+    public static final String DELTA_CATEGORY = "DiscoveryTreeDelta";
+    public static final String SNAPSHOT_CATEGORY = "DiscoveryTreeSnapshot";
+
+    // distinguishes versions handed out by this instance from those of a previous run, so that
+    // clients holding an old ETag do not get a false cache hit after a restart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot;
+
+    private final Deque<Delta> deltas = new ArrayDeque<>();
+    // highest version that has been dropped from the delta buffer. Clients resuming from an older
+    // version than this cannot be caught up incrementally.
+    private long evictedThrough;
+    // highest version that changed the tree structure, such as a realm being added or removed,
+    // rather than a target. There is no delta for these, so clients resuming from an older
+    // version than this cannot be caught up incrementally either.
+    private long structuralThrough;
+    // the parents of each known target's node, from the universe down. Discovery detaches the
+    // node of a lost target before removing it, so LOST deltas use where the target was last seen.
+    private final Map<Long, List<PathNode>> locations = new ConcurrentHashMap<>();
+
+    @ConfigProperty(name = "cryostat.discovery.delta-buffer-size")
+    int deltaBufferSize;
+
+    @Inject ObjectMapper mapper;
+    @Inject EventBus bus;
+    @Inject Logger logger;
+
+    // observed before the mutating transaction commits, once discovery has attached the target's
+    // node to its parent
+    void locate(@Observes(during = TransactionPhase.BEFORE_COMPLETION) Changed evt) {
+        if (evt.event() == null || evt.event().kind() == EventKind.LOST) {
+            return;
+        }
+        Target target = evt.event().serviceRef();
+        if (target.id != null && target.discoveryNode != null) {
+            locations.put(target.id, parents(target.discoveryNode));
+        }
+    }
+
+    // observed only once the mutating transaction commits, so that a rebuild can never capture
+    // uncommitted state under a version number that will not be bumped again
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) Changed evt) {
+        Delta delta = null;
+        synchronized (deltas) {
+            long v = version.incrementAndGet();
+            if (evt.event() == null) {
+                structuralThrough = v;
+            } else {
+                TargetDiscovery event = evt.event();
+                Long id = event.serviceRef().id;
+                List<PathNode> parents = null;
+                if (id != null) {
+                    parents =
+                            event.kind() == EventKind.LOST
+                                    ? locations.remove(id)
+                                    : locations.get(id);
+                }
+                delta =
+                        new Delta(
+                                epoch,
+                                v,
+                                event.kind(),
+                                parents == null ? List.of() : parents,
+                                mapper.valueToTree(event.serviceRef()),
+                                event.jvmId());
+                deltas.addLast(delta);
+                while (deltas.size() > Math.max(0, deltaBufferSize)) {
+                    evictedThrough = deltas.removeFirst().version();
+                }
+            }
+        }
+        if (delta != null) {
+            bus.publish(
+                    MessagingServer.class.getName(),
+                    new Notification(
+                            DELTA_CATEGORY,
+                            delta,
+                            evt.event().jvmId(),
+                            evt.event().serviceRef().labels));
+        }
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Get the deltas that a client which last saw the given epoch and version has missed, in order.
+     * An empty result means the gap cannot be bridged from the delta buffer and the client must be
+     * sent a full snapshot instead.
+     */
+    public Optional<List<Delta>> deltasSince(String epoch, long since) {
+        synchronized (deltas) {
+            if (!this.epoch.equals(epoch)
+                    || since > version.get()
+                    || since < evictedThrough
+                    || since < structuralThrough) {
+                return Optional.empty();
+            }
+            return Optional.of(deltas.stream().filter(d -> d.version() > since).toList());
+        }
+    }
+
+    public SnapshotMessage snapshotMessage() {
+        Snapshot s = snapshot();
+        return new SnapshotMessage(
+                epoch, s.version(), new String(s.json(), StandardCharsets.UTF_8));
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        synchronized (lock) {
+            current = snapshot;
+            long v = version.get();
+            if (current != null && current.version() == v) {
+                return current;
+            }
+            current = build(v);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private Snapshot build(long v) {
+        byte[] json =
+                QuarkusTransaction.joiningExisting()
+                        .call(
+                                () -> {
+                                    DiscoveryNode universe = DiscoveryNode.getUniverse();
+                                    byte[] bytes = mapper.writeValueAsBytes(universe);
+                                    // targets found before this instance started have no delta
+                                    locateAll(universe, new ArrayList<>());
+                                    return bytes;
+                                });
+        logger.debugv("Rebuilt discovery tree snapshot version {0} ({1} bytes)", v, json.length);
+        return new Snapshot(v, new EntityTag(String.format("%s-%d", epoch, v)), json);
+    }
+
+    private void locateAll(DiscoveryNode node, List<PathNode> parents) {
+        if (node.target != null && node.target.id != null) {
+            locations.putIfAbsent(node.target.id, List.copyOf(parents));
+        }
+        if (node.children == null || node.children.isEmpty()) {
+            return;
+        }
+        parents.add(PathNode.of(node));
+        for (DiscoveryNode child : node.children) {
+            locateAll(child, parents);
+        }
+        parents.remove(parents.size() - 1);
+    }
+
+    static List<PathNode> parents(DiscoveryNode node) {
+        List<PathNode> parents = new ArrayList<>();
+        for (DiscoveryNode n = node.parent; n != null; n = n.parent) {
+            parents.add(PathNode.of(n));
+        }
+        Collections.reverse(parents);
+        return List.copyOf(parents);
+    }
+
+    @SuppressFBWarnings(value = {"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public record Snapshot(long version, EntityTag etag, byte[] json) {}
+
+    // parents locates the target in the tree, from the universe down to the node it was found
+    // under, so that a client can apply the delta without a snapshot of the nodes around it
+    @SuppressFBWarnings(value = {"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public record Delta(
+            String epoch,
+            long version,
+            EventKind kind,
+            List<PathNode> parents,
+            JsonNode serviceRef,
+            String jvmId) {}
+
+    public record PathNode(Long id, String name, String nodeType) {
+        static PathNode of(DiscoveryNode node) {
+            return new PathNode(node.id, node.name, node.nodeType);
+        }
+    }
+
+    public record SnapshotMessage(String epoch, long version, @JsonRawValue String tree) {}
+
+    // event is null for changes to the tree structure which do not correspond to a target
+    @SuppressFBWarnings(value = {"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public record Changed(TargetDiscovery event) {}
+}
@@ -25,6 +25,7 @@ import io.cryostat.core.templates.MutableTemplateService.InvalidEventTemplateExc
 import io.cryostat.core.templates.MutableTemplateService.InvalidXmlException;
 import io.cryostat.core.templates.Template;
 import io.cryostat.core.templates.TemplateType;
+import io.cryostat.targets.AgentClient;
 import io.cryostat.targets.Target;
 import io.cryostat.util.HttpMimeType;
 
@@ -41,6 +42,7 @@ import jakarta.ws.rs.core.Response;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestForm;
 import org.jboss.resteasy.reactive.RestPath;
+import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 
@@ -59,6 +61,7 @@ public class EventTemplates {
     @Inject FileSystem fs;
     @Inject TargetTemplateService.Factory targetTemplateServiceFactory;
     @Inject S3TemplateService customTemplateService;
+    @Inject AgentClient.Factory agentClientFactory;
     @Inject Logger logger;
 
     @GET
@@ -161,8 +164,12 @@ public class EventTemplates {
     @Blocking
     @Path("/api/v3/targets/{id}/event_templates")
     @RolesAllowed("read")
-    public List<Template> listTargetTemplates(@RestPath long id) throws Exception {
+    public List<Template> listTargetTemplates(@RestPath long id, @RestQuery boolean refresh)
+            throws Exception {
         Target target = Target.find("id", id).singleResult();
+        if (refresh) {
+            agentClientFactory.invalidate(target.jvmId).await().indefinitely();
+        }
         var list = new ArrayList<Template>();
         list.add(ALL_EVENTS_TEMPLATE);
         list.addAll(targetTemplateServiceFactory.create(target).getTemplates());
@@ -24,6 +24,7 @@ import java.util.Set;
 import org.openjdk.jmc.flightrecorder.configuration.events.IEventTypeInfo;
 
 import io.cryostat.V2Response;
+import io.cryostat.targets.AgentClient;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.TargetConnectionManager;
 
@@ -42,6 +43,7 @@ import org.jboss.resteasy.reactive.RestResponse;
 public class Events {
 
     @Inject TargetConnectionManager connectionManager;
+    @Inject AgentClient.Factory agentClientFactory;
     @Inject Logger logger;
 
     @GET
@@ -70,9 +72,13 @@ public class Events {
     @GET
     @Path("/api/v3/targets/{id}/events")
     @RolesAllowed("read")
-    public List<SerializableEventTypeInfo> listEvents(@RestPath long id, @RestQuery String q)
-            throws Exception {
-        return searchEvents(Target.find("id", id).singleResult(), q);
+    public List<SerializableEventTypeInfo> listEvents(
+            @RestPath long id, @RestQuery String q, @RestQuery boolean refresh) throws Exception {
+        Target target = Target.find("id", id).singleResult();
+        if (refresh) {
+            agentClientFactory.invalidate(target.jvmId).await().indefinitely();
+        }
+        return searchEvents(target, q);
     }
 
     private List<SerializableEventTypeInfo> searchEvents(Target target, String q) throws Exception {
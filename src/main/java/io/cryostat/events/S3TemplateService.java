@@ -45,6 +45,7 @@ import io.cryostat.core.FlightRecorderException;
 import io.cryostat.core.templates.MutableTemplateService;
 import io.cryostat.core.templates.Template;
 import io.cryostat.core.templates.TemplateType;
+import io.cryostat.storage.Storage;
 import io.cryostat.ws.MessagingServer;
 import io.cryostat.ws.Notification;
 
@@ -84,7 +85,7 @@ public class S3TemplateService implements MutableTemplateService {
     @ConfigProperty(name = ConfigProperties.TEMPLATES_DIR)
     Path dir;
 
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
     @Inject StorageBuckets storageBuckets;
 
     @Inject EventBus bus;
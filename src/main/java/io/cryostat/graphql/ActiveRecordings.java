@@ -44,6 +44,8 @@ import io.cryostat.targets.Target;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.smallrye.common.annotation.Blocking;
 import io.smallrye.graphql.api.Nullable;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jdk.jfr.RecordingState;
@@ -112,7 +114,7 @@ public class ActiveRecordings {
     @Description(
             "Archive an existing Flight Recording matching the given filter, on all Targets under"
                     + " the subtrees of the discovery nodes matching the given filter")
-    public List<ArchivedRecording> archiveRecording(
+    public Uni<List<ArchivedRecording>> archiveRecording(
             @NonNull DiscoveryNodeFilter nodes, @Nullable ActiveRecordingsFilter recordings)
             throws Exception {
         var list =
@@ -131,11 +133,13 @@ public class ActiveRecordings {
                                                                 recordings == null
                                                                         || recordings.test(r)))
                         .toList();
-        var archives = new ArrayList<ArchivedRecording>();
-        for (var r : list) {
-            archives.add(recordingHelper.archiveRecording(r, null, null));
-        }
-        return archives;
+        return Multi.createFrom()
+                .iterable(list)
+                .onItem()
+                .transformToUniAndConcatenate(
+                        r -> recordingHelper.archiveRecordingAsync(r, null, null))
+                .collect()
+                .asList();
     }
 
     @Blocking
@@ -271,9 +275,9 @@ public class ActiveRecordings {
 
     @Blocking
     @Description("Archive the specified Flight Recording")
-    public ArchivedRecording doArchive(@Source ActiveRecording recording) throws Exception {
+    public Uni<ArchivedRecording> doArchive(@Source ActiveRecording recording) throws Exception {
         var ar = ActiveRecording.<ActiveRecording>find("id", recording.id).singleResult();
-        return recordingHelper.archiveRecording(ar, null, null);
+        return recordingHelper.archiveRecordingAsync(ar, null, null);
     }
 
     public TargetNodes.ActiveRecordings active(
@@ -24,15 +24,22 @@ import io.cryostat.graphql.ActiveRecordings.MetadataLabels;
 import io.cryostat.graphql.TargetNodes.AggregateInfo;
 import io.cryostat.graphql.TargetNodes.Recordings;
 import io.cryostat.graphql.matchers.LabelSelectorMatcher;
+import io.cryostat.recordings.ArchiveAggregate;
+import io.cryostat.recordings.ArchiveEntry;
 import io.cryostat.recordings.RecordingHelper;
+import io.cryostat.recordings.RecordingHelper.ArchiveDeletion;
 import io.cryostat.recordings.Recordings.ArchivedRecording;
 import io.cryostat.recordings.Recordings.Metadata;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import graphql.schema.DataFetchingEnvironment;
 import io.smallrye.common.annotation.Blocking;
+import io.smallrye.graphql.api.Context;
 import io.smallrye.graphql.api.Nullable;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.graphql.Description;
 import org.eclipse.microprofile.graphql.GraphQLApi;
+import org.eclipse.microprofile.graphql.Mutation;
 import org.eclipse.microprofile.graphql.NonNull;
 import org.eclipse.microprofile.graphql.Query;
 import org.eclipse.microprofile.graphql.Source;
@@ -44,8 +51,14 @@ public class ArchivedRecordings {
 
     @Blocking
     @Query("archivedRecordings")
-    public TargetNodes.ArchivedRecordings listArchivedRecordings(ArchivedRecordingsFilter filter) {
+    public TargetNodes.ArchivedRecordings listArchivedRecordings(
+            ArchivedRecordingsFilter filter, Context context) {
         var r = new TargetNodes.ArchivedRecordings();
+        var dfe = context.unwrap(DataFetchingEnvironment.class);
+        if (filter == null && !dfe.getSelectionSet().contains("data")) {
+            r.aggregate = AggregateInfo.fromStats(ArchiveAggregate.global());
+            return r;
+        }
         r.data =
                 recordingHelper
                         .listArchivedRecordings(filter == null ? null : filter.sourceTarget)
@@ -72,6 +85,41 @@ public class ArchivedRecordings {
         return out;
     }
 
+    @Blocking
+    @Mutation
+    @Description(
+            "Delete all archived recordings matching the given filter, in batches. At least one"
+                    + " filter field is required. Returns the outcome for each recording.")
+    public List<ArchiveDeletion> deleteArchivedRecordings(
+            @NonNull ArchivedRecordingsFilter filter) {
+        // an empty filter matches every archive, which is far more likely a mistake than intended
+        if (isEmpty(filter)) {
+            throw new IllegalArgumentException("At least one filter field must be provided");
+        }
+        var entries =
+                recordingHelper.listArchivedRecordings(filter.sourceTarget).stream()
+                        .filter(filter)
+                        .map(ArchiveEntry::of)
+                        .toList();
+        return recordingHelper
+                .deleteArchivedRecordings(entries)
+                .collect()
+                .asList()
+                .await()
+                .indefinitely();
+    }
+
+    static boolean isEmpty(ArchivedRecordingsFilter filter) {
+        return filter.name == null
+                && (filter.names == null || filter.names.isEmpty())
+                && filter.sourceTarget == null
+                && (filter.labels == null || filter.labels.isEmpty())
+                && filter.sizeBytesGreaterThanEqual == null
+                && filter.sizeBytesLessThanEqual == null
+                && filter.archivedTimeAfterEqual == null
+                && filter.archivedTimeBeforeEqual == null;
+    }
+
     @NonNull
     public ArchivedRecording doDelete(@Source ArchivedRecording recording) {
         recordingHelper.deleteArchivedRecording(recording.jvmId(), recording.name());
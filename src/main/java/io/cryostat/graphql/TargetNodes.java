@@ -26,6 +26,7 @@ import io.cryostat.graphql.ActiveRecordings.ActiveRecordingsFilter;
 import io.cryostat.graphql.ArchivedRecordings.ArchivedRecordingsFilter;
 import io.cryostat.graphql.RootNode.DiscoveryNodeFilter;
 import io.cryostat.recordings.ActiveRecording;
+import io.cryostat.recordings.ArchiveAggregate;
 import io.cryostat.recordings.RecordingHelper;
 import io.cryostat.recordings.Recordings.ArchivedRecording;
 import io.cryostat.targets.Target;
@@ -91,11 +92,18 @@ public class TargetNodes {
     }
 
     @Blocking
+    @Transactional
     public ArchivedRecordings archivedRecordings(
-            @Source Target target, @Nullable ArchivedRecordingsFilter filter) {
+            @Source Target target, @Nullable ArchivedRecordingsFilter filter, Context context) {
         var fTarget = Target.getTargetById(target.id);
         var recordings = new ArchivedRecordings();
-        if (StringUtils.isNotBlank(fTarget.jvmId)) {
+        if (StringUtils.isBlank(fTarget.jvmId)) {
+            return recordings;
+        }
+        var dfe = context.unwrap(DataFetchingEnvironment.class);
+        if (filter == null && !dfe.getSelectionSet().contains("data")) {
+            recordings.aggregate = AggregateInfo.fromStats(ArchiveAggregate.stats(fTarget.jvmId));
+        } else {
             recordings.data =
                     recordingHelper.listArchivedRecordings(fTarget).stream()
                             .filter(r -> filter == null || filter.test(r))
@@ -126,8 +134,14 @@ public class TargetNodes {
 
         if (requestedFields.contains("archived")) {
             recordings.archived = new ArchivedRecordings();
-            recordings.archived.data = recordingHelper.listArchivedRecordings(fTarget);
-            recordings.archived.aggregate = AggregateInfo.fromArchived(recordings.archived.data);
+            if (dfe.getSelectionSet().contains("archived/data")) {
+                recordings.archived.data = recordingHelper.listArchivedRecordings(fTarget);
+                recordings.archived.aggregate =
+                        AggregateInfo.fromArchived(recordings.archived.data);
+            } else {
+                recordings.archived.aggregate =
+                        AggregateInfo.fromStats(ArchiveAggregate.stats(fTarget.jvmId));
+            }
         }
 
         return recordings;
@@ -164,24 +178,45 @@ public class TargetNodes {
         public @NonNull @Description(
                 "The sum of sizes of elements in this collection, or 0 if not applicable") long
                 size;
-
-        private AggregateInfo(long count, long size) {
+        public @Description(
+                "The earliest archival time of elements in this collection, in seconds since the"
+                        + " epoch, if applicable") Long oldest;
+        public @Description(
+                "The latest archival time of elements in this collection, in seconds since the"
+                        + " epoch, if applicable") Long newest;
+
+        private AggregateInfo(long count, long size, Long oldest, Long newest) {
             this.count = count;
             this.size = size;
+            this.oldest = oldest;
+            this.newest = newest;
         }
 
         public static AggregateInfo empty() {
-            return new AggregateInfo(0, 0);
+            return new AggregateInfo(0, 0, null, null);
         }
 
         public static AggregateInfo fromActive(List<ActiveRecording> recordings) {
-            return new AggregateInfo(recordings.size(), 0);
+            return new AggregateInfo(recordings.size(), 0, null, null);
         }
 
         public static AggregateInfo fromArchived(List<ArchivedRecording> recordings) {
+            var times = recordings.stream().mapToLong(ArchivedRecording::archivedTime);
+            var stats = times.summaryStatistics();
             return new AggregateInfo(
                     recordings.size(),
-                    recordings.stream().mapToLong(ArchivedRecording::size).sum());
+                    recordings.stream().mapToLong(ArchivedRecording::size).sum(),
+                    recordings.isEmpty() ? null : stats.getMin(),
+                    recordings.isEmpty() ? null : stats.getMax());
+        }
+
+        // from the running totals of the archive index, without listing storage
+        public static AggregateInfo fromStats(ArchiveAggregate.Stats stats) {
+            return new AggregateInfo(
+                    stats.count(),
+                    stats.size(),
+                    stats.oldest() == null ? null : stats.oldest().getEpochSecond(),
+                    stats.newest() == null ? null : stats.newest().getEpochSecond());
         }
     }
 }
@@ -89,7 +89,9 @@ public class JMCAgent {
                                                     "events",
                                                     template.getEvents(),
                                                     "probeTemplate",
-                                                    template.getFileName())));
+                                                    template.getFileName()),
+                                            target.jvmId,
+                                            target.labels));
                             return Response.status(RestResponse.Status.OK).build();
                         } catch (ProbeDefinitionException e) {
                             // Cleanup the probes if something went wrong, calling defineEventProbes
@@ -138,7 +140,9 @@ public class JMCAgent {
                                     MessagingServer.class.getName(),
                                     new Notification(
                                             PROBES_REMOVED_CATEGORY,
-                                            Map.of("jvmId", target.jvmId)));
+                                            Map.of("jvmId", target.jvmId),
+                                            target.jvmId,
+                                            target.labels));
                             return Response.status(RestResponse.Status.OK).build();
                         } catch (Exception e) {
                             return Response.status(RestResponse.Status.INTERNAL_SERVER_ERROR)
@@ -28,6 +28,7 @@ import io.cryostat.Producers;
 import io.cryostat.StorageBuckets;
 import io.cryostat.core.jmcagent.ProbeTemplate;
 import io.cryostat.core.jmcagent.ProbeTemplateService;
+import io.cryostat.storage.Storage;
 import io.cryostat.ws.MessagingServer;
 import io.cryostat.ws.Notification;
 
@@ -58,7 +59,7 @@ public class S3ProbeTemplateService implements ProbeTemplateService {
     @ConfigProperty(name = ConfigProperties.AWS_BUCKET_NAME_PROBE_TEMPLATES)
     String bucket;
 
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
     @Inject StorageBuckets storageBuckets;
 
     @Inject EventBus bus;
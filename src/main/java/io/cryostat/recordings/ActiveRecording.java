@@ -16,6 +16,7 @@
 package io.cryostat.recordings;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -204,7 +205,8 @@ public class ActiveRecording extends PanacheEntity {
         private void notify(ActiveRecordingEvent event) {
             bus.publish(
                     MessagingServer.class.getName(),
-                    new Notification(event.category().category(), event.payload()));
+                    new Notification(
+                            event.category().category(), event.payload(), event.payload().jvmId()));
         }
 
         public record ActiveRecordingEvent(
@@ -214,14 +216,19 @@ public class ActiveRecording extends PanacheEntity {
                 Objects.requireNonNull(payload);
             }
 
-            public record Payload(
-                    String target, LinkedRecordingDescriptor recording, String jvmId) {
+            public record Payload(String target, LinkedRecordingDescriptor recording, String jvmId)
+                    implements Notification.Identified {
                 public Payload {
                     Objects.requireNonNull(target);
                     Objects.requireNonNull(recording);
                     Objects.requireNonNull(jvmId);
                 }
 
+                @Override
+                public Object identity() {
+                    return recording.id();
+                }
+
                 public static Payload of(RecordingHelper helper, ActiveRecording recording) {
                     return new Payload(
                             recording.target.connectUrl.toString(),
@@ -243,11 +250,17 @@ public class ActiveRecording extends PanacheEntity {
             // originally sourced from that target, or if we are accepting a recording upload from a
             // client.
             // This should embed the target jvmId and optionally the database ID.
-            public record Payload(String target, ArchivedRecording recording) {
+            public record Payload(String target, ArchivedRecording recording)
+                    implements Notification.Identified {
                 public Payload {
                     Objects.requireNonNull(recording);
                 }
 
+                @Override
+                public Object identity() {
+                    return Arrays.asList(recording.jvmId(), recording.name());
+                }
+
                 public static Payload of(URI connectUrl, ArchivedRecording recording) {
                     return new Payload(
                             Optional.ofNullable(connectUrl).map(URI::toString).orElse(null),
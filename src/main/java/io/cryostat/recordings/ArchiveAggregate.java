@@ -0,0 +1,206 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Query;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+
+// Running totals of the archive index for each JVM, kept up to date as archives are indexed and
+// unindexed so that counts and sizes can be reported without listing storage or scanning the
+// index
+@Entity
+@Table(uniqueConstraints = {@UniqueConstraint(columnNames = {"jvmId"})})
+public class ArchiveAggregate extends PanacheEntity {
+
+    @NotBlank public String jvmId;
+
+    @PositiveOrZero public long archiveCount;
+    @PositiveOrZero public long totalSize;
+    public Instant oldestArchive;
+    public Instant newestArchive;
+
+    public static Optional<ArchiveAggregate> get(String jvmId) {
+        return find("jvmId", jvmId).singleResultOptional();
+    }
+
+    public static Stats stats(String jvmId) {
+        return get(jvmId).map(ArchiveAggregate::stats).orElse(Stats.EMPTY);
+    }
+
+    public static Stats global() {
+        Object[] row =
+                getEntityManager()
+                        .createQuery(
+                                "select coalesce(sum(archiveCount), 0), coalesce(sum(totalSize),"
+                                        + " 0), min(oldestArchive), max(newestArchive) from"
+                                        + " ArchiveAggregate",
+                                Object[].class)
+                        .getSingleResult();
+        return new Stats(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                (Instant) row[2],
+                (Instant) row[3]);
+    }
+
+    public Stats stats() {
+        return new Stats(archiveCount, totalSize, oldestArchive, newestArchive);
+    }
+
+    // The totals are only ever changed by single update statements, which lock the JVM's row, so
+    // that concurrent indexing in other transactions is never lost
+    static void added(String jvmId, long size, Instant archivedTime) {
+        String hql =
+                "update ArchiveAggregate set archiveCount = archiveCount + 1, totalSize ="
+                        + " totalSize + ?2, oldestArchive = case when oldestArchive is null or"
+                        + " oldestArchive > ?3 then ?3 else oldestArchive end, newestArchive ="
+                        + " case when newestArchive is null or newestArchive < ?3 then ?3 else"
+                        + " newestArchive end where jvmId = ?1";
+        if (execute(hql, jvmId, size, archivedTime) == 0) {
+            create(jvmId);
+            execute(hql, jvmId, size, archivedTime);
+        }
+    }
+
+    static void removed(String jvmId, long size, Instant archivedTime) {
+        // the next oldest or newest archive is only known to the index, so removing either of
+        // those is left to a recompute
+        int updated =
+                execute(
+                        "update ArchiveAggregate set archiveCount = archiveCount - 1, totalSize ="
+                                + " case when totalSize > ?2 then totalSize - ?2 else 0 end where"
+                                + " jvmId = ?1 and archiveCount > 1 and oldestArchive < ?3 and"
+                                + " newestArchive > ?3",
+                        jvmId,
+                        size,
+                        archivedTime);
+        if (updated == 0) {
+            recompute(jvmId);
+        }
+    }
+
+    // Recalculate the JVM's totals from the archive index. The row is locked before the index is
+    // read, so updates by other transactions are either already in the index or wait for this one.
+    static void recompute(String jvmId) {
+        if (!lock(jvmId)) {
+            if (indexStats(jvmId).count() == 0) {
+                return;
+            }
+            create(jvmId);
+            lock(jvmId);
+        }
+        Stats stats = indexStats(jvmId);
+        if (stats.count() == 0) {
+            execute("delete from ArchiveAggregate where jvmId = ?1", jvmId);
+            return;
+        }
+        execute(
+                "update ArchiveAggregate set archiveCount = ?2, totalSize = ?3, oldestArchive = ?4,"
+                        + " newestArchive = ?5 where jvmId = ?1",
+                jvmId,
+                stats.count(),
+                stats.size(),
+                stats.oldest(),
+                stats.newest());
+    }
+
+    // Recalculate every JVM's totals from the archive index, removing the totals of JVMs which no
+    // longer have any archives
+    static void rebuild() {
+        jvmIds().forEach(ArchiveAggregate::recompute);
+    }
+
+    // Every JVM which has either totals or indexed archives
+    static Set<String> jvmIds() {
+        Set<String> jvmIds = new TreeSet<>();
+        jvmIds.addAll(
+                getEntityManager()
+                        .createQuery("select distinct jvmId from ArchiveEntry", String.class)
+                        .getResultList());
+        jvmIds.addAll(
+                getEntityManager()
+                        .createQuery("select jvmId from ArchiveAggregate", String.class)
+                        .getResultList());
+        return jvmIds;
+    }
+
+    private static Stats indexStats(String jvmId) {
+        Object[] row =
+                getEntityManager()
+                        .createQuery(
+                                "select count(*), coalesce(sum(size), 0), min(archivedTime),"
+                                        + " max(archivedTime) from ArchiveEntry where jvmId = ?1",
+                                Object[].class)
+                        .setParameter(1, jvmId)
+                        .getSingleResult();
+        return new Stats(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                (Instant) row[2],
+                (Instant) row[3]);
+    }
+
+    private static boolean lock(String jvmId) {
+        return execute(
+                        "update ArchiveAggregate set archiveCount = archiveCount where jvmId = ?1",
+                        jvmId)
+                > 0;
+    }
+
+    // The row is inserted in a transaction of its own, as a concurrent insert for the same JVM
+    // would otherwise violate the unique constraint and roll back the caller's transaction. If
+    // another transaction wins the race then its row is used instead.
+    private static void create(String jvmId) {
+        try {
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () -> {
+                                if (get(jvmId).isEmpty()) {
+                                    ArchiveAggregate aggregate = new ArchiveAggregate();
+                                    aggregate.jvmId = jvmId;
+                                    aggregate.persist();
+                                }
+                            });
+        } catch (RuntimeException e) {
+            if (QuarkusTransaction.requiringNew().call(() -> get(jvmId).isEmpty())) {
+                throw e;
+            }
+        }
+    }
+
+    private static int execute(String hql, Object... params) {
+        Query query = getEntityManager().createQuery(hql);
+        for (int i = 0; i < params.length; i++) {
+            query.setParameter(i + 1, params[i]);
+        }
+        return query.executeUpdate();
+    }
+
+    public record Stats(long count, long size, Instant oldest, Instant newest) {
+        public static final Stats EMPTY = new Stats(0, 0, null, null);
+    }
+}
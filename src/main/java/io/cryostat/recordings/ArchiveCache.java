@@ -0,0 +1,408 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.recordings.Recordings.ArchivedRecording;
+import io.cryostat.recordings.Recordings.ArchivedRecordingsDeletion;
+import io.cryostat.storage.StorageBackend;
+import io.cryostat.util.MappedFileInputStream;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.vertx.ConsumeEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+// Local disk copies of recently used archived recordings, so that a report, a Grafana upload and
+// a download of the same archive fetch it from storage only once. Files hold the decoded JFR
+// bytes and are evicted least recently used first once the cache exceeds its size limit. Entries
+// are keyed by storage key and the ETag of the object they were copied from, and an entry is only
+// used while storage still holds that object, so that an archive overwritten by another instance
+// is not served stale. Entries are also invalidated here when an archive is deleted or uploaded.
+@ApplicationScoped
+public class ArchiveCache {
+
+    private final Path dir;
+    private final long maxSize;
+    private final Logger logger;
+
+    @Inject RecordingHelper recordingHelper;
+
+    // storage key to cached file, in least recently used order
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    @Inject
+    ArchiveCache(
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_CACHE_DIR) Path dir,
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_CACHE_MAX_SIZE) MemorySize maxSize,
+            @ConfigProperty(name = ConfigProperties.STORAGE_BACKEND) String backend,
+            Logger logger) {
+        // archives kept on local disk already are not copied again
+        this(
+                dir,
+                StorageBackend.FILESYSTEM.equalsIgnoreCase(backend) ? 0 : maxSize.asLongValue(),
+                logger);
+    }
+
+    ArchiveCache(Path dir, long maxSize, Logger logger) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.logger = logger;
+    }
+
+    // cached files are not tracked across restarts
+    void onStart(@Observes StartupEvent evt) throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        reset();
+    }
+
+    void onStop(@Observes ShutdownEvent evt) {
+        if (!isEnabled()) {
+            return;
+        }
+        FileUtils.deleteQuietly(dir.toFile());
+    }
+
+    void reset() throws IOException {
+        FileUtils.deleteQuietly(dir.toFile());
+        Files.createDirectories(dir);
+        synchronized (this) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    // The cached copy of the archive, provided it is a copy of the object storage holds now
+    public Optional<Hit> lookup(String storageKey) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(storageKey);
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        Optional<HeadObjectResponse> head =
+                entry.eTag() == null ? Optional.empty() : head(storageKey);
+        if (head.isEmpty() || !entry.eTag().equals(head.get().eTag())) {
+            logger.debugv("Cached copy of {0} is stale", storageKey);
+            invalidate(storageKey, entry);
+            return Optional.empty();
+        }
+        return Optional.of(
+                new Hit(
+                        entry.path(),
+                        entry.eTag(),
+                        entry.size(),
+                        head.get().lastModified(),
+                        head.get().contentEncoding()));
+    }
+
+    public Optional<Path> get(String storageKey) {
+        return lookup(storageKey).map(Hit::path);
+    }
+
+    // Open the cached copy of the archive through a memory mapping, if there is one
+    public Optional<InputStream> open(String storageKey) throws IOException {
+        return lookup(storageKey).flatMap(hit -> open(storageKey, hit));
+    }
+
+    public Optional<InputStream> open(String storageKey, Hit hit) {
+        try {
+            return Optional.of(MappedFileInputStream.open(hit.path()));
+        } catch (IOException e) {
+            // evicted between lookup and open
+            invalidate(storageKey);
+            return Optional.empty();
+        }
+    }
+
+    // A new hard link to the cached copy of the archive, for consumers which need a file of their
+    // own that eviction will not remove. The caller must delete the link when done with it.
+    public Optional<Path> link(String storageKey) {
+        Optional<Path> path = get(storageKey);
+        if (path.isEmpty()) {
+            return Optional.empty();
+        }
+        Path link = dir.resolve(UUID.randomUUID() + ".lnk");
+        try {
+            return Optional.of(Files.createLink(link, path.get()));
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debugv("Could not link cached {0}: {1}", storageKey, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Copy the stream of the object with the given ETag into the cache as it is read. The copy is
+    // cached once the stream has been read to the end and closed.
+    public InputStream readThrough(String storageKey, String eTag, InputStream stream)
+            throws IOException {
+        if (!isEnabled() || eTag == null) {
+            return stream;
+        }
+        Capture capture = capture(storageKey, stream);
+        capture.eTag = eTag;
+        capture.autoCommit = true;
+        return capture;
+    }
+
+    // Copy the stream into the cache as it is read. The copy is only cached once commit is called
+    // with the ETag of the object which was stored, so that failed archives are not cached.
+    public Capture capture(String storageKey, InputStream stream) throws IOException {
+        return new Capture(storageKey, stream);
+    }
+
+    Optional<HeadObjectResponse> head(String storageKey) {
+        return recordingHelper.headArchivedObject(storageKey);
+    }
+
+    @ConsumeEvent(value = Recordings.ARCHIVED_RECORDING_DELETED, blocking = true)
+    void onArchiveDeleted(ArchivedRecording recording) {
+        invalidate(recordingHelper.archivedRecordingKey(recording.jvmId(), recording.name()));
+    }
+
+    @ConsumeEvent(value = Recordings.ARCHIVED_RECORDINGS_DELETED, blocking = true)
+    void onArchivesDeleted(ArchivedRecordingsDeletion deletion) {
+        deletion.recordings().forEach(this::onArchiveDeleted);
+    }
+
+    public void invalidate(String storageKey) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(storageKey);
+            if (entry == null) {
+                return;
+            }
+            size -= entry.size();
+        }
+        delete(entry.path());
+    }
+
+    // only if the entry has not since been replaced by a fresh copy
+    private void invalidate(String storageKey, Entry entry) {
+        synchronized (this) {
+            if (!entries.remove(storageKey, entry)) {
+                return;
+            }
+            size -= entry.size();
+        }
+        delete(entry.path());
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    private void commit(String storageKey, String eTag, Path tmp) throws IOException {
+        long fileSize = Files.size(tmp);
+        if (eTag == null || fileSize > maxSize) {
+            delete(tmp);
+            return;
+        }
+        Path path = dir.resolve(DigestUtils.sha256Hex(storageKey) + ".jfr");
+        Map<String, Entry> evicted = new LinkedHashMap<>();
+        synchronized (this) {
+            // readers of a replaced or evicted file keep their open handle or mapping
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            Entry previous = entries.put(storageKey, new Entry(path, eTag, fileSize));
+            if (previous != null) {
+                size -= previous.size();
+            }
+            size += fileSize;
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (size > maxSize && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(storageKey)) {
+                    continue;
+                }
+                it.remove();
+                size -= eldest.getValue().size();
+                evicted.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+        evicted.values().forEach(e -> delete(e.path()));
+        logger.tracev(
+                "Cached {0} ({1} bytes), evicted {2}", storageKey, fileSize, evicted.keySet());
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+
+    private record Entry(Path path, String eTag, long size) {}
+
+    // a cached copy along with the validators and encoding of the stored object it was copied from
+    public record Hit(
+            Path path, String eTag, long size, Instant lastModified, String contentEncoding) {}
+
+    public class Capture extends FilterInputStream {
+        private final String storageKey;
+        private final Path tmp;
+        private String eTag;
+        private OutputStream out;
+        private boolean autoCommit;
+        private boolean eof;
+        private boolean closed;
+
+        private Capture(String storageKey, InputStream in) throws IOException {
+            super(in);
+            this.storageKey = Objects.requireNonNull(storageKey);
+            if (isEnabled()) {
+                this.tmp = Files.createTempFile(dir, null, ".tmp");
+                this.out = Files.newOutputStream(tmp);
+            } else {
+                this.tmp = null;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                eof = true;
+            } else {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                eof = true;
+            } else {
+                write(b, off, n);
+            }
+            return n;
+        }
+
+        // skipped bytes would be missing from the copy
+        @Override
+        public long skip(long n) throws IOException {
+            abandon();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                // caching is best effort and must not fail the read
+                logger.warn(e);
+                abandon();
+            }
+        }
+
+        // Cache the copy as that of the object with the given ETag, provided the whole stream was
+        // read
+        public void commit(String eTag) {
+            this.eTag = eTag;
+            commit();
+        }
+
+        private void commit() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                if (eof) {
+                    ArchiveCache.this.commit(storageKey, eTag, tmp);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn(e);
+            }
+            ArchiveCache.this.delete(tmp);
+        }
+
+        private void abandon() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn(e);
+            }
+            out = null;
+            ArchiveCache.this.delete(tmp);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                if (autoCommit) {
+                    commit();
+                }
+            }
+        }
+
+        // Discard the copy if it was not committed
+        public void discard() {
+            abandon();
+        }
+    }
+}
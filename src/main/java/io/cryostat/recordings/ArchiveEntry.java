@@ -0,0 +1,164 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import io.cryostat.recordings.Recordings.ArchivedRecording;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.panache.common.Sort;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+// Index of the non-transient archived recordings in the archives bucket, so that per-JVM
+// bookkeeping such as retention does not need to list and inspect every object in storage
+@Entity
+@Table(
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"jvmId", "filename"})},
+        indexes = {
+            @Index(columnList = "jvmId, archivedTime"),
+            @Index(columnList = "ruleId, jvmId, archivedTime")
+        })
+public class ArchiveEntry extends PanacheEntity {
+
+    private static final Sort OLDEST_FIRST = Sort.ascending("archivedTime").and("id");
+
+    @NotBlank public String jvmId;
+    @NotBlank public String filename;
+    @PositiveOrZero public long size;
+    @NotNull public Instant archivedTime;
+
+    // the automated rule which produced this archive, if any
+    public Long ruleId;
+
+    // the first archive of the incremental chain this archive belongs to. Later increments in a
+    // chain only hold the chunks written since the one before, so a chain is retained or pruned
+    // as a whole. Null for standalone archives.
+    public String chain;
+
+    // the JFR chunks of the archive, built when it is first sliced so that later slices only read
+    // the chunks they need. Null until then, and cleared when the archive is replaced.
+    @JdbcTypeCode(SqlTypes.JSON)
+    public List<Chunk> chunks;
+
+    public static ArchiveEntry of(String jvmId, String filename, long size, Instant archivedTime) {
+        ArchiveEntry entry = new ArchiveEntry();
+        entry.jvmId = jvmId;
+        entry.filename = filename;
+        entry.size = size;
+        entry.archivedTime = archivedTime;
+        return entry;
+    }
+
+    public static ArchiveEntry of(ArchivedRecording recording) {
+        return of(
+                recording.jvmId(),
+                recording.name(),
+                recording.size(),
+                Instant.ofEpochSecond(recording.archivedTime()));
+    }
+
+    public static Optional<ArchiveEntry> getEntry(String jvmId, String filename) {
+        return find("jvmId = ?1 and filename = ?2", jvmId, filename).singleResultOptional();
+    }
+
+    public static List<ArchiveEntry> listForRule(long ruleId, String jvmId) {
+        return ArchiveEntry.<ArchiveEntry>find(
+                        "ruleId = ?1 and jvmId = ?2", OLDEST_FIRST, ruleId, jvmId)
+                .list();
+    }
+
+    public static long countInChain(long ruleId, String jvmId, String chain) {
+        return count("ruleId = ?1 and jvmId = ?2 and chain = ?3", ruleId, jvmId, chain);
+    }
+
+    public static List<ArchiveEntry> listUnowned(String jvmId) {
+        return ArchiveEntry.<ArchiveEntry>find("ruleId is null and jvmId = ?1", OLDEST_FIRST, jvmId)
+                .list();
+    }
+
+    public static List<ArchiveEntry> listOldestFirst(String jvmId, int count) {
+        return (jvmId == null
+                        ? ArchiveEntry.<ArchiveEntry>findAll(OLDEST_FIRST)
+                        : ArchiveEntry.<ArchiveEntry>find("jvmId", OLDEST_FIRST, jvmId))
+                .range(0, count - 1)
+                .list();
+    }
+
+    // Archives of the JVM archived at or before the given time. Either may be null to match all.
+    public static List<ArchiveEntry> listMatching(String jvmId, Instant archivedBefore) {
+        if (jvmId == null && archivedBefore == null) {
+            return ArchiveEntry.<ArchiveEntry>findAll(OLDEST_FIRST).list();
+        }
+        if (archivedBefore == null) {
+            return ArchiveEntry.<ArchiveEntry>find("jvmId", OLDEST_FIRST, jvmId).list();
+        }
+        if (jvmId == null) {
+            return ArchiveEntry.<ArchiveEntry>find(
+                            "archivedTime <= ?1", OLDEST_FIRST, archivedBefore)
+                    .list();
+        }
+        return ArchiveEntry.<ArchiveEntry>find(
+                        "jvmId = ?1 and archivedTime <= ?2", OLDEST_FIRST, jvmId, archivedBefore)
+                .list();
+    }
+
+    public static List<ArchiveEntry> listArchivedBefore(Instant time, int count) {
+        return ArchiveEntry.<ArchiveEntry>find("archivedTime < ?1", OLDEST_FIRST, time)
+                .range(0, count - 1)
+                .list();
+    }
+
+    // The number and total size of the archives for the JVM, or of all archives if jvmId is null
+    public static Usage usage(String jvmId) {
+        String hql = "select count(*), coalesce(sum(size), 0) from ArchiveEntry";
+        var query =
+                jvmId == null
+                        ? getEntityManager().createQuery(hql, Object[].class)
+                        : getEntityManager()
+                                .createQuery(hql + " where jvmId = ?1", Object[].class)
+                                .setParameter(1, jvmId);
+        Object[] row = query.getSingleResult();
+        return new Usage(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    public static List<String> jvmIdsExceeding(long count, long size) {
+        return getEntityManager()
+                .createQuery(
+                        "select jvmId from ArchiveEntry group by jvmId"
+                                + " having count(*) > ?1 or sum(size) > ?2",
+                        String.class)
+                .setParameter(1, count)
+                .setParameter(2, size)
+                .getResultList();
+    }
+
+    public record Usage(long count, long size) {}
+
+    // a chunk's byte range within the archive, its time span, and the event types recorded in it
+    public record Chunk(
+            long offset, long size, long startNanos, long durationNanos, List<String> eventTypes) {}
+}
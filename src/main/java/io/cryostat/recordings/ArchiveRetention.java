@@ -0,0 +1,172 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.recordings.ArchiveEntry.Usage;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+// Enforces the archive retention policies in the background, using the archive index rather than
+// storage listings to find what to delete. Archives are removed oldest first in batches, so a
+// large backlog is worked through over several runs without holding up requests.
+@ApplicationScoped
+public class ArchiveRetention {
+
+    @Inject RecordingHelper recordingHelper;
+    @Inject Logger logger;
+
+    @ConfigProperty(name = ConfigProperties.ARCHIVES_RETENTION_MAX_AGE)
+    Duration maxAge;
+
+    @ConfigProperty(name = ConfigProperties.ARCHIVES_RETENTION_MAX_FILES_PER_JVM)
+    long maxFilesPerJvm;
+
+    @ConfigProperty(name = ConfigProperties.ARCHIVES_RETENTION_MAX_SIZE_PER_JVM)
+    MemorySize maxSizePerJvm;
+
+    @ConfigProperty(name = ConfigProperties.ARCHIVES_RETENTION_MAX_FILES)
+    long maxFiles;
+
+    @ConfigProperty(name = ConfigProperties.ARCHIVES_RETENTION_MAX_SIZE)
+    MemorySize maxSize;
+
+    // Apply a file count limit requested by a client, such as an agent pushing with maxFiles, to
+    // the JVM's archives straight away. The archive which came with the request is already
+    // stored, so a failure to apply the limit is only logged. The next request applies it again.
+    public void limitFiles(String jvmId, int maxFiles) {
+        try {
+            int deleted = trim(jvmId, maxFiles, 0);
+            if (deleted > 0) {
+                logger.infov("Removed {0} archived recordings of {1}", deleted, jvmId);
+            }
+        } catch (Exception e) {
+            logger.errorv(e, "Failed to limit archived recordings of {0}", jvmId);
+        }
+    }
+
+    @Scheduled(
+            every = "${" + ConfigProperties.ARCHIVES_RETENTION_PERIOD + "}",
+            delayed = "${" + ConfigProperties.ARCHIVES_RETENTION_PERIOD + "}",
+            concurrentExecution = ConcurrentExecution.SKIP)
+    void enforce() {
+        int deleted = 0;
+        try {
+            if (!maxAge.isZero()) {
+                Instant cutoff = Instant.now().minus(maxAge);
+                deleted += deleteAll(() -> listArchivedBefore(cutoff));
+            }
+
+            long perJvmFiles = limitOrMax(maxFilesPerJvm);
+            long perJvmSize = limitOrMax(maxSizePerJvm.asLongValue());
+            if (perJvmFiles < Long.MAX_VALUE || perJvmSize < Long.MAX_VALUE) {
+                List<String> jvmIds =
+                        QuarkusTransaction.requiringNew()
+                                .call(() -> ArchiveEntry.jvmIdsExceeding(perJvmFiles, perJvmSize));
+                for (String jvmId : jvmIds) {
+                    deleted += trim(jvmId, maxFilesPerJvm, maxSizePerJvm.asLongValue());
+                }
+            }
+
+            deleted += trim(null, maxFiles, maxSize.asLongValue());
+        } catch (Exception e) {
+            logger.error("Failed to enforce archive retention", e);
+        }
+        if (deleted > 0) {
+            logger.infov("Retention removed {0} archived recordings", deleted);
+        }
+    }
+
+    // Delete the oldest archives of the JVM, or of all JVMs if jvmId is null, until no more than
+    // maxCount remain and they total no more than maxBytes. Non-positive limits are ignored.
+    int trim(String jvmId, long maxCount, long maxBytes) {
+        if (maxCount <= 0 && maxBytes <= 0) {
+            return 0;
+        }
+        int deleted = 0;
+        while (true) {
+            Usage usage = usage(jvmId);
+            long excessCount = maxCount > 0 ? usage.count() - maxCount : 0;
+            long excessBytes = maxBytes > 0 ? usage.size() - maxBytes : 0;
+            if (excessCount <= 0 && excessBytes <= 0) {
+                return deleted;
+            }
+            List<ArchiveEntry> oldest = listOldestFirst(jvmId);
+            List<ArchiveEntry> batch = new ArrayList<>();
+            for (ArchiveEntry entry : oldest) {
+                if (excessCount <= 0 && excessBytes <= 0) {
+                    break;
+                }
+                batch.add(entry);
+                excessCount--;
+                excessBytes -= entry.size;
+            }
+            if (batch.isEmpty()) {
+                return deleted;
+            }
+            if (!recordingHelper.deleteArchives(batch)) {
+                // the failed entries would be selected again, so leave them for the next run
+                return deleted;
+            }
+            deleted += batch.size();
+        }
+    }
+
+    int deleteAll(Supplier<List<ArchiveEntry>> batches) {
+        int deleted = 0;
+        while (true) {
+            List<ArchiveEntry> batch = batches.get();
+            if (batch.isEmpty() || !recordingHelper.deleteArchives(batch)) {
+                return deleted;
+            }
+            deleted += batch.size();
+        }
+    }
+
+    Usage usage(String jvmId) {
+        return QuarkusTransaction.requiringNew().call(() -> ArchiveEntry.usage(jvmId));
+    }
+
+    List<ArchiveEntry> listOldestFirst(String jvmId) {
+        return QuarkusTransaction.requiringNew()
+                .call(() -> ArchiveEntry.listOldestFirst(jvmId, RecordingHelper.DELETE_BATCH_SIZE));
+    }
+
+    List<ArchiveEntry> listArchivedBefore(Instant cutoff) {
+        return QuarkusTransaction.requiringNew()
+                .call(
+                        () ->
+                                ArchiveEntry.listArchivedBefore(
+                                        cutoff, RecordingHelper.DELETE_BATCH_SIZE));
+    }
+
+    private static long limitOrMax(long limit) {
+        return limit > 0 ? limit : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.util.ThrottledInputStream;
+import io.cryostat.util.TokenBucket;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+// Admission control for archiving, which reads a whole recording from a target and writes it to
+// storage. Limits how many archives run at once, both overall and per target, and how fast they
+// may read from targets and write to storage in total. Interactive requests are admitted ahead of
+// background ones such as automated rules.
+@ApplicationScoped
+public class ArchiveScheduler {
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND,
+    }
+
+    private final int maxConcurrent;
+    private final int maxConcurrentPerTarget;
+    private final TokenBucket targetReads;
+    private final TokenBucket storageWrites;
+
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final Map<Long, Integer> runningPerTarget = new HashMap<>();
+    private int running;
+    private long sequence;
+
+    @Inject
+    ArchiveScheduler(
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_MAX_CONCURRENT) int maxConcurrent,
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_MAX_CONCURRENT_PER_TARGET)
+                    int maxConcurrentPerTarget,
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_TARGET_READ_RATE)
+                    MemorySize targetReadRate,
+            @ConfigProperty(name = ConfigProperties.ARCHIVES_STORAGE_WRITE_RATE)
+                    MemorySize storageWriteRate) {
+        this(
+                maxConcurrent,
+                maxConcurrentPerTarget,
+                targetReadRate.asLongValue(),
+                storageWriteRate.asLongValue());
+    }
+
+    ArchiveScheduler(
+            int maxConcurrent,
+            int maxConcurrentPerTarget,
+            long targetReadRate,
+            long storageWriteRate) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxConcurrentPerTarget = maxConcurrentPerTarget;
+        this.targetReads = new TokenBucket(targetReadRate);
+        this.storageWrites = new TokenBucket(storageWriteRate);
+    }
+
+    // Wait until an archive of the given target may start. The returned permit must be closed
+    // once the archive is complete.
+    public Permit acquire(long targetId, Priority priority) throws InterruptedException {
+        Ticket ticket;
+        synchronized (this) {
+            ticket = new Ticket(targetId, priority, sequence++);
+            waiting.add(ticket);
+            try {
+                while (!admissible(ticket)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(ticket);
+                notifyAll();
+                throw e;
+            }
+            waiting.remove(ticket);
+            running++;
+            runningPerTarget.merge(targetId, 1, Integer::sum);
+        }
+        return new Permit(targetId);
+    }
+
+    public InputStream throttleTargetRead(InputStream stream) {
+        return targetReads.isLimited() ? new ThrottledInputStream(stream, targetReads) : stream;
+    }
+
+    public void throttleStorageWrite(long bytes) throws InterruptedException {
+        storageWrites.acquire(bytes);
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    synchronized int waiting() {
+        return waiting.size();
+    }
+
+    // A ticket may go ahead if there is capacity for it, and no ticket ahead of it in the queue
+    // could use that capacity instead. Tickets which are only held back by their own target's
+    // limit do not hold up tickets for other targets.
+    private boolean admissible(Ticket ticket) {
+        if (!hasCapacity(ticket)) {
+            return false;
+        }
+        for (Ticket other : waiting) {
+            if (other.compareTo(ticket) < 0 && hasCapacity(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasCapacity(Ticket ticket) {
+        if (maxConcurrent > 0 && running >= maxConcurrent) {
+            return false;
+        }
+        return maxConcurrentPerTarget <= 0
+                || runningPerTarget.getOrDefault(ticket.targetId(), 0) < maxConcurrentPerTarget;
+    }
+
+    private synchronized void release(long targetId) {
+        running--;
+        runningPerTarget.computeIfPresent(targetId, (k, v) -> v > 1 ? v - 1 : null);
+        notifyAll();
+    }
+
+    public class Permit implements AutoCloseable {
+        private final long targetId;
+        private boolean closed;
+
+        private Permit(long targetId) {
+            this.targetId = targetId;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(targetId);
+        }
+    }
+
+    private record Ticket(long targetId, Priority priority, long sequence)
+            implements Comparable<Ticket> {
+        @Override
+        public int compareTo(Ticket o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+// A multipart upload of an archive which has not yet completed, along with the parts committed so
+// far, so that a later attempt to archive the same source can carry on from where it stopped
+@Entity
+public class ArchiveUpload extends PanacheEntity {
+
+    @Column(unique = true)
+    @NotBlank
+    public String source;
+
+    @NotBlank public String bucket;
+    @NotBlank public String objectKey;
+    @NotBlank public String uploadId;
+
+    // the number of bytes of the source which have been uploaded, and their CRC32
+    @PositiveOrZero public long offset;
+    public long checksum;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @NotNull
+    public List<Part> parts = new ArrayList<>();
+
+    @NotNull public Instant created;
+
+    public String filename() {
+        return objectKey.substring(objectKey.indexOf('/') + 1);
+    }
+
+    static Optional<ArchiveUpload> getBySource(String source) {
+        return find("source", source).singleResultOptional();
+    }
+
+    public record Part(int partNumber, String eTag) {}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+// Passes through only the complete JFR chunks of a recording stream which started after a given
+// point in time. A JFR file is a concatenation of self-contained chunks, so the output is itself a
+// valid recording (or empty). A chunk whose header has not yet been finalized, such as the one a
+// running recording is currently writing, ends the stream.
+public class JfrChunkFilterInputStream extends FilterInputStream {
+
+    static final int HEADER_SIZE = 68;
+    private static final byte[] MAGIC = {'F', 'L', 'R', 0};
+
+    private final long afterStartNanos;
+    private final byte[] header = new byte[HEADER_SIZE];
+    private int headerPos = HEADER_SIZE;
+    private long remaining;
+    private boolean done;
+    private int chunks;
+    private long lastChunkStartNanos;
+    private long lastChunkEndNanos;
+
+    public JfrChunkFilterInputStream(InputStream in, long afterStartNanos) {
+        super(in);
+        this.afterStartNanos = afterStartNanos;
+        this.lastChunkStartNanos = afterStartNanos;
+    }
+
+    public int chunks() {
+        return chunks;
+    }
+
+    public long lastChunkStartNanos() {
+        return lastChunkStartNanos;
+    }
+
+    public long lastChunkEndNanos() {
+        return lastChunkEndNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        while (!done && headerPos >= HEADER_SIZE && remaining == 0) {
+            nextChunk();
+        }
+        if (done) {
+            return -1;
+        }
+        if (headerPos < HEADER_SIZE) {
+            int n = Math.min(len, HEADER_SIZE - headerPos);
+            System.arraycopy(header, headerPos, b, off, n);
+            headerPos += n;
+            return n;
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new IOException("Truncated JFR chunk");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] b = new byte[(int) Math.min(8192, Math.max(n, 1))];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(b, 0, (int) Math.min(b.length, n - skipped));
+            if (r < 0) {
+                break;
+            }
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return headerPos < HEADER_SIZE ? HEADER_SIZE - headerPos : 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void nextChunk() throws IOException {
+        int n = in.readNBytes(header, 0, HEADER_SIZE);
+        if (n < HEADER_SIZE) {
+            // end of recording, or a partially written chunk at the end of it
+            done = true;
+            return;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                throw new IOException("Invalid JFR chunk header");
+            }
+        }
+        ByteBuffer buf = ByteBuffer.wrap(header);
+        long size = buf.getLong(8);
+        long startNanos = buf.getLong(32);
+        long durationNanos = buf.getLong(40);
+        if (size < HEADER_SIZE || durationNanos <= 0) {
+            // the chunk is still being written and will be picked up once it is finished
+            done = true;
+            return;
+        }
+        long body = size - HEADER_SIZE;
+        if (startNanos <= afterStartNanos) {
+            in.skipNBytes(body);
+            return;
+        }
+        chunks++;
+        lastChunkStartNanos = startNanos;
+        lastChunkEndNanos = startNanos + durationNanos;
+        headerPos = 0;
+        remaining = body;
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.cryostat.recordings.ArchiveEntry.Chunk;
+
+// Cuts a time window and a set of event types out of a JFR recording. Chunks which do not overlap
+// the window or hold none of the event types are left out entirely. The remaining chunks are
+// copied whole when every event in them is wanted, and are otherwise rewritten record by record:
+// metadata and constant pool records are kept as they are, unwanted events are dropped, and the
+// offsets in the chunk header and between constant pool records are adjusted to match. Constant
+// pools are not pruned, so they may still describe stack traces and threads no longer referred to.
+public class JfrSlicer {
+
+    private static final int HEADER_SIZE = JfrChunkFilterInputStream.HEADER_SIZE;
+    private static final byte[] MAGIC = {'F', 'L', 'R', 0};
+    private static final long METADATA_TYPE = 0;
+    private static final long CHECKPOINT_TYPE = 1;
+    private static final int COMPRESSED_INTS = 1;
+
+    private final long startNanos;
+    private final long endNanos;
+    private final List<String> eventTypes;
+
+    // The window is inclusive and compared against event start times. Event types are matched by
+    // name, or by prefix if they end with '*'. An empty collection selects all event types.
+    public JfrSlicer(long startNanos, long endNanos, Collection<String> eventTypes) {
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.eventTypes = List.copyOf(eventTypes);
+    }
+
+    public boolean selects(Chunk chunk) {
+        if (!overlaps(chunk)) {
+            return false;
+        }
+        return eventTypes.isEmpty() || chunk.eventTypes().stream().anyMatch(this::selects);
+    }
+
+    public boolean selects(String eventType) {
+        if (eventTypes.isEmpty()) {
+            return true;
+        }
+        for (String t : eventTypes) {
+            if (t.endsWith("*")
+                    ? eventType.startsWith(t.substring(0, t.length() - 1))
+                    : eventType.equals(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Chunk> select(List<Chunk> chunks) {
+        return chunks.stream().filter(this::selects).toList();
+    }
+
+    // Write the selected part of each given chunk of the recording to the output, reading only
+    // those chunks from the stream. The chunks must be in recording order.
+    public void slice(InputStream in, List<Chunk> chunks, OutputStream out) throws IOException {
+        long pos = 0;
+        for (Chunk chunk : chunks) {
+            in.skipNBytes(chunk.offset() - pos);
+            byte[] bytes = in.readNBytes(Math.toIntExact(chunk.size()));
+            if (bytes.length < chunk.size()) {
+                throw new IOException("Truncated JFR chunk");
+            }
+            out.write(slice(bytes));
+            pos = chunk.offset() + chunk.size();
+        }
+    }
+
+    // The chunk with only the selected events, or the chunk itself if they all are
+    public byte[] slice(byte[] chunk) throws IOException {
+        ByteBuffer header = header(chunk);
+        long chunkStart = header.getLong(32);
+        long chunkEnd = chunkStart + header.getLong(40);
+        boolean window = chunkStart < startNanos || chunkEnd > endNanos;
+        if (eventTypes.isEmpty() && !window) {
+            return chunk;
+        }
+        if (!compressed(header)) {
+            // not written by HotSpot, so not worth rewriting. The whole chunk is still valid.
+            return chunk;
+        }
+        long startTicks = header.getLong(48);
+        double nanosPerTick = 1e9 / header.getLong(56);
+        Map<Long, String> types = types(chunk, header);
+
+        byte[] out = new byte[chunk.length];
+        System.arraycopy(chunk, 0, out, 0, HEADER_SIZE);
+        int length = HEADER_SIZE;
+        // the new offsets of the records which other records or the header refer to
+        Map<Integer, Integer> moved = new HashMap<>();
+        List<Integer> checkpoints = new ArrayList<>();
+        Cursor cursor = new Cursor(chunk, HEADER_SIZE, true);
+        while (cursor.pos < chunk.length) {
+            int offset = cursor.pos;
+            int size = cursor.i32();
+            long type = cursor.i64();
+            boolean keep;
+            if (type == METADATA_TYPE || type == CHECKPOINT_TYPE) {
+                keep = true;
+                moved.put(offset, length);
+                if (type == CHECKPOINT_TYPE) {
+                    checkpoints.add(offset);
+                }
+            } else {
+                long nanos = chunkStart + (long) ((cursor.i64() - startTicks) * nanosPerTick);
+                keep =
+                        nanos >= startNanos
+                                && nanos <= endNanos
+                                && selects(types.getOrDefault(type, ""));
+            }
+            if (size <= 0 || offset + size > chunk.length) {
+                throw new IOException("Invalid JFR record");
+            }
+            if (keep) {
+                System.arraycopy(chunk, offset, out, length, size);
+                length += size;
+            }
+            cursor.pos = offset + size;
+        }
+
+        // constant pool records are chained from the last one back to the first by their
+        // distance to the previous one, which is stored in a field after the record header
+        for (int offset : checkpoints) {
+            Cursor field = new Cursor(chunk, offset, true);
+            field.i32(); // size
+            field.i64(); // type
+            field.i64(); // start time
+            field.i64(); // duration
+            int deltaPos = field.pos;
+            long delta = field.i64();
+            if (delta == 0) {
+                continue;
+            }
+            Integer previous = moved.get(Math.toIntExact(offset + delta));
+            if (previous == null) {
+                throw new IOException("Invalid JFR constant pool offset");
+            }
+            int newOffset = moved.get(offset);
+            Cursor.writeVarint(
+                    out, newOffset + deltaPos - offset, field.pos - deltaPos, previous - newOffset);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(out);
+        buf.putLong(8, length);
+        buf.putLong(16, relocated(moved, header.getLong(16)));
+        buf.putLong(24, relocated(moved, header.getLong(24)));
+        byte[] sliced = new byte[length];
+        System.arraycopy(out, 0, sliced, 0, length);
+        return sliced;
+    }
+
+    private boolean overlaps(Chunk chunk) {
+        return chunk.startNanos() <= endNanos
+                && chunk.startNanos() + chunk.durationNanos() >= startNanos;
+    }
+
+    private static long relocated(Map<Integer, Integer> moved, long offset) throws IOException {
+        Integer relocated = moved.get(Math.toIntExact(offset));
+        if (relocated == null) {
+            throw new IOException("Invalid JFR chunk header offset");
+        }
+        return relocated;
+    }
+
+    // Describe each complete chunk of the recording, reading it through once. A chunk which is
+    // still being written ends the recording, as it does for JfrChunkFilterInputStream.
+    public static List<Chunk> index(InputStream in) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long offset = 0;
+        byte[] chunk;
+        while ((chunk = readChunk(in)) != null) {
+            chunks.add(index(chunk, offset));
+            offset += chunk.length;
+        }
+        return chunks;
+    }
+
+    static Chunk index(byte[] chunk, long offset) throws IOException {
+        ByteBuffer header = header(chunk);
+        Map<Long, String> types = types(chunk, header);
+        Set<String> present = new TreeSet<>();
+        Cursor cursor = new Cursor(chunk, HEADER_SIZE, compressed(header));
+        while (cursor.pos < chunk.length) {
+            int start = cursor.pos;
+            int size = cursor.i32();
+            long type = cursor.i64();
+            if (size <= 0 || start + size > chunk.length) {
+                throw new IOException("Invalid JFR record");
+            }
+            if (type != METADATA_TYPE && type != CHECKPOINT_TYPE && types.containsKey(type)) {
+                present.add(types.get(type));
+            }
+            cursor.pos = start + size;
+        }
+        return new Chunk(
+                offset, chunk.length, header.getLong(32), header.getLong(40), List.copyOf(present));
+    }
+
+    // The next complete chunk of the recording, or null if there are no more
+    static byte[] readChunk(InputStream in) throws IOException {
+        byte[] head = in.readNBytes(HEADER_SIZE);
+        if (head.length < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buf = header(head);
+        long size = buf.getLong(8);
+        if (size < HEADER_SIZE || buf.getLong(40) <= 0) {
+            return null;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("JFR chunk too large");
+        }
+        byte[] chunk = new byte[(int) size];
+        System.arraycopy(head, 0, chunk, 0, HEADER_SIZE);
+        int n = in.readNBytes(chunk, HEADER_SIZE, chunk.length - HEADER_SIZE);
+        if (n < chunk.length - HEADER_SIZE) {
+            return null;
+        }
+        return chunk;
+    }
+
+    private static ByteBuffer header(byte[] chunk) throws IOException {
+        if (chunk.length < HEADER_SIZE) {
+            throw new IOException("Truncated JFR chunk");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (chunk[i] != MAGIC[i]) {
+                throw new IOException("Invalid JFR chunk header");
+            }
+        }
+        return ByteBuffer.wrap(chunk, 0, HEADER_SIZE);
+    }
+
+    // The names of the classes declared by the chunk's metadata record, by type ID
+    private static Map<Long, String> types(byte[] chunk, ByteBuffer header) throws IOException {
+        Cursor cursor = new Cursor(chunk, Math.toIntExact(header.getLong(24)), compressed(header));
+        cursor.i32(); // size
+        if (cursor.i64() != METADATA_TYPE) {
+            throw new IOException("Invalid JFR metadata offset");
+        }
+        cursor.i64(); // start time
+        cursor.i64(); // duration
+        cursor.i64(); // metadata ID
+        String[] strings = new String[cursor.i32()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = cursor.string();
+        }
+        Map<Long, String> types = new HashMap<>();
+        element(cursor, strings, types);
+        return types;
+    }
+
+    private static void element(Cursor cursor, String[] strings, Map<Long, String> types)
+            throws IOException {
+        String name = strings[cursor.i32()];
+        int attributes = cursor.i32();
+        String typeName = null;
+        String typeId = null;
+        for (int i = 0; i < attributes; i++) {
+            String key = strings[cursor.i32()];
+            String value = strings[cursor.i32()];
+            if ("name".equals(key)) {
+                typeName = value;
+            } else if ("id".equals(key)) {
+                typeId = value;
+            }
+        }
+        if ("class".equals(name) && typeName != null && typeId != null) {
+            try {
+                types.put(Long.parseLong(typeId), typeName);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid JFR type ID", e);
+            }
+        }
+        int children = cursor.i32();
+        for (int i = 0; i < children; i++) {
+            element(cursor, strings, types);
+        }
+    }
+
+    private static boolean compressed(ByteBuffer header) {
+        return (header.getInt(64) & COMPRESSED_INTS) != 0;
+    }
+
+    // Reads the integers of a chunk, which are either all varints or all fixed width big-endian
+    private static class Cursor {
+        private final byte[] data;
+        private final boolean compressed;
+        private int pos;
+
+        Cursor(byte[] data, int pos, boolean compressed) {
+            this.data = data;
+            this.pos = pos;
+            this.compressed = compressed;
+        }
+
+        int i32() throws IOException {
+            long value = compressed ? varint() : u4();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Invalid JFR integer");
+            }
+            return (int) value;
+        }
+
+        long i64() throws IOException {
+            return compressed ? varint() : ((long) u4() << 32) | (u4() & 0xffffffffL);
+        }
+
+        char u2() throws IOException {
+            return compressed ? (char) varint() : (char) ((next() << 8) | next());
+        }
+
+        // LEB128, except that the ninth byte holds a full eight bits
+        private long varint() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                int b = next();
+                value |= (long) (b & 0x7f) << (7 * i);
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            return value | ((long) next() << 56);
+        }
+
+        private int u4() throws IOException {
+            return (next() << 24) | (next() << 16) | (next() << 8) | next();
+        }
+
+        String string() throws IOException {
+            int encoding = next();
+            switch (encoding) {
+                case 0:
+                    return null;
+                case 1:
+                    return "";
+                case 3:
+                case 5:
+                    int length = i32();
+                    if (pos + length > data.length) {
+                        throw new IOException("Invalid JFR string");
+                    }
+                    String s =
+                            new String(
+                                    data,
+                                    pos,
+                                    length,
+                                    encoding == 3
+                                            ? StandardCharsets.UTF_8
+                                            : StandardCharsets.ISO_8859_1);
+                    pos += length;
+                    return s;
+                case 4:
+                    char[] chars = new char[i32()];
+                    for (int i = 0; i < chars.length; i++) {
+                        chars[i] = u2();
+                    }
+                    return new String(chars);
+                default:
+                    throw new IOException("Unsupported JFR string encoding " + encoding);
+            }
+        }
+
+        private int next() throws IOException {
+            if (pos >= data.length) {
+                throw new IOException("Truncated JFR record");
+            }
+            return data[pos++] & 0xff;
+        }
+
+        // Overwrite a varint in place, padded to the width of the one it replaces so that the
+        // record keeps its size
+        static void writeVarint(byte[] data, int pos, int width, long value) throws IOException {
+            for (int i = 0; i < width - 1; i++) {
+                data[pos + i] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            if (width == 9) {
+                data[pos + 8] = (byte) value;
+                return;
+            }
+            if (value > 0x7f) {
+                throw new IOException("JFR offset does not fit in place");
+            }
+            data[pos + width - 1] = (byte) value;
+        }
+    }
+}
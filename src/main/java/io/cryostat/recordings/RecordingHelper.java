@@ -17,14 +17,12 @@ package io.cryostat.recordings;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -33,6 +31,7 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,14 +39,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 
 import org.openjdk.jmc.common.unit.IConstrainedMap;
 import org.openjdk.jmc.common.unit.QuantityConversionException;
@@ -68,19 +73,29 @@ import io.cryostat.events.S3TemplateService;
 import io.cryostat.events.TargetTemplateService;
 import io.cryostat.recordings.ActiveRecording.Listener.ActiveRecordingEvent;
 import io.cryostat.recordings.ActiveRecording.Listener.ArchivedRecordingEvent;
+import io.cryostat.recordings.ArchiveScheduler.Priority;
 import io.cryostat.recordings.Recordings.ArchivedRecording;
+import io.cryostat.recordings.Recordings.ArchivedRecordingsDeletion;
 import io.cryostat.recordings.Recordings.LinkedRecordingDescriptor;
 import io.cryostat.recordings.Recordings.Metadata;
+import io.cryostat.storage.Storage;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.TargetConnectionManager;
+import io.cryostat.util.ByteRange;
 import io.cryostat.util.EntityExistsException;
+import io.cryostat.util.GzipCompressingInputStream;
 import io.cryostat.util.HttpMimeType;
 import io.cryostat.ws.MessagingServer;
 import io.cryostat.ws.Notification;
 
 import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import io.vertx.ext.web.handler.HttpException;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
@@ -98,7 +113,9 @@ import jakarta.ws.rs.ServerErrorException;
 import jakarta.ws.rs.core.Response;
 import jdk.jfr.RecordingState;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.validator.routines.UrlValidator;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -113,21 +130,32 @@ import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.exception.SdkClientException;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
 import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.Tag;
 import software.amazon.awssdk.services.s3.model.Tagging;
@@ -142,7 +170,16 @@ public class RecordingHelper {
             Pattern.compile("^template=([\\w]+)(?:,type=([\\w]+))?$");
     public static final String DATASOURCE_FILENAME = "cryostat-analysis.jfr";
 
-    @Inject S3Client storage;
+    private static final int UPLOAD_PART_SIZE_MIN = 5 * 1024 * 1024;
+    static final String GZIP_ENCODING = "gzip";
+    static final int ARCHIVE_PART_SIZE = 20 * 1024 * 1024;
+    // the most keys a single DeleteObjects request accepts
+    static final int DELETE_BATCH_SIZE = 1000;
+
+    @Inject @Storage S3Client storage;
+    @Inject @Storage S3AsyncClient asyncStorage;
+    @Inject ArchiveScheduler archiveScheduler;
+    @Inject ArchiveCache archiveCache;
 
     @Inject WebClient webClient;
     @Inject FileSystem fs;
@@ -168,6 +205,24 @@ public class RecordingHelper {
     @ConfigProperty(name = ConfigProperties.AWS_OBJECT_EXPIRATION_LABELS)
     String objectExpirationLabel;
 
+    @ConfigProperty(name = ConfigProperties.STORAGE_ARCHIVES_COMPRESSION)
+    String archiveCompression;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_UPLOAD_MAX_RETRIES)
+    int uploadMaxRetries;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_UPLOAD_RETRY_BACKOFF)
+    Duration uploadRetryBackoff;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_UPLOAD_MAX_RETRY_BACKOFF)
+    Duration uploadMaxRetryBackoff;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_UPLOAD_RESUME_TTL)
+    Duration uploadResumeTtl;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_METADATA_CONCURRENCY)
+    int metadataConcurrency;
+
     @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
     Duration connectionFailedTimeout;
 
@@ -491,7 +546,11 @@ public class RecordingHelper {
                     bus.publish(event.category().category(), event.payload().recording());
                     bus.publish(
                             MessagingServer.class.getName(),
-                            new Notification(event.category().category(), event.payload()));
+                            new Notification(
+                                    event.category().category(),
+                                    event.payload(),
+                                    target.jvmId,
+                                    target.labels));
 
                     return recording;
                 });
@@ -544,15 +603,11 @@ public class RecordingHelper {
                             recording.state = RecordingState.STOPPED;
                             return recording;
                         });
-        return QuarkusTransaction.joiningExisting()
-                .call(
-                        () -> {
-                            out.persist();
-                            if (archive) {
-                                archiveRecording(out, null, null);
-                            }
-                            return Uni.createFrom().item(out);
-                        });
+        QuarkusTransaction.joiningExisting().run(out::persist);
+        if (archive) {
+            return archiveRecordingAsync(out, null, null, Priority.BACKGROUND).replaceWith(out);
+        }
+        return Uni.createFrom().item(out);
     }
 
     public Uni<ActiveRecording> stopRecording(ActiveRecording recording) throws Exception {
@@ -717,71 +772,259 @@ public class RecordingHelper {
     }
 
     public List<ArchivedRecording> listArchivedRecordings() {
-        return listArchivedRecordingObjects().stream()
-                .map(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String jvmId = parts[0];
-                            String filename = parts[1];
-                            Metadata metadata =
-                                    getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            return new ArchivedRecording(
-                                    jvmId,
-                                    filename,
-                                    downloadUrl(jvmId, filename),
-                                    reportUrl(jvmId, filename),
-                                    metadata,
-                                    item.size(),
-                                    item.lastModified().getEpochSecond());
-                        })
-                .toList();
+        return listArchivedRecordingsAsync(null).await().indefinitely();
     }
 
     public List<S3Object> listArchivedRecordingObjects(String jvmId) {
+        return listArchivedRecordingObjectsAsync(jvmId).await().indefinitely();
+    }
+
+    public List<ArchivedRecording> listArchivedRecordings(String jvmId) {
+        return listArchivedRecordingsAsync(jvmId).await().indefinitely();
+    }
+
+    public Uni<List<S3Object>> listArchivedRecordingObjectsAsync(String jvmId) {
+        return listArchivedObjectsAsync(jvmId).map(l -> l.stream().map(Pair::getKey).toList());
+    }
+
+    public Uni<List<ArchivedRecording>> listArchivedRecordingsAsync(String jvmId) {
+        return listArchivedObjectsAsync(jvmId)
+                .map(
+                        l ->
+                                l.stream()
+                                        .map(
+                                                p -> {
+                                                    S3Object item = p.getKey();
+                                                    String[] parts = item.key().strip().split("/");
+                                                    return new ArchivedRecording(
+                                                            parts[0],
+                                                            parts[1],
+                                                            downloadUrl(parts[0], parts[1]),
+                                                            reportUrl(parts[0], parts[1]),
+                                                            p.getValue(),
+                                                            item.size(),
+                                                            item.lastModified().getEpochSecond());
+                                                })
+                                        .toList());
+    }
+
+    // List the non-transient archived recordings along with their metadata. The tags of several
+    // objects are requested at once rather than one after another, but no more than the
+    // configured number, so that a large bucket does not queue more requests on the async
+    // client's connection pool than it can serve before they time out.
+    private Uni<List<Pair<S3Object, Metadata>>> listArchivedObjectsAsync(String jvmId) {
         var builder = ListObjectsV2Request.builder().bucket(archiveBucket);
         if (StringUtils.isNotBlank(jvmId)) {
             builder = builder.prefix(jvmId);
         }
-        return storage.listObjectsV2(builder.build()).contents().stream()
-                .filter(
-                        o -> {
-                            var metadata = getArchivedRecordingMetadata(o.key());
-                            var temporary = metadata.map(m -> m.expiry() != null).orElse(false);
-                            return !temporary;
-                        })
-                .toList();
-    }
-
-    public List<ArchivedRecording> listArchivedRecordings(String jvmId) {
-        return listArchivedRecordingObjects(jvmId).stream()
+        var request = builder.build();
+        return Uni.createFrom()
+                .completionStage(() -> asyncStorage.listObjectsV2(request))
+                .onItem()
+                .transformToMulti(res -> Multi.createFrom().iterable(res.contents()))
+                .onItem()
+                .transformToUni(
+                        o -> getArchivedRecordingMetadataAsync(o.key()).map(m -> Pair.of(o, m)))
+                .merge(metadataConcurrency)
+                .collect()
+                .asList()
                 .map(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String filename = parts[1];
-                            Metadata metadata =
-                                    getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            return new ArchivedRecording(
-                                    jvmId,
-                                    filename,
-                                    downloadUrl(jvmId, filename),
-                                    reportUrl(jvmId, filename),
-                                    metadata,
-                                    item.size(),
-                                    item.lastModified().getEpochSecond());
-                        })
-                .toList();
+                        l ->
+                                l.stream()
+                                        // the requests complete out of order
+                                        .sorted(Comparator.comparing(p -> p.getKey().key()))
+                                        .filter(
+                                                p ->
+                                                        p.getValue()
+                                                                .map(m -> m.expiry() == null)
+                                                                .orElse(true))
+                                        .map(
+                                                p ->
+                                                        Pair.of(
+                                                                p.getKey(),
+                                                                p.getValue()
+                                                                        .orElseGet(
+                                                                                Metadata::empty)))
+                                        .toList());
     }
 
     public List<ArchivedRecording> listArchivedRecordings(Target target) {
         return listArchivedRecordings(target.jvmId);
     }
 
+    public Uni<ArchivedRecording> archiveRecordingAsync(
+            ActiveRecording recording, String savename, Instant expiry) {
+        return archiveRecordingAsync(recording, savename, expiry, Priority.INTERACTIVE);
+    }
+
+    // Waiting for a permit and opening the recording's stream are blocking, but once they are
+    // done no thread is held while the archive is uploaded except to read each part of it.
+    // Background archives may resume an earlier attempt's interrupted upload of the same
+    // recording. If the recording has changed since then, the stream is reopened and archived
+    // afresh.
+    public Uni<ArchivedRecording> archiveRecordingAsync(
+            ActiveRecording recording, String savename, Instant expiry, Priority priority) {
+        boolean resumable = priority == Priority.BACKGROUND;
+        return Uni.createFrom()
+                .item(
+                        Unchecked.supplier(
+                                () -> archiveScheduler.acquire(recording.target.id, priority)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .flatMap(
+                        permit ->
+                                archiveActiveRecording(recording, savename, expiry, resumable)
+                                        .onFailure(RecordingHelper::isUploadSourceChanged)
+                                        .retry()
+                                        .atMost(1)
+                                        .onTermination()
+                                        .invoke(permit::close));
+    }
+
+    // Each subscription reads the recording again from the start
+    private Uni<ArchivedRecording> archiveActiveRecording(
+            ActiveRecording recording, String savename, Instant expiry, boolean resumable) {
+        return Uni.createFrom()
+                .item(Unchecked.supplier(() -> getActiveInputStream(recording)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .flatMap(
+                        stream ->
+                                archiveRecordingAsync(
+                                                recording, savename, expiry, stream, resumable)
+                                        .onTermination()
+                                        .invoke(() -> IOUtils.closeQuietly(stream)));
+    }
+
+    // The caller is responsible for holding an ArchiveScheduler permit until the Uni terminates
+    private Uni<ArchivedRecording> archiveRecordingAsync(
+            ActiveRecording recording,
+            String savename,
+            Instant expiry,
+            InputStream stream,
+            boolean resumable) {
+        // looking for an interrupted upload to resume, and indexing the archive, are blocking
+        return Uni.createFrom()
+                .item(() -> prepareArchive(recording, savename, expiry, Map.of(), resumable))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .flatMap(
+                        Unchecked.function(
+                                archive ->
+                                        uploadArchive(archive, stream, expiry)
+                                                .emitOn(Infrastructure.getDefaultWorkerPool())
+                                                .map(
+                                                        size ->
+                                                                completeArchive(
+                                                                        recording, archive, expiry,
+                                                                        size))));
+    }
+
+    // Scheduled jobs run on their own threads rather than the worker pool, so they wait for the
+    // upload. The archive is then indexed within the job's own transaction.
     public ArchivedRecording archiveRecording(
-            ActiveRecording recording, String savename, Instant expiry) throws Exception {
+            ActiveRecording recording, String savename, Instant expiry, Priority priority)
+            throws Exception {
+        boolean resumable = priority == Priority.BACKGROUND;
+        try (var permit = archiveScheduler.acquire(recording.target.id, priority)) {
+            try (var stream = getActiveInputStream(recording)) {
+                return archiveRecording(recording, savename, expiry, stream, Map.of(), resumable);
+            } catch (UploadSourceChangedException e) {
+                logger.warn(e.getMessage());
+                try (var stream = getActiveInputStream(recording)) {
+                    return archiveRecording(
+                            recording, savename, expiry, stream, Map.of(), resumable);
+                }
+            }
+        }
+    }
+
+    // The caller is responsible for holding an ArchiveScheduler permit while the stream is open.
+    // The stream must be readable again from the start by a later attempt if it is resumable.
+    public ArchivedRecording archiveRecording(
+            ActiveRecording recording,
+            String savename,
+            Instant expiry,
+            InputStream stream,
+            Map<String, String> extraLabels,
+            boolean resumable)
+            throws Exception {
+        PendingArchive archive =
+                prepareArchive(recording, savename, expiry, extraLabels, resumable);
+        long size;
+        try {
+            size = uploadArchive(archive, stream, expiry).await().indefinitely();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return completeArchive(recording, archive, expiry, size);
+    }
+
+    // Archives are likely to be viewed soon after they are made, so they are cached as they are
+    // uploaded. Transient archives expire from storage and are not cached.
+    private Uni<Long> uploadArchive(PendingArchive archive, InputStream stream, Instant expiry)
+            throws IOException {
+        InputStream data = archiveScheduler.throttleTargetRead(stream);
+        ArchiveCache.Capture capture =
+                expiry == null ? archiveCache.capture(archive.key(), data) : null;
+        return archiveUploadAsync(
+                        archive.request(),
+                        capture != null ? capture : data,
+                        ARCHIVE_PART_SIZE,
+                        archive.source())
+                // a resumed upload was created with the tags of the attempt which began it
+                .call(
+                        state ->
+                                archive.resumed()
+                                        ? tagArchive(archive)
+                                        : Uni.createFrom().voidItem())
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .onFailure()
+                .invoke(
+                        () -> {
+                            if (capture != null) {
+                                capture.discard();
+                            }
+                        })
+                .invoke(
+                        state -> {
+                            if (capture != null) {
+                                capture.commit(state.eTag);
+                            }
+                        })
+                .map(state -> state.offset);
+    }
+
+    private record PendingArchive(
+            String filename,
+            String key,
+            String source,
+            boolean resumed,
+            Metadata metadata,
+            Instant archivedTime,
+            Tagging tagging,
+            CreateMultipartUploadRequest.Builder request) {}
+
+    private Uni<Void> tagArchive(PendingArchive archive) {
+        return withUploadRetries(
+                        Uni.createFrom()
+                                .completionStage(
+                                        () ->
+                                                asyncStorage.putObjectTagging(
+                                                        PutObjectTaggingRequest.builder()
+                                                                .bucket(archiveBucket)
+                                                                .key(archive.key())
+                                                                .tagging(archive.tagging())
+                                                                .build())))
+                .replaceWithVoid();
+    }
+
+    private PendingArchive prepareArchive(
+            ActiveRecording recording,
+            String savename,
+            Instant expiry,
+            Map<String, String> extraLabels,
+            boolean resumable) {
         // AWS object key name guidelines advise characters to avoid (% so we should not pass url
         // encoded characters)
         String transformedAlias =
@@ -789,119 +1032,54 @@ public class RecordingHelper {
                         .replaceAll("[\\._/]+", "-");
         Instant now = clock.now();
         String timestamp = now.truncatedTo(ChronoUnit.SECONDS).toString().replaceAll("[-:]+", "");
+        // an interrupted upload of the same archive is resumed, keeping its original name
+        String source = resumable && expiry == null ? uploadSource(recording, extraLabels) : null;
+        Optional<ArchiveUpload> pending = pendingUpload(source);
         String filename =
-                String.format("%s_%s_%s.jfr", transformedAlias, recording.name, timestamp);
+                pending.map(ArchiveUpload::filename)
+                        .orElseGet(
+                                () ->
+                                        String.format(
+                                                "%s_%s_%s.jfr",
+                                                transformedAlias, recording.name, timestamp));
         if (StringUtils.isBlank(savename)) {
             savename = filename;
         }
-        int mib = 1024 * 1024;
         String key = archivedRecordingKey(recording.target.jvmId, filename);
-        String multipartId = null;
-        List<Pair<Integer, String>> parts = new ArrayList<>();
-        long accum = 0;
-        try (var stream = getActiveInputStream(recording);
-                var ch = Channels.newChannel(stream)) {
-            ByteBuffer buf = ByteBuffer.allocate(20 * mib);
-            CreateMultipartUploadRequest.Builder builder =
-                    CreateMultipartUploadRequest.builder()
-                            .bucket(archiveBucket)
-                            .key(key)
-                            .contentType(JFR_MIME)
-                            .contentDisposition(
-                                    String.format("attachment; filename=\"%s\"", savename))
-                            .tagging(createActiveRecordingTagging(recording, expiry));
-            if (expiry != null && expiry.isAfter(Instant.now())) {
-                builder = builder.expires(expiry);
-            }
-            CreateMultipartUploadRequest request = builder.build();
-            multipartId = storage.createMultipartUpload(request).uploadId();
-            int read = 0;
-            for (int i = 1; i <= 10_000; i++) {
-                read = ch.read(buf);
-
-                if (read == 0) {
-                    read = retryRead(ch, buf);
-                }
-                accum += read;
-                if (read == -1) {
-                    logger.tracev("Completed upload of {0} chunks ({1} bytes)", i - 1, accum + 1);
-                    logger.tracev("Key: {0}", key);
-                    break;
-                }
-
-                logger.tracev("Writing chunk {0} of {1} bytes", i, read);
-                String eTag =
-                        storage.uploadPart(
-                                        UploadPartRequest.builder()
-                                                .bucket(archiveBucket)
-                                                .key(key)
-                                                .uploadId(multipartId)
-                                                .partNumber(i)
-                                                .contentLength(Long.valueOf(read))
-                                                .build(),
-                                        RequestBody.fromByteBuffer(buf.slice(0, read)))
-                                .eTag();
-                parts.add(Pair.of(i, eTag));
-                buf.clear();
-                // S3 API limit
-                if (i == 10_000) {
-                    throw new IndexOutOfBoundsException("Exceeded S3 maximum part count");
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Could not upload recording to S3 storage", e);
-            try {
-                if (multipartId != null) {
-                    storage.abortMultipartUpload(
-                            AbortMultipartUploadRequest.builder()
-                                    .bucket(archiveBucket)
-                                    .key(key)
-                                    .uploadId(multipartId)
-                                    .build());
-                }
-            } catch (Exception e2) {
-                logger.error("Could not abort S3 multipart upload", e2);
-            }
-            throw e;
+        Metadata metadata = recording.metadata;
+        if (!extraLabels.isEmpty()) {
+            Map<String, String> labels = new HashMap<>(metadata.labels());
+            labels.putAll(extraLabels);
+            metadata = new Metadata(labels, metadata.expiry());
         }
-        try {
-            storage.completeMultipartUpload(
-                    CompleteMultipartUploadRequest.builder()
-                            .bucket(archiveBucket)
-                            .key(key)
-                            .uploadId(multipartId)
-                            .multipartUpload(
-                                    CompletedMultipartUpload.builder()
-                                            .parts(
-                                                    parts.stream()
-                                                            .map(
-                                                                    part ->
-                                                                            CompletedPart.builder()
-                                                                                    .partNumber(
-                                                                                            part
-                                                                                                    .getLeft())
-                                                                                    .eTag(
-                                                                                            part
-                                                                                                    .getRight())
-                                                                                    .build())
-                                                            .toList())
-                                            .build())
-                            .build());
-        } catch (SdkClientException e) {
-            // Amazon S3 couldn't be contacted for a response, or the client
-            // couldn't parse the response from Amazon S3.
-            throw e;
+        Tagging tagging = createActiveRecordingTagging(recording, metadata, expiry);
+        CreateMultipartUploadRequest.Builder builder =
+                CreateMultipartUploadRequest.builder()
+                        .bucket(archiveBucket)
+                        .key(key)
+                        .contentType(JFR_MIME)
+                        .contentDisposition(String.format("attachment; filename=\"%s\"", savename))
+                        .tagging(tagging);
+        if (expiry != null && expiry.isAfter(Instant.now())) {
+            builder = builder.expires(expiry);
         }
+        return new PendingArchive(
+                filename, key, source, pending.isPresent(), metadata, now, tagging, builder);
+    }
+
+    private ArchivedRecording completeArchive(
+            ActiveRecording recording, PendingArchive archive, Instant expiry, long size) {
         if (expiry == null) {
+            indexArchive(recording.target.jvmId, archive.filename(), size, archive.archivedTime());
             ArchivedRecording archivedRecording =
                     new ArchivedRecording(
                             recording.target.jvmId,
-                            filename,
-                            downloadUrl(recording.target.jvmId, filename),
-                            reportUrl(recording.target.jvmId, filename),
-                            recording.metadata,
-                            accum,
-                            now.getEpochSecond());
+                            archive.filename(),
+                            downloadUrl(recording.target.jvmId, archive.filename()),
+                            reportUrl(recording.target.jvmId, archive.filename()),
+                            archive.metadata(),
+                            size,
+                            archive.archivedTime().getEpochSecond());
 
             URI connectUrl = recording.target.connectUrl;
 
@@ -912,16 +1090,674 @@ public class RecordingHelper {
             bus.publish(event.category().category(), event.payload().recording());
             bus.publish(
                     MessagingServer.class.getName(),
-                    new Notification(event.category().category(), event.payload()));
+                    new Notification(
+                            event.category().category(),
+                            event.payload(),
+                            recording.target.jvmId,
+                            recording.target.labels));
         }
         return new ArchivedRecording(
                 recording.target.jvmId,
-                filename,
-                downloadUrl(recording.target.jvmId, filename),
-                reportUrl(recording.target.jvmId, filename),
-                recording.metadata,
-                accum,
-                now.getEpochSecond());
+                archive.filename(),
+                downloadUrl(recording.target.jvmId, archive.filename()),
+                reportUrl(recording.target.jvmId, archive.filename()),
+                archive.metadata(),
+                size,
+                archive.archivedTime().getEpochSecond());
+    }
+
+    Uni<Long> multipartUploadAsync(
+            CreateMultipartUploadRequest request, InputStream stream, int partSize) {
+        return multipartUploadAsync(request, stream, partSize, null);
+    }
+
+    // Upload the stream as a sequence of fixed-size parts, so that the source is consumed with
+    // bounded memory and never needs to be spooled to disk. Every part except the last must be at
+    // least UPLOAD_PART_SIZE_MIN bytes, so each part is filled completely regardless of how the
+    // source happens to chunk its reads. Only reading the source occupies a worker thread - the
+    // parts are sent by the async client without blocking one.
+    //
+    // If a resumeSource is given then the source can be read again from the start by a later
+    // attempt, so the parts are checkpointed as they are committed and an upload which fails is
+    // left open for that attempt to resume rather than being aborted.
+    Uni<Long> multipartUploadAsync(
+            CreateMultipartUploadRequest request,
+            InputStream stream,
+            int partSize,
+            String resumeSource) {
+        return multipartUpload(request, stream, partSize, resumeSource).map(state -> state.offset);
+    }
+
+    private Uni<UploadState> multipartUpload(
+            CreateMultipartUploadRequest request,
+            InputStream stream,
+            int partSize,
+            String resumeSource) {
+        int size = Math.max(partSize, UPLOAD_PART_SIZE_MIN);
+        return Uni.createFrom()
+                .item(Unchecked.supplier(() -> resumeUpload(resumeSource, request, stream)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .flatMap(
+                        resumed ->
+                                resumed.map(state -> Uni.createFrom().item(state))
+                                        .orElseGet(() -> createUpload(request, resumeSource)))
+                .flatMap(
+                        state ->
+                                uploadParts(request, state, stream, size)
+                                        .onFailure(
+                                                t ->
+                                                        state.checkpointId == null
+                                                                || t
+                                                                        instanceof
+                                                                        NoSuchUploadException)
+                                        .call(t -> abortUpload(request, state)))
+                .onFailure()
+                .invoke(t -> logger.error("Could not upload recording to S3 storage", t));
+    }
+
+    private Uni<UploadState> createUpload(
+            CreateMultipartUploadRequest request, String resumeSource) {
+        return withUploadRetries(
+                        Uni.createFrom()
+                                .completionStage(() -> asyncStorage.createMultipartUpload(request)))
+                .map(CreateMultipartUploadResponse::uploadId)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .map(
+                        uploadId -> {
+                            if (resumeSource == null) {
+                                return new UploadState(uploadId, null);
+                            }
+                            ArchiveUpload upload = new ArchiveUpload();
+                            upload.source = resumeSource;
+                            upload.bucket = request.bucket();
+                            upload.objectKey = request.key();
+                            upload.uploadId = uploadId;
+                            upload.created = clock.now();
+                            createCheckpoint(upload);
+                            return new UploadState(uploadId, upload.id);
+                        });
+    }
+
+    // Find the checkpoint of an earlier attempt to upload the same source and skip over the bytes
+    // it already uploaded, checking that they are the same bytes which the source provides now.
+    private Optional<UploadState> resumeUpload(
+            String resumeSource, CreateMultipartUploadRequest request, InputStream stream)
+            throws IOException {
+        Optional<ArchiveUpload> pending = pendingUpload(resumeSource);
+        if (pending.isEmpty()) {
+            return Optional.empty();
+        }
+        ArchiveUpload upload = pending.get();
+        if (!Objects.equals(upload.objectKey, request.key())) {
+            discardUpload(upload);
+            return Optional.empty();
+        }
+        UploadState state = new UploadState(upload.uploadId, upload.id);
+        byte[] buf = new byte[64 * 1024];
+        long remaining = upload.offset;
+        while (remaining > 0) {
+            int n = stream.readNBytes(buf, 0, (int) Math.min(buf.length, remaining));
+            if (n == 0) {
+                break;
+            }
+            state.crc.update(buf, 0, n);
+            remaining -= n;
+        }
+        if (remaining > 0 || state.crc.getValue() != upload.checksum) {
+            // the source has changed since it was partially uploaded, ie. a running recording
+            // has dropped its oldest chunks, and the part of it already read cannot be replayed
+            discardUpload(upload);
+            throw new UploadSourceChangedException(upload.objectKey);
+        }
+        state.offset = upload.offset;
+        upload.parts.forEach(
+                p ->
+                        state.parts.add(
+                                CompletedPart.builder()
+                                        .partNumber(p.partNumber())
+                                        .eTag(p.eTag())
+                                        .build()));
+        logger.infov(
+                "Resuming upload of {0} from part {1} ({2} bytes)",
+                upload.objectKey, state.parts.size() + 1, state.offset);
+        return Optional.of(state);
+    }
+
+    private Uni<UploadState> uploadParts(
+            CreateMultipartUploadRequest request, UploadState state, InputStream stream, int size) {
+        AtomicInteger partNumber = new AtomicInteger(state.parts.size());
+        return Multi.createBy()
+                .repeating()
+                .uni(
+                        () ->
+                                Uni.createFrom()
+                                        .item(
+                                                Unchecked.supplier(
+                                                        () -> {
+                                                            byte[] bytes = stream.readNBytes(size);
+                                                            archiveScheduler.throttleStorageWrite(
+                                                                    bytes.length);
+                                                            return bytes;
+                                                        }))
+                                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                .whilst(bytes -> bytes.length == size)
+                .map(bytes -> Pair.of(partNumber.incrementAndGet(), bytes))
+                // a source which is an exact multiple of the part size ends with an empty read
+                .filter(p -> p.getKey() == 1 || p.getValue().length > 0)
+                .onItem()
+                .transformToUniAndConcatenate(
+                        p ->
+                                uploadPartAsync(request, state.uploadId, p.getKey(), p.getValue())
+                                        .emitOn(Infrastructure.getDefaultWorkerPool())
+                                        .invoke(
+                                                part -> {
+                                                    state.commit(part, p.getValue());
+                                                    if (state.checkpointId != null) {
+                                                        updateCheckpoint(state);
+                                                    }
+                                                }))
+                .collect()
+                .last()
+                .flatMap(v -> completeMultipartUpload(request, state))
+                .invoke(eTag -> state.eTag = eTag)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .map(
+                        res -> {
+                            if (state.checkpointId != null) {
+                                deleteCheckpoint(state.checkpointId);
+                            }
+                            logger.tracev(
+                                    "Completed upload of {0} chunks ({1} bytes)",
+                                    state.parts.size(), state.offset);
+                            logger.tracev("Key: {0}", request.key());
+                            return state;
+                        });
+    }
+
+    private Uni<String> completeMultipartUpload(
+            CreateMultipartUploadRequest request, UploadState state) {
+        CompleteMultipartUploadRequest complete =
+                CompleteMultipartUploadRequest.builder()
+                        .bucket(request.bucket())
+                        .key(request.key())
+                        .uploadId(state.uploadId)
+                        .multipartUpload(
+                                CompletedMultipartUpload.builder().parts(state.parts).build())
+                        .build();
+        return withUploadRetries(
+                        Uni.createFrom()
+                                .completionStage(
+                                        () -> asyncStorage.completeMultipartUpload(complete)))
+                .map(CompleteMultipartUploadResponse::eTag);
+    }
+
+    private Uni<CompletedPart> uploadPartAsync(
+            CreateMultipartUploadRequest request, String uploadId, int partNumber, byte[] bytes) {
+        return withUploadRetries(
+                        Uni.createFrom()
+                                .completionStage(
+                                        () ->
+                                                asyncStorage.uploadPart(
+                                                        UploadPartRequest.builder()
+                                                                .bucket(request.bucket())
+                                                                .key(request.key())
+                                                                .uploadId(uploadId)
+                                                                .partNumber(partNumber)
+                                                                .contentLength(
+                                                                        Long.valueOf(bytes.length))
+                                                                .build(),
+                                                        AsyncRequestBody.fromBytes(bytes))))
+                .map(
+                        res ->
+                                CompletedPart.builder()
+                                        .partNumber(partNumber)
+                                        .eTag(res.eTag())
+                                        .build());
+    }
+
+    // Retry storage requests which failed for reasons which may well be transient, ie. network
+    // errors and server-side errors or throttling, with a bounded exponential backoff
+    private <T> Uni<T> withUploadRetries(Uni<T> uni) {
+        return uni.onFailure(
+                        t ->
+                                t instanceof SdkClientException
+                                        || (t instanceof S3Exception e
+                                                && (e.statusCode() >= 500
+                                                        || e.statusCode() == 429)))
+                .retry()
+                .withBackOff(uploadRetryBackoff, uploadMaxRetryBackoff)
+                .atMost(uploadMaxRetries);
+    }
+
+    private Uni<Void> abortMultipartUpload(String bucket, String key, String uploadId) {
+        return Uni.createFrom()
+                .completionStage(
+                        () ->
+                                asyncStorage.abortMultipartUpload(
+                                        AbortMultipartUploadRequest.builder()
+                                                .bucket(bucket)
+                                                .key(key)
+                                                .uploadId(uploadId)
+                                                .build()))
+                .onFailure()
+                .invoke(e -> logger.error("Could not abort S3 multipart upload", e))
+                .onFailure()
+                .recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    // Abort an upload which cannot be resumed, either because its source cannot be read again or
+    // because storage no longer knows of it
+    private Uni<Void> abortUpload(CreateMultipartUploadRequest request, UploadState state) {
+        return abortMultipartUpload(request.bucket(), request.key(), state.uploadId)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .invoke(
+                        () -> {
+                            if (state.checkpointId != null) {
+                                deleteCheckpoint(state.checkpointId);
+                            }
+                        });
+    }
+
+    private String uploadSource(ActiveRecording recording, Map<String, String> extraLabels) {
+        String source =
+                String.format(
+                        "%s/%d/%s", recording.target.jvmId, recording.remoteId, recording.name);
+        if (!extraLabels.isEmpty()) {
+            source += new TreeMap<>(extraLabels).toString();
+        }
+        return source;
+    }
+
+    private Optional<ArchiveUpload> pendingUpload(String resumeSource) {
+        if (resumeSource == null) {
+            return Optional.empty();
+        }
+        Optional<ArchiveUpload> pending = findCheckpoint(resumeSource);
+        if (pending.isPresent() && isStale(pending.get())) {
+            discardUpload(pending.get());
+            return Optional.empty();
+        }
+        return pending;
+    }
+
+    private boolean isStale(ArchiveUpload upload) {
+        return upload.created.plus(uploadResumeTtl).isBefore(clock.now());
+    }
+
+    private void discardUpload(ArchiveUpload upload) {
+        abortMultipartUpload(upload.bucket, upload.objectKey, upload.uploadId)
+                .await()
+                .indefinitely();
+        deleteCheckpoint(upload.id);
+    }
+
+    Optional<ArchiveUpload> findCheckpoint(String resumeSource) {
+        return QuarkusTransaction.requiringNew()
+                .call(() -> ArchiveUpload.getBySource(resumeSource));
+    }
+
+    void createCheckpoint(ArchiveUpload upload) {
+        QuarkusTransaction.requiringNew().run(upload::persist);
+    }
+
+    void updateCheckpoint(UploadState state) {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            ArchiveUpload upload = ArchiveUpload.findById(state.checkpointId);
+                            upload.parts = state.checkpointParts();
+                            upload.offset = state.offset;
+                            upload.checksum = state.crc.getValue();
+                        });
+    }
+
+    void deleteCheckpoint(long id) {
+        QuarkusTransaction.requiringNew().run(() -> ArchiveUpload.deleteById(id));
+    }
+
+    // Interrupted uploads which are never resumed would otherwise hold on to their parts in
+    // storage indefinitely
+    @Scheduled(
+            every = "${" + ConfigProperties.STORAGE_UPLOAD_RESUME_TTL + "}",
+            delayed = "${" + ConfigProperties.STORAGE_UPLOAD_RESUME_TTL + "}",
+            concurrentExecution = ConcurrentExecution.SKIP)
+    void discardStaleUploads() {
+        List<ArchiveUpload> uploads =
+                QuarkusTransaction.requiringNew()
+                        .call(() -> ArchiveUpload.<ArchiveUpload>listAll());
+        uploads.stream()
+                .filter(this::isStale)
+                .forEach(
+                        upload -> {
+                            logger.infov("Aborting stale upload of {0}", upload.objectKey);
+                            discardUpload(upload);
+                        });
+    }
+
+    static class UploadState {
+        final String uploadId;
+        final Long checkpointId;
+        final List<CompletedPart> parts = new ArrayList<>();
+        final CRC32 crc = new CRC32();
+        long offset;
+        // of the completed object
+        String eTag;
+
+        UploadState(String uploadId, Long checkpointId) {
+            this.uploadId = uploadId;
+            this.checkpointId = checkpointId;
+        }
+
+        void commit(CompletedPart part, byte[] bytes) {
+            parts.add(part);
+            crc.update(bytes);
+            offset += bytes.length;
+        }
+
+        List<ArchiveUpload.Part> checkpointParts() {
+            return parts.stream()
+                    .map(p -> new ArchiveUpload.Part(p.partNumber(), p.eTag()))
+                    .toList();
+        }
+    }
+
+    public Uni<Long> uploadArchivedRecordingAsync(
+            String jvmId, String filename, InputStream stream, Tagging tagging) {
+        CreateMultipartUploadRequest.Builder builder =
+                CreateMultipartUploadRequest.builder()
+                        .bucket(archiveBucket)
+                        .key(archivedRecordingKey(jvmId, filename))
+                        .contentType(JFR_MIME);
+        if (tagging != null) {
+            builder = builder.tagging(tagging);
+        }
+        return archiveUploadAsync(builder, stream, UPLOAD_PART_SIZE_MIN, null)
+                .map(state -> state.offset);
+    }
+
+    // Compress the recording on its way into storage if so configured. The encoding is recorded
+    // as the object's Content-Encoding so that reads know to undo it, and so that it can be served
+    // as-is to clients which accept it. Any cached copy of an archive previously stored under the
+    // same key is invalidated once the upload completes.
+    private Uni<UploadState> archiveUploadAsync(
+            CreateMultipartUploadRequest.Builder builder,
+            InputStream stream,
+            int partSize,
+            String resumeSource) {
+        String key = builder.build().key();
+        if (!GZIP_ENCODING.equalsIgnoreCase(archiveCompression)) {
+            return multipartUpload(builder.build(), stream, partSize, resumeSource)
+                    .invoke(() -> archiveCache.invalidate(key));
+        }
+        return Uni.createFrom()
+                .item(Unchecked.supplier(() -> new GzipCompressingInputStream(stream)))
+                .flatMap(
+                        compressed ->
+                                multipartUpload(
+                                                builder.contentEncoding(GZIP_ENCODING).build(),
+                                                compressed,
+                                                partSize,
+                                                resumeSource)
+                                        .onTermination()
+                                        .invoke(() -> IOUtils.closeQuietly(compressed)))
+                .invoke(() -> archiveCache.invalidate(key));
+    }
+
+    public void indexArchive(String jvmId, String filename, long size, Instant archivedTime) {
+        QuarkusTransaction.joiningExisting()
+                .run(
+                        () -> {
+                            Optional<ArchiveEntry> existing =
+                                    ArchiveEntry.getEntry(jvmId, filename);
+                            ArchiveEntry entry =
+                                    existing.orElseGet(
+                                            () ->
+                                                    ArchiveEntry.of(
+                                                            jvmId, filename, size, archivedTime));
+                            entry.size = size;
+                            entry.archivedTime = archivedTime;
+                            // the chunks of a replaced archive are indexed again when needed
+                            entry.chunks = null;
+                            entry.persist();
+                            if (existing.isPresent()) {
+                                // an overwritten archive may have been the oldest or newest
+                                ArchiveAggregate.recompute(jvmId);
+                            } else {
+                                ArchiveAggregate.added(jvmId, size, archivedTime);
+                            }
+                        });
+    }
+
+    public void unindexArchive(String jvmId, String filename) {
+        QuarkusTransaction.joiningExisting()
+                .run(
+                        () ->
+                                ArchiveEntry.getEntry(jvmId, filename)
+                                        .ifPresent(
+                                                entry -> {
+                                                    entry.delete();
+                                                    ArchiveAggregate.removed(
+                                                            jvmId, entry.size, entry.archivedTime);
+                                                }));
+    }
+
+    // Populate the archive index from storage the first time it is used, so that archives which
+    // were created before the index existed are still subject to retention
+    public void reindexArchives() {
+        if (QuarkusTransaction.requiringNew().call(() -> ArchiveEntry.count() > 0)) {
+            // the index may predate the aggregates
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () -> {
+                                if (ArchiveAggregate.count() == 0) {
+                                    ArchiveAggregate.rebuild();
+                                }
+                            });
+            return;
+        }
+        var objs = listArchivedRecordingObjects();
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () ->
+                                objs.forEach(
+                                        o -> {
+                                            String[] parts = o.key().strip().split("/");
+                                            if (parts.length != 2) {
+                                                return;
+                                            }
+                                            ArchiveEntry.of(
+                                                            parts[0],
+                                                            parts[1],
+                                                            o.size(),
+                                                            o.lastModified())
+                                                    .persist();
+                                        }));
+        QuarkusTransaction.requiringNew().run(ArchiveAggregate::rebuild);
+        logger.infov("Indexed {0} existing archived recordings", objs.size());
+    }
+
+    // The aggregates are kept up to date incrementally, so anything which changes the index
+    // without going through indexArchive or unindexArchive would leave them wrong for good. They
+    // are recalculated from the index now and then, one JVM at a time to keep the locks short.
+    @Scheduled(
+            every = "${" + ConfigProperties.ARCHIVES_AGGREGATES_RECONCILE_PERIOD + "}",
+            delayed = "${" + ConfigProperties.ARCHIVES_AGGREGATES_RECONCILE_PERIOD + "}",
+            concurrentExecution = ConcurrentExecution.SKIP)
+    void reconcileArchiveAggregates() {
+        Set<String> jvmIds = QuarkusTransaction.requiringNew().call(ArchiveAggregate::jvmIds);
+        for (String jvmId : jvmIds) {
+            try {
+                QuarkusTransaction.requiringNew().run(() -> ArchiveAggregate.recompute(jvmId));
+            } catch (Exception e) {
+                logger.errorv(e, "Failed to reconcile archive totals of {0}", jvmId);
+            }
+        }
+    }
+
+    // The chunk index of an archive, built by reading the archive through once and kept with its
+    // index entry. Transient archives have no entry, so their index is built each time.
+    public List<ArchiveEntry.Chunk> getChunkIndex(String jvmId, String filename)
+            throws IOException {
+        Optional<ArchiveEntry> entry =
+                QuarkusTransaction.requiringNew()
+                        .call(() -> ArchiveEntry.getEntry(jvmId, filename));
+        if (entry.isPresent() && entry.get().chunks != null) {
+            return entry.get().chunks;
+        }
+        List<ArchiveEntry.Chunk> chunks;
+        try (InputStream stream = getArchivedRecordingStream(encodedKey(jvmId, filename))) {
+            chunks = JfrSlicer.index(stream);
+        }
+        if (entry.isPresent()) {
+            Instant archivedTime = entry.get().archivedTime;
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () ->
+                                    ArchiveEntry.getEntry(jvmId, filename)
+                                            // unless it was replaced while being read
+                                            .filter(e -> e.archivedTime.equals(archivedTime))
+                                            .ifPresent(
+                                                    e -> {
+                                                        e.chunks = chunks;
+                                                        e.persist();
+                                                    }));
+        }
+        return chunks;
+    }
+
+    // Write the slice of an archive made from the given chunks of it. Chunks of an archive stored
+    // uncompressed are fetched individually, so that unrelated chunks are not transferred.
+    public void sliceArchivedRecording(
+            String jvmId,
+            String filename,
+            List<ArchiveEntry.Chunk> chunks,
+            JfrSlicer slicer,
+            OutputStream out)
+            throws IOException {
+        String key = archivedRecordingKey(jvmId, filename);
+        Optional<InputStream> cached = archiveCache.open(key);
+        if (cached.isPresent()) {
+            try (InputStream stream = cached.get()) {
+                slicer.slice(stream, chunks, out);
+            }
+            return;
+        }
+        HeadObjectResponse head =
+                storage.headObject(
+                        HeadObjectRequest.builder().bucket(archiveBucket).key(key).build());
+        if (GZIP_ENCODING.equalsIgnoreCase(head.contentEncoding())) {
+            // a compressed archive can only be decoded from its start
+            try (InputStream stream = getArchivedRecordingStream(encodedKey(jvmId, filename))) {
+                slicer.slice(stream, chunks, out);
+            }
+            return;
+        }
+        for (ArchiveEntry.Chunk chunk : chunks) {
+            ByteRange range = new ByteRange(chunk.offset(), chunk.offset() + chunk.size() - 1);
+            try (var object =
+                    storage.getObject(
+                            GetObjectRequest.builder()
+                                    .bucket(archiveBucket)
+                                    .key(key)
+                                    .range(range.rangeHeader())
+                                    .ifMatch(head.eTag())
+                                    .build())) {
+                byte[] bytes = object.readAllBytes();
+                if (bytes.length != chunk.size()) {
+                    throw new IOException("Truncated JFR chunk");
+                }
+                out.write(slicer.slice(bytes));
+            }
+        }
+    }
+
+    // Delete archives with one storage request per batch, emitting the outcome for each archive
+    // as its batch completes. Archives which could not be deleted remain indexed.
+    public Multi<ArchiveDeletion> deleteArchivedRecordings(List<ArchiveEntry> entries) {
+        int batches = (entries.size() + DELETE_BATCH_SIZE - 1) / DELETE_BATCH_SIZE;
+        return Multi.createFrom()
+                .range(0, batches)
+                .map(
+                        i ->
+                                entries.subList(
+                                        i * DELETE_BATCH_SIZE,
+                                        Math.min(entries.size(), (i + 1) * DELETE_BATCH_SIZE)))
+                .onItem()
+                .transformToIterable(this::deleteArchiveBatch)
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    // Delete a batch of at most DELETE_BATCH_SIZE archives. Returns false if any of them could not
+    // be deleted.
+    public boolean deleteArchives(List<ArchiveEntry> batch) {
+        return deleteArchiveBatch(batch).stream().allMatch(ArchiveDeletion::deleted);
+    }
+
+    private List<ArchiveDeletion> deleteArchiveBatch(List<ArchiveEntry> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        logger.tracev("Removing {0}", batch.stream().map(e -> e.filename).toList());
+        List<ObjectIdentifier> keys =
+                batch.stream()
+                        .map(e -> archivedRecordingKey(e.jvmId, e.filename))
+                        .map(k -> ObjectIdentifier.builder().key(k).build())
+                        .toList();
+        var errors =
+                storage.deleteObjects(
+                                DeleteObjectsRequest.builder()
+                                        .bucket(archiveBucket)
+                                        .delete(Delete.builder().objects(keys).build())
+                                        .build())
+                        .errors();
+        Map<String, String> failed = new HashMap<>();
+        errors.forEach(
+                err -> {
+                    logger.errorv("Deletion failure: {0} due to {1}", err.key(), err.message());
+                    failed.put(err.key(), err.message());
+                });
+        List<ArchiveDeletion> results = new ArrayList<>(batch.size());
+        List<ArchivedRecording> deleted = new ArrayList<>(batch.size());
+        // a batch usually holds many archives of few JVMs, so each target is looked up only once
+        Map<String, Optional<URI>> connectUrls = new HashMap<>();
+        QuarkusTransaction.joiningExisting()
+                .run(
+                        () -> {
+                            for (ArchiveEntry entry : batch) {
+                                String error =
+                                        failed.get(
+                                                archivedRecordingKey(entry.jvmId, entry.filename));
+                                results.add(
+                                        new ArchiveDeletion(
+                                                entry.jvmId, entry.filename, error == null, error));
+                                if (error != null) {
+                                    continue;
+                                }
+                                unindexArchive(entry.jvmId, entry.filename);
+                                var event =
+                                        archiveDeletedEvent(
+                                                connectUrls
+                                                        .computeIfAbsent(
+                                                                entry.jvmId, this::connectUrl)
+                                                        .orElse(null),
+                                                entry.jvmId,
+                                                entry.filename,
+                                                Metadata.empty(),
+                                                entry.size);
+                                deleted.add(event.payload().recording());
+                                bus.publish(
+                                        MessagingServer.class.getName(),
+                                        new Notification(
+                                                event.category().category(),
+                                                event.payload(),
+                                                entry.jvmId));
+                            }
+                        });
+        // caches are invalidated once for the whole batch rather than per archive
+        bus.publish(
+                Recordings.ARCHIVED_RECORDINGS_DELETED, new ArchivedRecordingsDeletion(deleted));
+        return results;
     }
 
     public Optional<Metadata> getArchivedRecordingMetadata(String jvmId, String filename) {
@@ -929,19 +1765,25 @@ public class RecordingHelper {
     }
 
     public Optional<Metadata> getArchivedRecordingMetadata(String storageKey) {
-        try {
-            return Optional.of(
-                    taggingToMetadata(
-                            storage.getObjectTagging(
-                                            GetObjectTaggingRequest.builder()
-                                                    .bucket(archiveBucket)
-                                                    .key(storageKey)
-                                                    .build())
-                                    .tagSet()));
-        } catch (NoSuchKeyException nske) {
-            logger.warn(nske);
-            return Optional.empty();
-        }
+        return getArchivedRecordingMetadataAsync(storageKey).await().indefinitely();
+    }
+
+    public Uni<Optional<Metadata>> getArchivedRecordingMetadataAsync(String storageKey) {
+        return Uni.createFrom()
+                .completionStage(
+                        () ->
+                                asyncStorage.getObjectTagging(
+                                        GetObjectTaggingRequest.builder()
+                                                .bucket(archiveBucket)
+                                                .key(storageKey)
+                                                .build()))
+                .map(res -> Optional.of(taggingToMetadata(res.tagSet())))
+                .onFailure(NoSuchKeyException.class)
+                .recoverWithItem(
+                        nske -> {
+                            logger.warn(nske);
+                            return Optional.empty();
+                        });
     }
 
     private String decodeBase64(String encoded) {
@@ -974,6 +1816,11 @@ public class RecordingHelper {
         return remoteRecordingStreamFactory.open(recording);
     }
 
+    public InputStream getActiveInputStream(ActiveRecording recording, Instant start, Instant end)
+            throws Exception {
+        return remoteRecordingStreamFactory.open(recording, start, end);
+    }
+
     public InputStream getActiveInputStream(long targetId, long remoteId) throws Exception {
         var target = Target.getTargetById(targetId);
         var recording = target.getRecordingById(remoteId);
@@ -981,11 +1828,44 @@ public class RecordingHelper {
         return stream;
     }
 
-    public InputStream getArchivedRecordingStream(String jvmId, String recordingName) {
+    public InputStream getArchivedRecordingStream(String jvmId, String recordingName)
+            throws IOException {
         return getArchivedRecordingStream(encodedKey(jvmId, recordingName));
     }
 
-    public InputStream getArchivedRecordingStream(String encodedKey) {
+    // The stored archive's metadata, or empty if there is no archive stored under the key
+    public Optional<HeadObjectResponse> headArchivedObject(String storageKey) {
+        try {
+            return Optional.of(
+                    storage.headObject(
+                            HeadObjectRequest.builder()
+                                    .bucket(archiveBucket)
+                                    .key(storageKey)
+                                    .build()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    // The recording's JFR bytes, decompressed if it was stored compressed. Read through the local
+    // archive cache.
+    public InputStream getArchivedRecordingStream(String encodedKey) throws IOException {
+        String key = archivedRecordingKey(decodedKey(encodedKey));
+        Optional<InputStream> cached = archiveCache.open(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        var object = getArchivedRecordingObject(encodedKey);
+        return archiveCache.readThrough(key, object.response().eTag(), decodedStream(object));
+    }
+
+    // The object exactly as stored, which may be compressed according to its Content-Encoding
+    public ResponseInputStream<GetObjectResponse> getArchivedRecordingObject(String encodedKey) {
         String key = new String(base64Url.decode(encodedKey), StandardCharsets.UTF_8);
 
         GetObjectRequest getRequest =
@@ -994,6 +1874,23 @@ public class RecordingHelper {
         return storage.getObject(getRequest);
     }
 
+    public static boolean isGzipEncoded(GetObjectResponse response) {
+        return GZIP_ENCODING.equalsIgnoreCase(response.contentEncoding());
+    }
+
+    public static InputStream decodedStream(ResponseInputStream<GetObjectResponse> object)
+            throws IOException {
+        if (isGzipEncoded(object.response())) {
+            try {
+                return new GZIPInputStream(object);
+            } catch (IOException e) {
+                object.abort();
+                throw e;
+            }
+        }
+        return object;
+    }
+
     public String downloadUrl(ActiveRecording recording) {
         return String.format("/api/v3/activedownload/%d", recording.id);
     }
@@ -1011,27 +1908,6 @@ public class RecordingHelper {
         return String.format("/api/v3/reports/%s", encodedKey(jvmId, filename));
     }
 
-    private int retryRead(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
-        int attempts = 30;
-        int read = 0;
-
-        while (attempts > 0) {
-            logger.trace("No bytes read, retrying...");
-            read = channel.read(buffer);
-            if (read > 0 || read < 0) {
-                break;
-            } else {
-                attempts--;
-            }
-        }
-
-        if (read == 0) {
-            throw new IOException("No bytes read after 30 retry attempts");
-        }
-
-        return read;
-    }
-
     void safeCloseRecording(JFRConnection conn, IRecordingDescriptor rec) {
         try {
             conn.getService().close(rec);
@@ -1044,39 +1920,80 @@ public class RecordingHelper {
 
     /* Archived Recording Helpers */
     public void deleteArchivedRecording(String jvmId, String filename) {
-        storage.deleteObject(
-                DeleteObjectRequest.builder()
-                        .bucket(archiveBucket)
-                        .key(archivedRecordingKey(jvmId, filename))
-                        .build());
+        deleteArchivedObjectAsync(jvmId, filename).await().indefinitely();
+        unindexArchive(jvmId, filename);
 
         var metadata = Metadata.empty(); // TODO
-        var target = Target.getTargetByJvmId(jvmId);
-        var event =
-                new ArchivedRecordingEvent(
-                        Recordings.RecordingEventCategory.ARCHIVED_DELETED,
-                        ArchivedRecordingEvent.Payload.of(
-                                target.map(t -> t.connectUrl).orElse(null),
-                                new ArchivedRecording(
-                                        jvmId,
-                                        filename,
-                                        downloadUrl(jvmId, filename),
-                                        reportUrl(jvmId, filename),
-                                        metadata,
-                                        0,
-                                        0)));
+        notifyArchiveDeleted(jvmId, filename, metadata, 0);
+    }
+
+    public Uni<Void> deleteArchivedRecordingAsync(String jvmId, String filename) {
+        return deleteArchivedObjectAsync(jvmId, filename)
+                // the index is updated with a blocking transaction
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .invoke(
+                        () -> {
+                            unindexArchive(jvmId, filename);
+                            notifyArchiveDeleted(jvmId, filename, Metadata.empty(), 0);
+                        });
+    }
+
+    private Uni<Void> deleteArchivedObjectAsync(String jvmId, String filename) {
+        return Uni.createFrom()
+                .completionStage(
+                        () ->
+                                asyncStorage.deleteObject(
+                                        DeleteObjectRequest.builder()
+                                                .bucket(archiveBucket)
+                                                .key(archivedRecordingKey(jvmId, filename))
+                                                .build()))
+                .replaceWithVoid();
+    }
+
+    private void notifyArchiveDeleted(String jvmId, String filename, Metadata metadata, long size) {
+        var event = archiveDeletedEvent(jvmId, filename, metadata, size);
         bus.publish(event.category().category(), event.payload().recording());
         bus.publish(
                 MessagingServer.class.getName(),
-                new Notification(event.category().category(), event.payload()));
+                new Notification(event.category().category(), event.payload(), jvmId));
+    }
+
+    private ArchivedRecordingEvent archiveDeletedEvent(
+            String jvmId, String filename, Metadata metadata, long size) {
+        return archiveDeletedEvent(connectUrl(jvmId).orElse(null), jvmId, filename, metadata, size);
+    }
+
+    private ArchivedRecordingEvent archiveDeletedEvent(
+            URI connectUrl, String jvmId, String filename, Metadata metadata, long size) {
+        return new ArchivedRecordingEvent(
+                Recordings.RecordingEventCategory.ARCHIVED_DELETED,
+                ArchivedRecordingEvent.Payload.of(
+                        connectUrl,
+                        new ArchivedRecording(
+                                jvmId,
+                                filename,
+                                downloadUrl(jvmId, filename),
+                                reportUrl(jvmId, filename),
+                                metadata,
+                                size,
+                                0)));
+    }
+
+    Optional<URI> connectUrl(String jvmId) {
+        return Target.getTargetByJvmId(jvmId).map(t -> t.connectUrl);
     }
 
     Tagging createActiveRecordingTagging(ActiveRecording recording, Instant expiry) {
-        Map<String, String> labels = new HashMap<>(recording.metadata.labels());
+        return createActiveRecordingTagging(recording, recording.metadata, expiry);
+    }
+
+    private Tagging createActiveRecordingTagging(
+            ActiveRecording recording, Metadata metadata, Instant expiry) {
+        Map<String, String> labels = new HashMap<>(metadata.labels());
         labels.put("connectUrl", recording.target.connectUrl.toString());
         labels.put("jvmId", recording.target.jvmId);
-        Metadata metadata = new Metadata(labels, expiry);
-        return createMetadataTagging(metadata);
+        Metadata tagged = new Metadata(labels, expiry);
+        return createMetadataTagging(tagged);
     }
 
     // Metadata
@@ -1160,47 +2077,63 @@ public class RecordingHelper {
     private void notify(ActiveRecordingEvent event) {
         bus.publish(
                 MessagingServer.class.getName(),
-                new Notification(event.category().category(), event.payload()));
+                new Notification(
+                        event.category().category(), event.payload(), event.payload().jvmId()));
     }
 
     public ArchivedRecording updateArchivedRecordingMetadata(
             String jvmId, String filename, Map<String, String> updatedLabels) {
-        String key = archivedRecordingKey(jvmId, filename);
-        Optional<Metadata> existingMetadataOpt = getArchivedRecordingMetadata(key);
-
-        if (existingMetadataOpt.isEmpty()) {
-            throw new NotFoundException(
-                    "Could not find metadata for archived recording with key: " + key);
-        }
+        return updateArchivedRecordingMetadataAsync(jvmId, filename, updatedLabels)
+                .await()
+                .indefinitely();
+    }
 
+    public Uni<ArchivedRecording> updateArchivedRecordingMetadataAsync(
+            String jvmId, String filename, Map<String, String> updatedLabels) {
+        String key = archivedRecordingKey(jvmId, filename);
         Metadata updatedMetadata = new Metadata(updatedLabels);
-
         Tagging tagging = createMetadataTagging(updatedMetadata);
-        storage.putObjectTagging(
-                PutObjectTaggingRequest.builder()
-                        .bucket(archiveBucket)
-                        .key(key)
-                        .tagging(tagging)
-                        .build());
-
-        var response =
-                storage.headObject(
-                        HeadObjectRequest.builder().bucket(archiveBucket).key(key).build());
-        long size = response.contentLength();
-        Instant lastModified = response.lastModified();
-
-        ArchivedRecording updatedRecording =
-                new ArchivedRecording(
-                        jvmId,
-                        filename,
-                        downloadUrl(jvmId, filename),
-                        reportUrl(jvmId, filename),
-                        updatedMetadata,
-                        size,
-                        lastModified.getEpochSecond());
-
-        notifyArchiveMetadataUpdate(updatedRecording);
-        return updatedRecording;
+        return getArchivedRecordingMetadataAsync(key)
+                .map(
+                        existing ->
+                                existing.orElseThrow(
+                                        () ->
+                                                new NotFoundException(
+                                                        "Could not find metadata for archived"
+                                                                + " recording with key: "
+                                                                + key)))
+                .flatMap(
+                        existing ->
+                                Uni.createFrom()
+                                        .completionStage(
+                                                () ->
+                                                        asyncStorage.putObjectTagging(
+                                                                PutObjectTaggingRequest.builder()
+                                                                        .bucket(archiveBucket)
+                                                                        .key(key)
+                                                                        .tagging(tagging)
+                                                                        .build())))
+                .flatMap(
+                        res ->
+                                Uni.createFrom()
+                                        .completionStage(
+                                                () ->
+                                                        asyncStorage.headObject(
+                                                                HeadObjectRequest.builder()
+                                                                        .bucket(archiveBucket)
+                                                                        .key(key)
+                                                                        .build())))
+                .map(
+                        response ->
+                                new ArchivedRecording(
+                                        jvmId,
+                                        filename,
+                                        downloadUrl(jvmId, filename),
+                                        reportUrl(jvmId, filename),
+                                        updatedMetadata,
+                                        response.contentLength(),
+                                        response.lastModified().getEpochSecond()))
+                .invoke(this::notifyArchiveMetadataUpdate);
     }
 
     private void notifyArchiveMetadataUpdate(ArchivedRecording updatedRecording) {
@@ -1213,7 +2146,8 @@ public class RecordingHelper {
         bus.publish(event.category().category(), event.payload().recording());
         bus.publish(
                 MessagingServer.class.getName(),
-                new Notification(event.category().category(), event.payload()));
+                new Notification(
+                        event.category().category(), event.payload(), updatedRecording.jvmId()));
     }
 
     public Uni<String> uploadToJFRDatasource(long targetEntityId, long remoteId) throws Exception {
@@ -1239,18 +2173,23 @@ public class RecordingHelper {
         Objects.requireNonNull(key);
         Objects.requireNonNull(key.getKey());
         Objects.requireNonNull(key.getValue());
-        GetObjectRequest getRequest =
-                GetObjectRequest.builder()
-                        .bucket(archiveBucket)
-                        .key(archivedRecordingKey(key))
-                        .build();
-
+        String storageKey = archivedRecordingKey(key);
+        // the datasource can load the cached file itself, without another copy
+        Optional<Path> cached = archiveCache.link(storageKey);
+        if (cached.isEmpty() && archiveCache.isEnabled()) {
+            try (var stream =
+                    getArchivedRecordingStream(encodedKey(key.getKey(), key.getValue()))) {
+                stream.transferTo(OutputStream.nullOutputStream());
+            }
+            cached = archiveCache.link(storageKey);
+        }
+        if (cached.isPresent()) {
+            return uploadToJFRDatasource(cached.get());
+        }
         Path recordingPath = fs.createTempFile(null, null);
-        // the S3 client will create the file at this path, we just need to get a fresh temp file
-        // path but one that does not yet exist
-        fs.deleteIfExists(recordingPath);
-
-        storage.getObject(getRequest, recordingPath);
+        try (var stream = getArchivedRecordingStream(encodedKey(key.getKey(), key.getValue()))) {
+            fs.copy(stream, recordingPath, StandardCopyOption.REPLACE_EXISTING);
+        }
 
         return uploadToJFRDatasource(recordingPath);
     }
@@ -1317,6 +2256,8 @@ public class RecordingHelper {
             Optional<Long> maxSize,
             Optional<Long> maxAge) {}
 
+    public record ArchiveDeletion(String jvmId, String filename, boolean deleted, String error) {}
+
     public enum RecordingReplace {
         ALWAYS,
         NEVER,
@@ -1346,8 +2287,10 @@ public class RecordingHelper {
                         ActiveRecording.find("id", (Long) jobDataMap.get("recordingId"))
                                 .singleResultOptional();
                 if (recording.isPresent()) {
-                    recordingHelper.stopRecording(
-                            recording.get(), (Boolean) jobDataMap.get("archive"));
+                    recordingHelper
+                            .stopRecording(recording.get(), (Boolean) jobDataMap.get("archive"))
+                            .await()
+                            .indefinitely();
                 }
             } catch (Exception e) {
                 throw new JobExecutionException(e);
@@ -1373,4 +2316,19 @@ public class RecordingHelper {
             super(message);
         }
     }
+
+    // The checkpoint of an interrupted upload no longer matches its source, so the checkpoint has
+    // been discarded and the source must be read again from the start
+    public static class UploadSourceChangedException extends IOException {
+        public UploadSourceChangedException(String objectKey) {
+            super(
+                    String.format(
+                            "Source of interrupted upload %s has changed, it will be restarted",
+                            objectKey));
+        }
+    }
+
+    public static boolean isUploadSourceChanged(Throwable t) {
+        return ExceptionUtils.indexOfType(t, UploadSourceChangedException.class) >= 0;
+    }
 }
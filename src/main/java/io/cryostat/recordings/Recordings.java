@@ -16,19 +16,26 @@
 package io.cryostat.recordings;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,21 +54,33 @@ import io.cryostat.core.RecordingOptionsCustomizer;
 import io.cryostat.core.sys.Clock;
 import io.cryostat.core.templates.Template;
 import io.cryostat.core.templates.TemplateType;
+import io.cryostat.graphql.matchers.LabelSelectorMatcher;
 import io.cryostat.recordings.ActiveRecording.Listener.ArchivedRecordingEvent;
+import io.cryostat.recordings.RecordingHelper.ArchiveDeletion;
 import io.cryostat.recordings.RecordingHelper.RecordingOptions;
 import io.cryostat.recordings.RecordingHelper.RecordingReplace;
 import io.cryostat.recordings.RecordingHelper.SnapshotCreationException;
+import io.cryostat.storage.Storage;
+import io.cryostat.storage.StorageBackend;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.TargetConnectionManager;
+import io.cryostat.util.ByteRange;
 import io.cryostat.util.HttpMimeType;
+import io.cryostat.util.MultipartReader;
+import io.cryostat.util.MultipartReader.Part;
 import io.cryostat.ws.MessagingServer;
 import io.cryostat.ws.Notification;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.handler.HttpException;
 import io.vertx.mutiny.core.eventbus.EventBus;
@@ -71,35 +90,41 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
+import jakarta.ws.rs.core.StreamingOutput;
 import jdk.jfr.RecordingState;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.PathPart;
 import org.jboss.resteasy.reactive.RestForm;
 import org.jboss.resteasy.reactive.RestPath;
 import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestResponse;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
@@ -107,18 +132,23 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 @Path("")
 public class Recordings {
 
+    private static final int MAX_FORM_FIELD_BYTES = 64 * 1024;
+
     @Inject TargetConnectionManager connectionManager;
     @Inject EventBus bus;
     @Inject RecordingOptionsBuilderFactory recordingOptionsBuilderFactory;
     @Inject RecordingOptionsCustomizerFactory recordingOptionsCustomizerFactory;
     @Inject EventOptionsBuilder.Factory eventOptionsBuilderFactory;
     @Inject Clock clock;
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
     @Inject StorageBuckets storageBuckets;
     @Inject S3Presigner presigner;
+    @Inject StorageBackend storageBackend;
     @Inject RemoteRecordingInputStreamFactory remoteRecordingStreamFactory;
     @Inject ObjectMapper mapper;
     @Inject RecordingHelper recordingHelper;
+    @Inject ArchiveCache archiveCache;
+    @Inject ArchiveRetention archiveRetention;
     @Inject Logger logger;
 
     @Inject
@@ -146,8 +176,21 @@ public class Recordings {
     @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
     Duration connectionFailedTimeout;
 
+    // the latest transient archive of each active recording, so that interrupted downloads of it
+    // can be resumed
+    private final Map<Long, TransientArchive> transientArchives = new ConcurrentHashMap<>();
+
     void onStart(@Observes StartupEvent evt) {
         storageBuckets.createIfNecessary(bucket);
+        Infrastructure.getDefaultWorkerPool()
+                .execute(
+                        () -> {
+                            try {
+                                recordingHelper.reindexArchives();
+                            } catch (Exception e) {
+                                logger.error("Failed to index archived recordings", e);
+                            }
+                        });
     }
 
     @GET
@@ -162,7 +205,7 @@ public class Recordings {
     @Blocking
     @Path("/api/v1/recordings")
     @RolesAllowed("write")
-    public Map<String, Object> upload(
+    public Uni<Map<String, Object>> upload(
             @RestForm("recording") FileUpload recording, @RestForm("labels") JsonObject rawLabels)
             throws Exception {
         Map<String, String> labels = new HashMap<>();
@@ -175,114 +218,165 @@ public class Recordings {
         return doUpload(recording, metadata, "uploads");
     }
 
+    // Agents push recordings frequently, so rather than letting the form be spooled to a
+    // temporary file the multipart body is parsed as it arrives and the recording part is piped
+    // straight into an S3 multipart upload
     @POST
     @Blocking
     @Path("/api/beta/recordings/{jvmId}")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
     @RolesAllowed("write")
-    public void agentPush(
+    public Uni<Void> agentPush(
             @RestPath String jvmId,
-            @RestForm("recording") FileUpload recording,
-            @RestForm("labels") JsonObject rawLabels,
-            @RestForm("maxFiles") int maxFiles)
+            @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body)
             throws Exception {
-        jvmId = jvmId.strip();
-        int max = Integer.MAX_VALUE;
-        if (maxFiles > 0) {
-            max = maxFiles;
+        MultipartReader reader =
+                new MultipartReader(
+                        body,
+                        MultipartReader.boundary(contentType)
+                                .orElseThrow(
+                                        () ->
+                                                new BadRequestException(
+                                                        "Missing multipart boundary")));
+        AgentPush push = new AgentPush(jvmId.strip());
+        return readAgentPush(reader, push)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .invoke(() -> completeAgentPush(push))
+                .onFailure()
+                .invoke(() -> deleteIncompletePush(push.jvmId, push.filename))
+                .onFailure(t -> t instanceof DecodeException || t instanceof NumberFormatException)
+                .transform(BadRequestException::new);
+    }
+
+    // Read the parts of the form up to and including the recording, which is uploaded as it is
+    // read, then carry on with the parts which follow it
+    private Uni<Void> readAgentPush(MultipartReader reader, AgentPush push) {
+        return Uni.createFrom()
+                .item(Unchecked.supplier(() -> readAgentPushFields(reader, push)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .flatMap(
+                        recording -> {
+                            if (recording.isEmpty()) {
+                                return Uni.createFrom().voidItem();
+                            }
+                            String name = recording.get().getKey();
+                            return recordingHelper
+                                    .uploadArchivedRecordingAsync(
+                                            push.jvmId,
+                                            name,
+                                            recording.get().getValue().body(),
+                                            null)
+                                    .invoke(
+                                            size -> {
+                                                push.filename = name;
+                                                push.size = size;
+                                            })
+                                    .flatMap(size -> readAgentPush(reader, push));
+                        });
+    }
+
+    private Optional<Pair<String, Part>> readAgentPushFields(MultipartReader reader, AgentPush push)
+            throws IOException {
+        Optional<Part> next;
+        while ((next = reader.next()).isPresent()) {
+            Part part = next.get();
+            switch (part.name().orElse("")) {
+                case "recording":
+                    if (push.filename != null) {
+                        throw new BadRequestException("Multiple recordings in one request");
+                    }
+                    String name = part.filename().map(String::strip).orElse("");
+                    if (StringUtils.isBlank(name)) {
+                        throw new BadRequestException();
+                    }
+                    if (!name.endsWith(".jfr")) {
+                        name = name + ".jfr";
+                    }
+                    return Optional.of(Pair.of(name, part));
+                case "labels":
+                    String rawLabels = part.readString(MAX_FORM_FIELD_BYTES);
+                    if (StringUtils.isNotBlank(rawLabels)) {
+                        new JsonObject(rawLabels)
+                                .getMap()
+                                .forEach((k, v) -> push.labels.put(k, v.toString()));
+                    }
+                    break;
+                case "maxFiles":
+                    String rawMaxFiles = part.readString(MAX_FORM_FIELD_BYTES).strip();
+                    if (StringUtils.isNotBlank(rawMaxFiles)) {
+                        push.maxFiles = Integer.parseInt(rawMaxFiles);
+                    }
+                    break;
+                default:
+                    break;
+            }
         }
-        Map<String, String> labels = new HashMap<>();
-        if (rawLabels != null) {
-            rawLabels.getMap().forEach((k, v) -> labels.put(k, v.toString()));
+        return Optional.empty();
+    }
+
+    private void completeAgentPush(AgentPush push) {
+        if (push.filename == null) {
+            throw new BadRequestException("Missing recording");
         }
-        labels.put("jvmId", jvmId);
-        Metadata metadata = new Metadata(labels);
+        push.labels.put("jvmId", push.jvmId);
+        // the labels may arrive after the recording, so they are applied once the upload is
+        // complete
+        storage.putObjectTagging(
+                PutObjectTaggingRequest.builder()
+                        .bucket(bucket)
+                        .key(recordingHelper.archivedRecordingKey(push.jvmId, push.filename))
+                        .tagging(recordingHelper.createMetadataTagging(new Metadata(push.labels)))
+                        .build());
+        Metadata metadata = new Metadata(push.labels);
         logger.tracev(
-                "recording:{0}, labels:{1}, maxFiles:{2}", recording.fileName(), labels, maxFiles);
-        doUpload(recording, metadata, jvmId);
-        var objs = new ArrayList<S3Object>();
-        recordingHelper.listArchivedRecordingObjects(jvmId).iterator().forEachRemaining(objs::add);
-        var toRemove =
-                objs.stream()
-                        .sorted((a, b) -> b.lastModified().compareTo(a.lastModified()))
-                        .skip(max)
-                        .toList();
-        if (toRemove.isEmpty()) {
-            return;
+                "recording:{0}, labels:{1}, maxFiles:{2}",
+                push.filename, push.labels, push.maxFiles);
+        QuarkusTransaction.joiningExisting()
+                .run(
+                        () -> {
+                            recordingHelper.indexArchive(
+                                    push.jvmId, push.filename, push.size, clock.now());
+                            notifyArchiveCreated(push.jvmId, push.filename, metadata, push.size);
+                        });
+
+        if (push.maxFiles > 0) {
+            archiveRetention.limitFiles(push.jvmId, push.maxFiles);
         }
-        logger.tracev("Removing {0}", toRemove);
+    }
 
-        // FIXME this notification should be emitted in the deletion operation stream so that there
-        // is one notification per deleted object
-        var target = Target.getTargetByJvmId(jvmId);
-        var event =
-                new ArchivedRecordingEvent(
-                        Recordings.RecordingEventCategory.ARCHIVED_DELETED,
-                        ArchivedRecordingEvent.Payload.of(
-                                target.map(t -> t.connectUrl).orElse(null),
-                                new ArchivedRecording(
-                                        jvmId,
-                                        recording.fileName(),
-                                        recordingHelper.downloadUrl(jvmId, recording.fileName()),
-                                        recordingHelper.reportUrl(jvmId, recording.fileName()),
-                                        metadata,
-                                        0,
-                                        clock.getMonotonicTime())));
-        bus.publish(event.category().category(), event.payload().recording());
-        bus.publish(
-                MessagingServer.class.getName(),
-                new Notification(event.category().category(), event.payload()));
-        storage.deleteObjects(
-                        DeleteObjectsRequest.builder()
-                                .bucket(bucket)
-                                .delete(
-                                        Delete.builder()
-                                                .objects(
-                                                        toRemove.stream()
-                                                                .map(S3Object::key)
-                                                                .map(
-                                                                        k ->
-                                                                                ObjectIdentifier
-                                                                                        .builder()
-                                                                                        .key(k)
-                                                                                        .build())
-                                                                .toList())
-                                                .build())
-                                .build())
-                .errors()
-                .forEach(
-                        err -> {
-                            logger.errorv(
-                                    "Deletion failure: {0} due to {1}", err.key(), err.message());
-                        });
+    private static class AgentPush {
+        final String jvmId;
+        final Map<String, String> labels = new HashMap<>();
+        int maxFiles;
+        String filename;
+        long size;
+
+        AgentPush(String jvmId) {
+            this.jvmId = jvmId;
+        }
+    }
+
+    private void deleteIncompletePush(String jvmId, String filename) {
+        if (filename == null) {
+            return;
+        }
+        try {
+            storage.deleteObject(
+                    DeleteObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(recordingHelper.archivedRecordingKey(jvmId, filename))
+                            .build());
+        } catch (Exception e) {
+            logger.warn(e);
+        }
     }
 
     @GET
-    @Blocking
     @Path("/api/beta/recordings/{jvmId}")
     @RolesAllowed("read")
-    public List<ArchivedRecording> agentGet(@RestPath String jvmId) {
-        var result = new ArrayList<ArchivedRecording>();
-        recordingHelper
-                .listArchivedRecordingObjects(jvmId)
-                .forEach(
-                        item -> {
-                            String objectName = item.key().strip();
-                            String filename = objectName.split("/")[1];
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-                            result.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
-        return result;
+    public Uni<List<ArchivedRecording>> agentGet(@RestPath String jvmId) {
+        return recordingHelper.listArchivedRecordingsAsync(jvmId);
     }
 
     @DELETE
@@ -306,31 +400,48 @@ public class Recordings {
         return Response.status(RestResponse.Status.NO_CONTENT).build();
     }
 
-    @Blocking
-    Map<String, Object> doUpload(FileUpload recording, Metadata metadata, String jvmId) {
+    Uni<Map<String, Object>> doUpload(FileUpload recording, Metadata metadata, String jvmId)
+            throws IOException {
         logger.tracev(
                 "Upload: {0} {1} {2} {3}",
                 recording.name(), recording.fileName(), recording.filePath(), metadata.labels);
-        String filename = recording.fileName().strip();
-        if (StringUtils.isBlank(filename)) {
+        String name = recording.fileName().strip();
+        if (StringUtils.isBlank(name)) {
             throw new BadRequestException();
         }
-        if (!filename.endsWith(".jfr")) {
-            filename = filename + ".jfr";
-        }
+        String filename = name.endsWith(".jfr") ? name : name + ".jfr";
         Map<String, String> labels = new HashMap<>(metadata.labels);
         labels.put("jvmId", jvmId);
-        String key = recordingHelper.archivedRecordingKey(jvmId, filename);
-        storage.putObject(
-                PutObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(key)
-                        .contentType(RecordingHelper.JFR_MIME)
-                        .tagging(recordingHelper.createMetadataTagging(new Metadata(labels)))
-                        .build(),
-                RequestBody.fromFile(recording.filePath()));
-        logger.trace("Upload complete");
+        var stream = Files.newInputStream(recording.filePath());
+        return recordingHelper
+                .uploadArchivedRecordingAsync(
+                        jvmId,
+                        filename,
+                        stream,
+                        recordingHelper.createMetadataTagging(new Metadata(labels)))
+                .onTermination()
+                .invoke(() -> IOUtils.closeQuietly(stream))
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .map(
+                        size -> {
+                            logger.trace("Upload complete");
+                            QuarkusTransaction.joiningExisting()
+                                    .run(
+                                            () -> {
+                                                recordingHelper.indexArchive(
+                                                        jvmId, filename, size, clock.now());
+                                                notifyArchiveCreated(
+                                                        jvmId, filename, metadata, size);
+                                            });
+                            return Map.of(
+                                    "name",
+                                    filename,
+                                    "metadata",
+                                    Map.of("labels", metadata.labels));
+                        });
+    }
 
+    private void notifyArchiveCreated(String jvmId, String filename, Metadata metadata, long size) {
         var target = Target.getTargetByJvmId(jvmId);
         var event =
                 new ArchivedRecordingEvent(
@@ -343,14 +454,16 @@ public class Recordings {
                                         recordingHelper.downloadUrl(jvmId, filename),
                                         recordingHelper.reportUrl(jvmId, filename),
                                         metadata,
-                                        recording.size(),
+                                        size,
                                         clock.getMonotonicTime())));
         bus.publish(event.category().category(), event.payload().recording());
         bus.publish(
                 MessagingServer.class.getName(),
-                new Notification(event.category().category(), event.payload()));
-
-        return Map.of("name", filename, "metadata", Map.of("labels", metadata.labels));
+                new Notification(
+                        event.category().category(),
+                        event.payload(),
+                        jvmId,
+                        target.map(t -> t.labels).orElse(null)));
     }
 
     @DELETE
@@ -364,84 +477,57 @@ public class Recordings {
                         .bucket(bucket)
                         .key(String.format("%s/%s", "uploads", filename))
                         .build());
+        recordingHelper.unindexArchive("uploads", filename);
     }
 
     @GET
-    @Blocking
     @Path("/api/beta/fs/recordings")
     @RolesAllowed("read")
-    public Collection<ArchivedRecordingDirectory> listFsArchives() {
-        var map = new HashMap<String, ArchivedRecordingDirectory>();
-        recordingHelper
-                .listArchivedRecordingObjects()
-                .forEach(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String jvmId = parts[0];
-                            String filename = parts[1];
-
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-
-                            String connectUrl =
-                                    metadata.labels.computeIfAbsent("connectUrl", k -> jvmId);
-                            var dir =
-                                    map.computeIfAbsent(
-                                            jvmId,
-                                            id ->
-                                                    new ArchivedRecordingDirectory(
-                                                            connectUrl, id, new ArrayList<>()));
-                            dir.recordings.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
-        return map.values();
+    public Uni<Collection<ArchivedRecordingDirectory>> listFsArchives() {
+        return recordingHelper.listArchivedRecordingsAsync(null).map(this::toDirectories);
     }
 
     @GET
-    @Blocking
     @Path("/api/beta/fs/recordings/{jvmId}")
     @RolesAllowed("read")
-    public Collection<ArchivedRecordingDirectory> listFsArchives(@RestPath String jvmId) {
+    public Uni<Collection<ArchivedRecordingDirectory>> listFsArchives(@RestPath String jvmId) {
+        return recordingHelper.listArchivedRecordingsAsync(jvmId).map(this::toDirectories);
+    }
+
+    @GET
+    @Blocking
+    @Path("/api/beta/fs/recordings/stats")
+    @RolesAllowed("read")
+    public ArchiveStats archiveStats() {
+        Map<String, ArchiveAggregate.Stats> jvms = new HashMap<>();
+        ArchiveAggregate.<ArchiveAggregate>listAll().forEach(a -> jvms.put(a.jvmId, a.stats()));
+        return new ArchiveStats(ArchiveAggregate.global(), jvms);
+    }
+
+    @GET
+    @Blocking
+    @Path("/api/beta/fs/recordings/{jvmId}/stats")
+    @RolesAllowed("read")
+    public ArchiveAggregate.Stats archiveStats(@RestPath String jvmId) {
+        return ArchiveAggregate.stats(jvmId);
+    }
+
+    private Collection<ArchivedRecordingDirectory> toDirectories(
+            List<ArchivedRecording> recordings) {
         var map = new HashMap<String, ArchivedRecordingDirectory>();
-        recordingHelper
-                .listArchivedRecordingObjects(jvmId)
-                .forEach(
-                        item -> {
-                            String filename = item.key().strip().replace(jvmId + "/", "");
-
-                            Metadata metadata =
-                                    recordingHelper
-                                            .getArchivedRecordingMetadata(jvmId, filename)
-                                            .orElseGet(Metadata::empty);
-
-                            String connectUrl =
-                                    metadata.labels.computeIfAbsent("connectUrl", k -> jvmId);
-                            var dir =
-                                    map.computeIfAbsent(
-                                            jvmId,
-                                            id ->
-                                                    new ArchivedRecordingDirectory(
-                                                            connectUrl, id, new ArrayList<>()));
-                            dir.recordings.add(
-                                    new ArchivedRecording(
-                                            jvmId,
-                                            filename,
-                                            recordingHelper.downloadUrl(jvmId, filename),
-                                            recordingHelper.reportUrl(jvmId, filename),
-                                            metadata,
-                                            item.size(),
-                                            item.lastModified().getEpochSecond()));
-                        });
+        recordings.forEach(
+                recording -> {
+                    String jvmId = recording.jvmId();
+                    String connectUrl =
+                            recording.metadata().labels().computeIfAbsent("connectUrl", k -> jvmId);
+                    var dir =
+                            map.computeIfAbsent(
+                                    jvmId,
+                                    id ->
+                                            new ArchivedRecordingDirectory(
+                                                    connectUrl, id, new ArrayList<>()));
+                    dir.recordings.add(recording);
+                });
         return map.values();
     }
 
@@ -471,7 +557,7 @@ public class Recordings {
     @Blocking
     @Path("/api/v3/targets/{targetId}/recordings/{remoteId}")
     @RolesAllowed("write")
-    public String patch(@RestPath long targetId, @RestPath long remoteId, String body)
+    public Uni<String> patch(@RestPath long targetId, @RestPath long remoteId, String body)
             throws Exception {
         Target target = Target.find("id", targetId).singleResult();
         Optional<ActiveRecording> recording =
@@ -488,20 +574,23 @@ public class Recordings {
                         .stopRecording(activeRecording)
                         .await()
                         .atMost(connectionFailedTimeout);
-                return null;
+                return Uni.createFrom().nullItem();
             case "save":
-                try {
-                    // FIXME this operation might take a long time to complete, depending on the
-                    // amount of JFR data in the target and the speed of the connection between the
-                    // target and Cryostat. We should not make the client wait until this operation
-                    // completes before sending a response - it should be async. Here we should just
-                    // return an Accepted response, and if a failure occurs that should be indicated
-                    // as a websocket notification.
-                    return recordingHelper.archiveRecording(activeRecording, null, null).name();
-                } catch (IOException ioe) {
-                    logger.warn(ioe);
-                    return null;
-                }
+                // FIXME this operation might take a long time to complete, depending on the
+                // amount of JFR data in the target and the speed of the connection between the
+                // target and Cryostat. We should not make the client wait until this operation
+                // completes before sending a response - it should be async. Here we should just
+                // return an Accepted response, and if a failure occurs that should be indicated
+                // as a websocket notification.
+                return recordingHelper
+                        .archiveRecordingAsync(activeRecording, null, null)
+                        .map(ArchivedRecording::name)
+                        .onFailure(t -> ExceptionUtils.indexOfType(t, IOException.class) >= 0)
+                        .recoverWithItem(
+                                ioe -> {
+                                    logger.warn(ioe);
+                                    return null;
+                                });
             default:
                 throw new BadRequestException(body);
         }
@@ -744,6 +833,7 @@ public class Recordings {
                 "Got SDK response {0} {1}",
                 resp.sdkHttpResponse().statusCode(), resp.sdkHttpResponse().statusText());
         if (resp.sdkHttpResponse().isSuccessful()) {
+            recordingHelper.unindexArchive(jvmId, filename);
             var event =
                     new ArchivedRecordingEvent(
                             Recordings.RecordingEventCategory.ARCHIVED_DELETED,
@@ -760,7 +850,7 @@ public class Recordings {
             bus.publish(event.category().category(), event.payload().recording());
             bus.publish(
                     MessagingServer.class.getName(),
-                    new Notification(event.category().category(), event.payload()));
+                    new Notification(event.category().category(), event.payload(), jvmId));
         } else {
             throw new HttpException(
                     resp.sdkHttpResponse().statusCode(),
@@ -768,6 +858,85 @@ public class Recordings {
         }
     }
 
+    // Delete many archived recordings at once, either listed by key or selected by a filter. The
+    // outcome for each archive is streamed back as its batch of deletions completes.
+    @POST
+    @Path("/api/beta/fs/recordings/delete")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed("write")
+    public Multi<ArchiveDeletion> deleteArchivedRecordings(
+            ArchivedRecordingsDeletionRequest request) {
+        if (request == null || request.isEmpty()) {
+            throw new BadRequestException("Archive keys or a filter must be provided");
+        }
+        return Uni.createFrom()
+                .item(() -> resolveDeletion(request))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem()
+                .transformToMulti(recordingHelper::deleteArchivedRecordings);
+    }
+
+    private List<ArchiveEntry> resolveDeletion(ArchivedRecordingsDeletionRequest request) {
+        Map<String, ArchiveEntry> entries = new LinkedHashMap<>();
+        if (request.keys() != null) {
+            QuarkusTransaction.requiringNew()
+                    .run(
+                            () -> {
+                                for (ArchiveKey k : request.keys()) {
+                                    // archives missing from the index are still deleted from
+                                    // storage
+                                    ArchiveEntry entry =
+                                            ArchiveEntry.getEntry(k.jvmId(), k.filename())
+                                                    .orElseGet(
+                                                            () ->
+                                                                    ArchiveEntry.of(
+                                                                            k.jvmId(),
+                                                                            k.filename(),
+                                                                            0,
+                                                                            Instant.now()));
+                                    entries.put(
+                                            recordingHelper.archivedRecordingKey(
+                                                    k.jvmId(), k.filename()),
+                                            entry);
+                                }
+                            });
+        }
+        if (!request.hasFilter()) {
+            return List.copyOf(entries.values());
+        }
+        Instant archivedBefore =
+                request.archivedTimeBeforeEqual() == null
+                        ? null
+                        : Instant.ofEpochSecond(request.archivedTimeBeforeEqual());
+        List<ArchiveEntry> matches;
+        if (request.labels() == null || request.labels().isEmpty()) {
+            // the index alone can answer filters which do not involve labels
+            matches =
+                    QuarkusTransaction.requiringNew()
+                            .call(() -> ArchiveEntry.listMatching(request.jvmId(), archivedBefore));
+        } else {
+            List<LabelSelectorMatcher> selectors =
+                    request.labels().stream().map(LabelSelectorMatcher::parse).toList();
+            matches =
+                    recordingHelper.listArchivedRecordings(request.jvmId()).stream()
+                            .filter(
+                                    r ->
+                                            archivedBefore == null
+                                                    || r.archivedTime()
+                                                            <= archivedBefore.getEpochSecond())
+                            .filter(
+                                    r ->
+                                            selectors.stream()
+                                                    .allMatch(s -> s.test(r.metadata().labels())))
+                            .map(ArchiveEntry::of)
+                            .toList();
+        }
+        matches.forEach(
+                e -> entries.put(recordingHelper.archivedRecordingKey(e.jvmId, e.filename), e));
+        return List.copyOf(entries.values());
+    }
+
     @POST
     @Blocking
     @Transactional
@@ -959,28 +1128,52 @@ public class Recordings {
     @Blocking
     @Path("/api/v3/activedownload/{id}")
     @RolesAllowed("read")
-    public Response handleActiveDownload(@RestPath long id) throws Exception {
+    public Uni<Response> handleActiveDownload(
+            @RestPath long id, @HeaderParam(ByteRange.RANGE) String range) throws Exception {
         ActiveRecording recording = ActiveRecording.find("id", id).singleResult();
         if (!transientArchivesEnabled) {
-            return Response.status(RestResponse.Status.OK)
-                    .header(
-                            HttpHeaders.CONTENT_DISPOSITION,
-                            String.format("attachment; filename=\"%s.jfr\"", recording.name))
-                    .header(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime())
-                    .entity(recordingHelper.getActiveInputStream(recording))
-                    .build();
+            return Uni.createFrom()
+                    .item(
+                            Response.status(RestResponse.Status.OK)
+                                    .header(
+                                            HttpHeaders.CONTENT_DISPOSITION,
+                                            String.format(
+                                                    "attachment; filename=\"%s.jfr\"",
+                                                    recording.name))
+                                    .header(
+                                            HttpHeaders.CONTENT_TYPE,
+                                            HttpMimeType.OCTET_STREAM.mime())
+                                    .entity(recordingHelper.getActiveInputStream(recording))
+                                    .build());
         }
 
-        String savename = recording.name;
-        String filename =
-                recordingHelper
-                        .archiveRecording(
-                                recording, savename, Instant.now().plus(transientArchivesTtl))
-                        .name();
-        String encodedKey = recordingHelper.encodedKey(recording.target.jvmId, filename);
-        if (!savename.endsWith(".jfr")) {
-            savename += ".jfr";
+        Instant now = Instant.now();
+        TransientArchive previous = transientArchives.get(id);
+        // a ranged request resumes the download of the archive made for an earlier request, since
+        // a new archive of the still running recording would not hold the same bytes
+        if (StringUtils.isNotBlank(range) && previous != null && previous.expiry().isAfter(now)) {
+            return Uni.createFrom()
+                    .item(transientArchiveRedirect(previous.encodedKey(), previous.savename()));
         }
+
+        String savename =
+                recording.name.endsWith(".jfr") ? recording.name : recording.name + ".jfr";
+        Instant expiry = now.plus(transientArchivesTtl);
+        return recordingHelper
+                .archiveRecordingAsync(recording, recording.name, expiry)
+                .map(
+                        archive -> {
+                            String encodedKey =
+                                    recordingHelper.encodedKey(
+                                            recording.target.jvmId, archive.name());
+                            transientArchives.values().removeIf(a -> !a.expiry().isAfter(now));
+                            transientArchives.put(
+                                    id, new TransientArchive(encodedKey, savename, expiry));
+                            return transientArchiveRedirect(encodedKey, savename);
+                        });
+    }
+
+    private Response transientArchiveRedirect(String encodedKey, String savename) {
         return Response.status(RestResponse.Status.PERMANENT_REDIRECT)
                 .header(
                         HttpHeaders.CONTENT_DISPOSITION,
@@ -999,18 +1192,31 @@ public class Recordings {
     @Blocking
     @Path("/api/v3/download/{encodedKey}")
     @RolesAllowed("read")
-    public Response handleStorageDownload(@RestPath String encodedKey, @RestQuery String f)
-            throws URISyntaxException {
+    public Response handleStorageDownload(
+            @RestPath String encodedKey,
+            @RestQuery String f,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(ByteRange.RANGE) String range,
+            @HeaderParam(ByteRange.IF_RANGE) String ifRange)
+            throws URISyntaxException, IOException {
         Pair<String, String> pair = recordingHelper.decodedKey(encodedKey);
 
-        if (!presignedDownloadsEnabled) {
-            return Response.status(RestResponse.Status.OK)
-                    .header(
-                            HttpHeaders.CONTENT_DISPOSITION,
-                            String.format("attachment; filename=\"%s\"", pair.getValue()))
-                    .header(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime())
-                    .entity(recordingHelper.getArchivedRecordingStream(encodedKey))
-                    .build();
+        // there is nothing to presign a URL for when storage is a local directory
+        if (!presignedDownloadsEnabled || storageBackend.isFileSystem()) {
+            return downloadArchive(pair, acceptEncoding, range, ifRange);
+        }
+        // storage sends a compressed object as stored whatever the client accepts, so clients
+        // which cannot decode it are sent the decompressed recording from here instead
+        if (!acceptsGzip(acceptEncoding)) {
+            HeadObjectResponse head =
+                    storage.headObject(
+                            HeadObjectRequest.builder()
+                                    .bucket(bucket)
+                                    .key(recordingHelper.archivedRecordingKey(pair))
+                                    .build());
+            if (RecordingHelper.GZIP_ENCODING.equalsIgnoreCase(head.contentEncoding())) {
+                return downloadArchive(pair, acceptEncoding, range, ifRange);
+            }
         }
 
         logger.tracev("Handling presigned download request for {0}", pair);
@@ -1053,6 +1259,249 @@ public class Recordings {
         return response.location(uri).build();
     }
 
+    // A smaller recording holding only the events of the archive which started within the window
+    // (given in epoch milliseconds) and are of the given types. Chunks of the archive outside the
+    // window or without any of the types are not read.
+    @GET
+    @Blocking
+    @Path("/api/v3/download/{encodedKey}/slice")
+    @RolesAllowed("read")
+    public Response handleStorageSlice(
+            @RestPath String encodedKey,
+            @RestQuery Long start,
+            @RestQuery Long end,
+            @RestQuery List<String> events)
+            throws IOException {
+        Pair<String, String> pair = recordingHelper.decodedKey(encodedKey);
+        long startNanos = start == null ? Long.MIN_VALUE : TimeUnit.MILLISECONDS.toNanos(start);
+        long endNanos = end == null ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(end);
+        if (startNanos > endNanos) {
+            throw new BadRequestException("start must not be after end");
+        }
+        List<String> eventTypes =
+                events == null
+                        ? List.of()
+                        : events.stream()
+                                .flatMap(e -> Arrays.stream(e.split(",")))
+                                .map(String::strip)
+                                .filter(StringUtils::isNotBlank)
+                                .toList();
+        JfrSlicer slicer = new JfrSlicer(startNanos, endNanos, eventTypes);
+        List<ArchiveEntry.Chunk> chunks =
+                slicer.select(recordingHelper.getChunkIndex(pair.getKey(), pair.getValue()));
+        if (chunks.isEmpty()) {
+            return Response.noContent().build();
+        }
+        StreamingOutput body =
+                out ->
+                        recordingHelper.sliceArchivedRecording(
+                                pair.getKey(), pair.getValue(), chunks, slicer, out);
+        return Response.status(RestResponse.Status.OK)
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        String.format(
+                                "attachment; filename=\"%s-slice.jfr\"",
+                                StringUtils.removeEnd(pair.getValue(), ".jfr")))
+                .header(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime())
+                .entity(body)
+                .build();
+    }
+
+    // Send the archive, or the single byte range of it which the client asked for. Ranges are only
+    // honoured when the archive is sent as stored rather than decompressed on the fly, since the
+    // range and the ETag which If-Range is checked against both refer to the stored bytes. The
+    // decompressed recording is a different representation, so it is only given a weak ETag.
+    private Response downloadArchive(
+            Pair<String, String> pair, String acceptEncoding, String range, String ifRange)
+            throws IOException {
+        String key = recordingHelper.archivedRecordingKey(pair);
+        var response =
+                Response.status(RestResponse.Status.OK)
+                        .header(
+                                HttpHeaders.CONTENT_DISPOSITION,
+                                String.format("attachment; filename=\"%s\"", pair.getValue()))
+                        .header(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime());
+        // the cached copy holds the decompressed recording, so it is only sent where that is what
+        // storage would have sent, and a download resumed with a range continues the same bytes
+        var cached = archiveCache.lookup(key);
+        if (cached.isPresent()) {
+            var hit = cached.get();
+            boolean gzip = RecordingHelper.GZIP_ENCODING.equalsIgnoreCase(hit.contentEncoding());
+            if (!gzip) {
+                Optional<Response> sent = downloadCachedArchive(response, key, hit, range, ifRange);
+                if (sent.isPresent()) {
+                    return sent.get();
+                }
+            } else if (!acceptsGzip(acceptEncoding)) {
+                var stream = archiveCache.open(key, hit);
+                if (stream.isPresent()) {
+                    return validators(response, weakETag(hit.eTag()), hit.lastModified())
+                            .header(HttpHeaders.CONTENT_LENGTH, hit.size())
+                            .entity(stream.get())
+                            .build();
+                }
+            }
+        }
+        if (StringUtils.isNotBlank(range)) {
+            HeadObjectResponse head =
+                    storage.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            boolean gzip = RecordingHelper.GZIP_ENCODING.equalsIgnoreCase(head.contentEncoding());
+            if ((!gzip || acceptsGzip(acceptEncoding))
+                    && ByteRange.ifRangeMatches(ifRange, head.eTag(), head.lastModified())) {
+                Optional<ByteRange> requested = ByteRange.parse(range, head.contentLength());
+                if (requested.isPresent()) {
+                    return downloadArchiveRange(response, key, head, gzip, requested.get());
+                }
+            }
+        }
+
+        // sent from the stored file without copying it through the heap
+        var file = storageBackend.file(bucket, key);
+        if (file.isPresent()) {
+            return response.header(ByteRange.ACCEPT_RANGES, ByteRange.UNIT)
+                    .entity(file.get())
+                    .build();
+        }
+        var object = storage.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        boolean gzip = RecordingHelper.isGzipEncoded(object.response());
+        if (gzip && !acceptsGzip(acceptEncoding)) {
+            return validators(
+                            response,
+                            weakETag(object.response().eTag()),
+                            object.response().lastModified())
+                    .entity(RecordingHelper.decodedStream(object))
+                    .build();
+        }
+        // compressed recordings are sent as stored to clients which can decode them
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, RecordingHelper.GZIP_ENCODING);
+        }
+        return validators(response, object.response().eTag(), object.response().lastModified())
+                .header(ByteRange.ACCEPT_RANGES, ByteRange.UNIT)
+                .header(HttpHeaders.CONTENT_LENGTH, object.response().contentLength())
+                .entity(object)
+                .build();
+    }
+
+    // Send the cached copy of an archive stored uncompressed just as the stored object would be
+    // sent, since the copy holds the same bytes
+    private Optional<Response> downloadCachedArchive(
+            ResponseBuilder response,
+            String key,
+            ArchiveCache.Hit hit,
+            String range,
+            String ifRange)
+            throws IOException {
+        long size = hit.size();
+        Optional<ByteRange> requested =
+                StringUtils.isNotBlank(range)
+                                && ByteRange.ifRangeMatches(ifRange, hit.eTag(), hit.lastModified())
+                        ? ByteRange.parse(range, size)
+                        : Optional.empty();
+        if (requested.isPresent() && !requested.get().isSatisfiable(size)) {
+            return Optional.of(
+                    Response.status(RestResponse.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(
+                                    ByteRange.CONTENT_RANGE,
+                                    ByteRange.unsatisfiedContentRange(size))
+                            .build());
+        }
+        Optional<InputStream> stream = archiveCache.open(key, hit);
+        if (stream.isEmpty()) {
+            return Optional.empty();
+        }
+        validators(response, hit.eTag(), hit.lastModified())
+                .header(ByteRange.ACCEPT_RANGES, ByteRange.UNIT);
+        if (requested.isEmpty()) {
+            return Optional.of(
+                    response.header(HttpHeaders.CONTENT_LENGTH, size).entity(stream.get()).build());
+        }
+        ByteRange r = requested.get();
+        IOUtils.skipFully(stream.get(), r.start());
+        return Optional.of(
+                response.status(RestResponse.Status.PARTIAL_CONTENT)
+                        .header(ByteRange.CONTENT_RANGE, r.contentRange(size))
+                        .header(HttpHeaders.CONTENT_LENGTH, r.length())
+                        .entity(new BoundedInputStream(stream.get(), r.length()))
+                        .build());
+    }
+
+    private Response downloadArchiveRange(
+            ResponseBuilder response,
+            String key,
+            HeadObjectResponse head,
+            boolean gzip,
+            ByteRange range) {
+        long size = head.contentLength();
+        if (!range.isSatisfiable(size)) {
+            return Response.status(RestResponse.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(ByteRange.CONTENT_RANGE, ByteRange.unsatisfiedContentRange(size))
+                    .build();
+        }
+        validators(response, head.eTag(), head.lastModified())
+                .status(RestResponse.Status.PARTIAL_CONTENT)
+                .header(ByteRange.ACCEPT_RANGES, ByteRange.UNIT)
+                .header(ByteRange.CONTENT_RANGE, range.contentRange(size));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, RecordingHelper.GZIP_ENCODING);
+        }
+        var file = storageBackend.file(bucket, key);
+        if (file.isPresent()) {
+            return response.entity(new PathPart(file.get(), range.start(), range.length())).build();
+        }
+        // the object must not have been replaced since its length and ETag were checked
+        var object =
+                storage.getObject(
+                        GetObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .range(range.rangeHeader())
+                                .ifMatch(head.eTag())
+                                .build());
+        return response.header(HttpHeaders.CONTENT_LENGTH, range.length()).entity(object).build();
+    }
+
+    private static String weakETag(String eTag) {
+        return eTag == null || eTag.startsWith("W/") ? eTag : "W/" + eTag;
+    }
+
+    private static ResponseBuilder validators(
+            ResponseBuilder response, String eTag, Instant lastModified) {
+        if (eTag != null) {
+            response.header(HttpHeaders.ETAG, eTag);
+        }
+        if (lastModified != null) {
+            response.lastModified(Date.from(lastModified));
+        }
+        return response;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].strip();
+            if (!name.equalsIgnoreCase(RecordingHelper.GZIP_ENCODING)) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].strip();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException nfe) {
+                        refused = true;
+                    }
+                }
+            }
+            return !refused;
+        }
+        return false;
+    }
+
     private static Map<String, Object> getRecordingOptions(
             IFlightRecorderService service, RecordingOptionsBuilder builder) throws Exception {
         IConstrainedMap<String> recordingOptions = builder.build();
@@ -1145,6 +1594,49 @@ public class Recordings {
         }
     }
 
+    public record ArchiveKey(String jvmId, String filename) {
+        public ArchiveKey {
+            Objects.requireNonNull(jvmId);
+            Objects.requireNonNull(filename);
+        }
+    }
+
+    // Archives to delete: those with the given keys, and those matching every given filter field
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public record ArchivedRecordingsDeletionRequest(
+            List<ArchiveKey> keys,
+            String jvmId,
+            List<String> labels,
+            Long archivedTimeBeforeEqual) {
+        boolean hasFilter() {
+            return jvmId != null
+                    || (labels != null && !labels.isEmpty())
+                    || archivedTimeBeforeEqual != null;
+        }
+
+        boolean isEmpty() {
+            return (keys == null || keys.isEmpty()) && !hasFilter();
+        }
+    }
+
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public record ArchiveStats(
+            ArchiveAggregate.Stats total, Map<String, ArchiveAggregate.Stats> jvms) {
+        public ArchiveStats {
+            Objects.requireNonNull(total);
+            Objects.requireNonNull(jvms);
+        }
+    }
+
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public record ArchivedRecordingsDeletion(List<ArchivedRecording> recordings) {
+        public ArchivedRecordingsDeletion {
+            Objects.requireNonNull(recordings);
+        }
+    }
+
+    private record TransientArchive(String encodedKey, String savename, Instant expiry) {}
+
     @SuppressFBWarnings("EI_EXPOSE_REP")
     public record Metadata(Map<String, String> labels, Instant expiry) {
         public Metadata {
@@ -1171,6 +1663,7 @@ public class Recordings {
     public static final String ACTIVE_RECORDING_CREATED = "ActiveRecordingCreated";
     public static final String ACTIVE_RECORDING_STOPPED = "ActiveRecordingStopped";
     public static final String ARCHIVED_RECORDING_DELETED = "ArchivedRecordingDeleted";
+    public static final String ARCHIVED_RECORDINGS_DELETED = "ArchivedRecordingsDeleted";
     public static final String ARCHIVED_RECORDING_CREATED = "ArchivedRecordingCreated";
     public static final String ACTIVE_RECORDING_DELETED = "ActiveRecordingDeleted";
     public static final String ACTIVE_RECORDING_SAVED = "ActiveRecordingSaved";
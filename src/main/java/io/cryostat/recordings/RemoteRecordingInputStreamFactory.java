@@ -16,7 +16,9 @@
 package io.cryostat.recordings;
 
 import java.io.InputStream;
+import java.time.Instant;
 
+import org.openjdk.jmc.common.unit.UnitLookup;
 import org.openjdk.jmc.flightrecorder.configuration.IRecordingDescriptor;
 
 import io.cryostat.ProgressInputStream;
@@ -49,4 +51,25 @@ public class RemoteRecordingInputStreamFactory {
         return new ProgressInputStream(
                 bareStream, n -> connectionManager.markConnectionInUse(target));
     }
+
+    // Only the chunks of the recording which overlap the given time range are included
+    public ProgressInputStream open(ActiveRecording recording, Instant start, Instant end)
+            throws Exception {
+        return connectionManager.executeConnectedTask(
+                recording.target,
+                conn -> {
+                    IRecordingDescriptor desc =
+                            recordingHelper.getDescriptor(conn, recording).orElseThrow();
+                    InputStream bareStream =
+                            conn.getService()
+                                    .openStream(
+                                            desc,
+                                            UnitLookup.EPOCH_MS.quantity(start.toEpochMilli()),
+                                            UnitLookup.EPOCH_MS.quantity(end.toEpochMilli()),
+                                            false);
+                    return new ProgressInputStream(
+                            bareStream,
+                            n -> connectionManager.markConnectionInUse(recording.target));
+                });
+    }
 }
@@ -15,12 +15,16 @@
  */
 package io.cryostat.reports;
 
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import io.cryostat.ConfigProperties;
 import io.cryostat.discovery.DiscoveryNode;
 import io.cryostat.recordings.ActiveRecording;
 import io.cryostat.recordings.RecordingHelper;
 import io.cryostat.recordings.Recordings;
 import io.cryostat.recordings.Recordings.ArchivedRecording;
+import io.cryostat.recordings.Recordings.ArchivedRecordingsDeletion;
 import io.cryostat.targets.Target;
 import io.cryostat.targets.Target.TargetDiscovery;
 
@@ -70,6 +74,19 @@ class MemoryCachingReportsListener {
         archivedCache.invalidate(key);
     }
 
+    @ConsumeEvent(value = Recordings.ARCHIVED_RECORDINGS_DELETED, blocking = true)
+    public void handleArchivedRecordingsDeletion(ArchivedRecordingsDeletion deletion) {
+        if (!quarkusCache || !memoryCache) {
+            return;
+        }
+        Set<String> keys =
+                deletion.recordings().stream()
+                        .map(r -> recordingHelper.archivedRecordingKey(r.jvmId(), r.name()))
+                        .collect(Collectors.toSet());
+        logger.tracev("Picked up deletion of {0} archived recordings", keys.size());
+        archivedCache.invalidateIf(keys::contains).await().indefinitely();
+    }
+
     @ConsumeEvent(value = Target.TARGET_JVM_DISCOVERY)
     public void handleTargetDiscovery(TargetDiscovery evt) {
         logger.tracev(
@@ -15,12 +15,15 @@
  */
 package io.cryostat.reports;
 
+import java.util.List;
 import java.util.Optional;
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.recordings.RecordingHelper;
 import io.cryostat.recordings.Recordings;
 import io.cryostat.recordings.Recordings.ArchivedRecording;
+import io.cryostat.recordings.Recordings.ArchivedRecordingsDeletion;
+import io.cryostat.storage.Storage;
 
 import io.quarkus.vertx.ConsumeEvent;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -28,19 +31,24 @@ import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
 @ApplicationScoped
 class StorageCachingReportsListener {
 
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     @ConfigProperty(name = ConfigProperties.REPORTS_STORAGE_CACHE_ENABLED)
     boolean enabled;
 
     @ConfigProperty(name = ConfigProperties.ARCHIVED_REPORTS_STORAGE_CACHE_NAME)
     String bucket;
 
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
 
     @Inject RecordingHelper recordingHelper;
 
@@ -64,4 +72,38 @@ class StorageCachingReportsListener {
                             }
                         });
     }
+
+    @ConsumeEvent(value = Recordings.ARCHIVED_RECORDINGS_DELETED, blocking = true)
+    public void handleArchivedRecordingsDeletion(ArchivedRecordingsDeletion deletion) {
+        if (!enabled) {
+            return;
+        }
+        List<ObjectIdentifier> keys =
+                deletion.recordings().stream()
+                        .map(r -> recordingHelper.archivedRecordingKey(r.jvmId(), r.name()))
+                        .map(k -> ObjectIdentifier.builder().key(k).build())
+                        .toList();
+        logger.tracev("Picked up deletion of {0} archived recordings", keys.size());
+        for (int i = 0; i < keys.size(); i += DELETE_BATCH_SIZE) {
+            var req =
+                    DeleteObjectsRequest.builder()
+                            .bucket(bucket)
+                            .delete(
+                                    Delete.builder()
+                                            .objects(
+                                                    keys.subList(
+                                                            i,
+                                                            Math.min(
+                                                                    keys.size(),
+                                                                    i + DELETE_BATCH_SIZE)))
+                                            .quiet(true)
+                                            .build())
+                            .build();
+            try {
+                storage.deleteObjects(req);
+            } catch (S3Exception e) {
+                logger.warn(e);
+            }
+        }
+    }
 }
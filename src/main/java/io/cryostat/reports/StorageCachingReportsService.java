@@ -28,6 +28,7 @@ import io.cryostat.ConfigProperties;
 import io.cryostat.core.reports.InterruptibleReportGenerator.AnalysisResult;
 import io.cryostat.recordings.ActiveRecording;
 import io.cryostat.recordings.RecordingHelper;
+import io.cryostat.storage.Storage;
 import io.cryostat.util.HttpMimeType;
 import io.cryostat.util.HttpStatusCodeIdentifier;
 
@@ -64,7 +65,7 @@ class StorageCachingReportsService implements ReportsService {
     @ConfigProperty(name = ConfigProperties.ARCHIVED_REPORTS_EXPIRY_DURATION)
     Duration expiry;
 
-    @Inject S3Client storage;
+    @Inject @Storage S3Client storage;
     @Inject RecordingHelper recordingHelper;
     @Inject ObjectMapper mapper;
 
@@ -0,0 +1,43 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import java.util.Optional;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotBlank;
+
+// The most recent JFR chunk archived by an incremental archiving rule from a particular JVM's
+// recording, so that the next archive only needs to contain the chunks written since then
+@Entity
+@Table(uniqueConstraints = {@UniqueConstraint(columnNames = {"ruleId", "jvmId"})})
+public class ArchiveCheckpoint extends PanacheEntity {
+
+    public long ruleId;
+    @NotBlank public String jvmId;
+    public long recordingId;
+    public long lastChunkStartNanos;
+    public long lastChunkEndNanos;
+    public String lastArchive;
+    public String chain;
+
+    static Optional<ArchiveCheckpoint> get(long ruleId, String jvmId) {
+        return find("ruleId = ?1 and jvmId = ?2", ruleId, jvmId).singleResultOptional();
+    }
+}
@@ -84,6 +84,9 @@ public class Rule extends PanacheEntity {
 
     public boolean enabled;
 
+    // archive only the JFR chunks written since the previous archive of the same recording
+    public boolean incrementalArchives;
+
     public String getName() {
         return this.name;
     }
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import io.cryostat.ConfigProperties;
@@ -75,6 +76,12 @@ public class RuleService {
     @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
     Duration connectionFailedTimeout;
 
+    @ConfigProperty(name = ConfigProperties.RULES_ARCHIVAL_PHASE_SPREAD)
+    boolean archivalPhaseSpread;
+
+    @ConfigProperty(name = ConfigProperties.RULES_ARCHIVAL_JITTER)
+    Duration archivalJitter;
+
     private final List<JobKey> jobs = new CopyOnWriteArrayList<>();
 
     @Transactional
@@ -129,6 +136,7 @@ public class RuleService {
                 break;
             case DELETED:
                 cancelTasksForRule(rule);
+                ArchiveCheckpoint.delete("ruleId", rule.id);
                 break;
             default:
                 break;
@@ -264,6 +272,15 @@ public class RuleService {
         if (initialDelay <= 0) {
             initialDelay = archivalPeriodSeconds;
         }
+        long startTime =
+                archivalStartTime(
+                        System.currentTimeMillis() + initialDelay * 1000L,
+                        archivalPeriodSeconds * 1000L,
+                        archivalPhaseSpread ? rule.name + "/" + target.jvmId : null,
+                        archivalJitter.toMillis() > 0
+                                ? ThreadLocalRandom.current()
+                                        .nextLong(archivalJitter.toMillis() + 1)
+                                : 0);
 
         Map<String, Object> data = jobDetail.getJobDataMap();
         data.put("rule", rule.id);
@@ -279,7 +296,7 @@ public class RuleService {
                                         .withIntervalInSeconds(archivalPeriodSeconds)
                                         .repeatForever()
                                         .withMisfireHandlingInstructionNowWithExistingCount())
-                        .startAt(new Date(System.currentTimeMillis() + initialDelay * 1000))
+                        .startAt(new Date(startTime))
                         .build();
         try {
             quartz.scheduleJob(jobDetail, trigger);
@@ -293,6 +310,20 @@ public class RuleService {
         jobs.add(jobDetail.getKey());
     }
 
+    // Rather than every target matching a rule archiving at the same moment, each (rule, target)
+    // pair is given a fixed slot within the archival period derived from a hash of its key. The
+    // slot is relative to the epoch, so it stays the same across restarts and replicas. The first
+    // archive happens in that slot once the initial delay has passed, plus any random jitter,
+    // which is capped at one period.
+    static long archivalStartTime(long earliest, long periodMillis, String slotKey, long jitter) {
+        long start = earliest;
+        if (slotKey != null && periodMillis > 0) {
+            long offset = Math.floorMod(slotKey.hashCode() * 0x9E3779B97F4A7C15L, periodMillis);
+            start += Math.floorMod(offset - earliest, periodMillis);
+        }
+        return start + (periodMillis > 0 ? Math.min(jitter, periodMillis) : jitter);
+    }
+
     private void cancelTasksForRule(Rule rule) {
         if (rule.isArchiver()) {
             List<String> targets =
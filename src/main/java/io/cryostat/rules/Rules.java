@@ -114,7 +114,8 @@ public class Rules {
             @RestForm int preservedArchives,
             @RestForm int maxAgeSeconds,
             @RestForm int maxSizeBytes,
-            @RestForm boolean enabled) {
+            @RestForm boolean enabled,
+            @RestForm boolean incrementalArchives) {
         MatchExpression expr = new MatchExpression(matchExpression);
         expr.persist();
         Rule rule = new Rule();
@@ -128,6 +129,7 @@ public class Rules {
         rule.maxAgeSeconds = maxAgeSeconds;
         rule.maxSizeBytes = maxSizeBytes;
         rule.enabled = enabled;
+        rule.incrementalArchives = incrementalArchives;
         return create(rule);
     }
 
@@ -15,7 +15,15 @@
  */
 package io.cryostat.rules;
 
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.time.Instant;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.regex.Matcher;
@@ -23,7 +31,12 @@ import java.util.regex.Pattern;
 
 import io.cryostat.ConfigProperties;
 import io.cryostat.recordings.ActiveRecording;
+import io.cryostat.recordings.ArchiveEntry;
+import io.cryostat.recordings.ArchiveScheduler;
+import io.cryostat.recordings.ArchiveScheduler.Priority;
+import io.cryostat.recordings.JfrChunkFilterInputStream;
 import io.cryostat.recordings.RecordingHelper;
+import io.cryostat.recordings.RecordingHelper.UploadSourceChangedException;
 import io.cryostat.targets.Target;
 
 import jakarta.inject.Inject;
@@ -41,6 +54,7 @@ class ScheduledArchiveJob implements Job {
                     "([A-Za-z\\d\\.-]*)_([A-Za-z\\d-_]*)_([\\d]*T[\\d]*Z)(\\.[\\d]+)?(\\.jfr)?");
 
     @Inject RecordingHelper recordingHelper;
+    @Inject ArchiveScheduler archiveScheduler;
     @Inject Logger logger;
 
     @ConfigProperty(name = ConfigProperties.AWS_BUCKET_NAME_ARCHIVES)
@@ -66,37 +80,173 @@ class ScheduledArchiveJob implements Job {
 
         Queue<String> previousRecordings = new ArrayDeque<>(rule.preservedArchives);
 
+        try {
+            if (rule.incrementalArchives) {
+                archiveIncrement(rule, target, recording, previousRecordings);
+                return;
+            }
+            pruneArchives(target, rule, previousRecordings);
+            recordArchive(
+                    target,
+                    rule,
+                    previousRecordings,
+                    recordingHelper
+                            .archiveRecording(recording, null, null, Priority.BACKGROUND)
+                            .name());
+        } catch (Exception e) {
+            throw new JobExecutionException(e);
+        }
+    }
+
+    void pruneArchives(Target target, Rule rule, Queue<String> previousRecordings) {
         initPreviousRecordings(target, rule, previousRecordings);
         while (previousRecordings.size() >= rule.preservedArchives) {
             pruneArchive(target, previousRecordings, previousRecordings.remove());
         }
+    }
 
-        try {
-            previousRecordings.add(recordingHelper.archiveRecording(recording, null, null).name());
-        } catch (Exception e) {
-            throw new JobExecutionException(e);
+    // Archive only the chunks which the recording has finished writing since the last time this
+    // rule archived it. Each increment is a standalone JFR file labelled with the archive it
+    // follows on from. An increment is useless without the ones before it, so increments are
+    // kept as chains that start from a full archive of the recording: a chain grows up to the
+    // rule's preserved archives, then the next run starts a new chain and older chains are pruned
+    // whole.
+    void archiveIncrement(
+            Rule rule, Target target, ActiveRecording recording, Queue<String> previousRecordings)
+            throws Exception {
+        try (var permit = archiveScheduler.acquire(target.id, Priority.BACKGROUND)) {
+            try {
+                doArchiveIncrement(rule, target, recording, previousRecordings);
+            } catch (UploadSourceChangedException e) {
+                // the interrupted upload's checkpoint is gone, so this starts a fresh upload
+                logger.warn(e.getMessage());
+                previousRecordings.clear();
+                doArchiveIncrement(rule, target, recording, previousRecordings);
+            }
+        }
+    }
+
+    private void doArchiveIncrement(
+            Rule rule, Target target, ActiveRecording recording, Queue<String> previousRecordings)
+            throws Exception {
+        ArchiveCheckpoint checkpoint =
+                ArchiveCheckpoint.get(rule.id, target.jvmId)
+                        .orElseGet(
+                                () -> {
+                                    ArchiveCheckpoint c = new ArchiveCheckpoint();
+                                    c.ruleId = rule.id;
+                                    c.jvmId = target.jvmId;
+                                    return c;
+                                });
+        // start a new chain if the rule's recording has been restarted since the checkpoint was
+        // taken, if the current chain is full, or if part of it has been deleted from under us
+        boolean fresh =
+                checkpoint.lastArchive == null
+                        || checkpoint.chain == null
+                        || checkpoint.recordingId != recording.remoteId
+                        || ArchiveEntry.getEntry(target.jvmId, checkpoint.lastArchive).isEmpty()
+                        || ArchiveEntry.countInChain(rule.id, target.jvmId, checkpoint.chain)
+                                >= rule.preservedArchives;
+        InputStream source =
+                fresh
+                        ? recordingHelper.getActiveInputStream(recording)
+                        : recordingHelper.getActiveInputStream(
+                                recording,
+                                Instant.ofEpochSecond(0, checkpoint.lastChunkEndNanos),
+                                Instant.now());
+        JfrChunkFilterInputStream chunks =
+                new JfrChunkFilterInputStream(
+                        source, fresh ? Long.MIN_VALUE : checkpoint.lastChunkStartNanos);
+        try (PushbackInputStream stream = new PushbackInputStream(chunks)) {
+            int b = stream.read();
+            if (b < 0) {
+                logger.debugv(
+                        "No new chunks in recording {0} on {1} since {2}",
+                        recording.name, target.connectUrl, checkpoint.lastArchive);
+                return;
+            }
+            stream.unread(b);
+
+            initPreviousRecordings(target, rule, previousRecordings);
+
+            Map<String, String> labels = new HashMap<>();
+            labels.put("incremental", "true");
+            if (!fresh) {
+                labels.put("previousArchive", checkpoint.lastArchive);
+            }
+            String filename =
+                    recordingHelper
+                            .archiveRecording(recording, null, null, stream, labels, true)
+                            .name();
+            String chain = fresh ? filename : checkpoint.chain;
+            recordArchive(target, rule, previousRecordings, filename);
+            ArchiveEntry.getEntry(target.jvmId, filename).ifPresent(e -> e.chain = chain);
+
+            checkpoint.recordingId = recording.remoteId;
+            checkpoint.lastChunkStartNanos = chunks.lastChunkStartNanos();
+            checkpoint.lastChunkEndNanos = chunks.lastChunkEndNanos();
+            checkpoint.lastArchive = filename;
+            checkpoint.chain = chain;
+            checkpoint.persist();
+
+            // only prune once the new archive is written, so there is never a moment without a
+            // complete chain in storage
+            pruneChains(target, rule, previousRecordings, chain);
+        }
+    }
+
+    // Delete the oldest chains, never the current one, until the rule is back within its preserved
+    // archives. Standalone archives count as chains of their own.
+    void pruneChains(
+            Target target, Rule rule, Queue<String> previousRecordings, String currentChain) {
+        Map<String, List<String>> chains = new LinkedHashMap<>();
+        for (ArchiveEntry e : ArchiveEntry.listForRule(rule.id, target.jvmId)) {
+            chains.computeIfAbsent(e.chain != null ? e.chain : e.filename, k -> new ArrayList<>())
+                    .add(e.filename);
+        }
+        int total = chains.values().stream().mapToInt(List::size).sum();
+        for (var chain : chains.entrySet()) {
+            if (total <= rule.preservedArchives) {
+                break;
+            }
+            if (chain.getKey().equals(currentChain)) {
+                continue;
+            }
+            // delete the newest increments first, so that a partial failure never leaves an
+            // increment behind whose predecessor is gone
+            List<String> filenames = chain.getValue();
+            for (int i = filenames.size() - 1; i >= 0; i--) {
+                pruneArchive(target, previousRecordings, filenames.get(i));
+            }
+            total -= filenames.size();
         }
     }
 
+    // The archive index remembers which rule produced each archive, so this rule's previous
+    // archives for the target are a single indexed lookup rather than a scan of the whole bucket.
+    // Archives from before the index recorded rules are claimed by filename the first time round.
     void initPreviousRecordings(Target target, Rule rule, Queue<String> previousRecordings) {
-        recordingHelper.listArchivedRecordingObjects().stream()
-                .sorted((a, b) -> a.lastModified().compareTo(b.lastModified()))
-                .forEach(
-                        item -> {
-                            String path = item.key().strip();
-                            String[] parts = path.split("/");
-                            String jvmId = parts[0];
-                            if (jvmId.equals(target.jvmId)) {
-                                String filename = parts[1];
-                                Matcher m = RECORDING_FILENAME_PATTERN.matcher(filename);
-                                if (m.matches()) {
-                                    String recordingName = m.group(2);
-                                    if (Objects.equals(recordingName, rule.getRecordingName())) {
-                                        previousRecordings.add(filename);
-                                    }
-                                }
-                            }
-                        });
+        List<ArchiveEntry> entries = ArchiveEntry.listForRule(rule.id, target.jvmId);
+        if (entries.isEmpty()) {
+            entries =
+                    ArchiveEntry.listUnowned(target.jvmId).stream()
+                            .filter(
+                                    e -> {
+                                        Matcher m = RECORDING_FILENAME_PATTERN.matcher(e.filename);
+                                        return m.matches()
+                                                && Objects.equals(
+                                                        m.group(2), rule.getRecordingName());
+                                    })
+                            .toList();
+            entries.forEach(e -> e.ruleId = rule.id);
+        }
+        entries.forEach(e -> previousRecordings.add(e.filename));
+    }
+
+    void recordArchive(
+            Target target, Rule rule, Queue<String> previousRecordings, String filename) {
+        ArchiveEntry.getEntry(target.jvmId, filename).ifPresent(e -> e.ruleId = rule.id);
+        previousRecordings.add(filename);
     }
 
     void pruneArchive(Target target, Queue<String> previousRecordings, String filename) {
@@ -0,0 +1,210 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+// The filesystem client's operations run on a worker pool, since file I/O blocks. Upload parts
+// are written to disk as their bytes are published rather than collected in memory first.
+public class FileSystemS3AsyncClient implements S3AsyncClient {
+
+    private final FileSystemS3Client client;
+    private final Executor executor;
+
+    FileSystemS3AsyncClient(FileSystemS3Client client, Executor executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public S3ServiceClientConfiguration serviceClientConfiguration() {
+        return client.serviceClientConfiguration();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public CompletableFuture<ListObjectsV2Response> listObjectsV2(ListObjectsV2Request request) {
+        return async(() -> client.listObjectsV2(request));
+    }
+
+    @Override
+    public CompletableFuture<HeadObjectResponse> headObject(HeadObjectRequest request) {
+        return async(() -> client.headObject(request));
+    }
+
+    @Override
+    public CompletableFuture<DeleteObjectResponse> deleteObject(DeleteObjectRequest request) {
+        return async(() -> client.deleteObject(request));
+    }
+
+    @Override
+    public CompletableFuture<DeleteObjectsResponse> deleteObjects(DeleteObjectsRequest request) {
+        return async(() -> client.deleteObjects(request));
+    }
+
+    @Override
+    public CompletableFuture<GetObjectTaggingResponse> getObjectTagging(
+            GetObjectTaggingRequest request) {
+        return async(() -> client.getObjectTagging(request));
+    }
+
+    @Override
+    public CompletableFuture<PutObjectTaggingResponse> putObjectTagging(
+            PutObjectTaggingRequest request) {
+        return async(() -> client.putObjectTagging(request));
+    }
+
+    @Override
+    public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+            CreateMultipartUploadRequest request) {
+        return async(() -> client.createMultipartUpload(request));
+    }
+
+    @Override
+    public CompletableFuture<UploadPartResponse> uploadPart(
+            UploadPartRequest request, AsyncRequestBody requestBody) {
+        CompletableFuture<UploadPartResponse> future = new CompletableFuture<>();
+        Path part;
+        Path tmp;
+        FileChannel channel;
+        try {
+            part = client.partFile(request.uploadId(), request.partNumber());
+            tmp = client.tempFile();
+            channel =
+                    FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(FileSystemS3Client.clientError(e));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        requestBody.subscribe(
+                new Subscriber<ByteBuffer>() {
+                    Subscription subscription;
+
+                    @Override
+                    public void onSubscribe(Subscription s) {
+                        subscription = s;
+                        s.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(ByteBuffer buf) {
+                        try {
+                            while (buf.hasRemaining()) {
+                                channel.write(buf);
+                            }
+                        } catch (IOException e) {
+                            subscription.cancel();
+                            onError(e);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        close();
+                        try {
+                            Files.deleteIfExists(tmp);
+                        } catch (IOException e) {
+                            t.addSuppressed(e);
+                        }
+                        future.completeExceptionally(
+                                t instanceof Exception e ? FileSystemS3Client.clientError(e) : t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        if (close()) {
+                            executor.execute(
+                                    () -> {
+                                        try {
+                                            future.complete(client.commitPart(tmp, part));
+                                        } catch (RuntimeException e) {
+                                            future.completeExceptionally(e);
+                                        }
+                                    });
+                        }
+                    }
+
+                    private boolean close() {
+                        try {
+                            channel.close();
+                            return true;
+                        } catch (IOException e) {
+                            future.completeExceptionally(FileSystemS3Client.clientError(e));
+                            return false;
+                        }
+                    }
+                });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(
+            CompleteMultipartUploadRequest request) {
+        return async(() -> client.completeMultipartUpload(request));
+    }
+
+    @Override
+    public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(
+            AbortMultipartUploadRequest request) {
+        return async(() -> client.abortMultipartUpload(request));
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+}
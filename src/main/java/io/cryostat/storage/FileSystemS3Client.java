@@ -0,0 +1,799 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import io.cryostat.util.ByteRange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateBucketResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+// The object storage operations which Cryostat uses, served from a directory on local disk rather
+// than an S3 service. Each bucket is a directory under the root and each object a file at its
+// key. Object metadata and tags are kept in JSON sidecar files under a separate tree, and
+// multipart uploads are assembled from part files in a staging directory, so that an object only
+// appears at its key once it is complete.
+public class FileSystemS3Client implements S3Client {
+
+    static final String METADATA_DIR = ".metadata";
+    static final String UPLOADS_DIR = ".uploads";
+    static final String METADATA_SUFFIX = ".json";
+    static final String UPLOAD_FILE = "upload.json";
+    static final String PART_PREFIX = "part-";
+
+    private final Path root;
+    private final ObjectMapper mapper;
+    private final Logger logger;
+
+    FileSystemS3Client(Path root, ObjectMapper mapper, Logger logger) {
+        this.root = root;
+        this.mapper = mapper;
+        this.logger = logger;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public S3ServiceClientConfiguration serviceClientConfiguration() {
+        return S3ServiceClientConfiguration.builder().build();
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public HeadBucketResponse headBucket(HeadBucketRequest request) {
+        bucketDir(request.bucket());
+        return status(HeadBucketResponse.builder(), 200);
+    }
+
+    @Override
+    public CreateBucketResponse createBucket(CreateBucketRequest request) {
+        try {
+            Files.createDirectories(root.resolve(validName(request.bucket())));
+            Files.createDirectories(root.resolve(METADATA_DIR).resolve(request.bucket()));
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+        return status(CreateBucketResponse.builder().location("/" + request.bucket()), 200);
+    }
+
+    // Keys are listed in lexicographic order like S3, and the continuation token is simply the
+    // last key of the previous page
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        Path dir = bucketDir(request.bucket());
+        String prefix = StringUtils.defaultString(request.prefix());
+        String after =
+                StringUtils.defaultString(
+                        StringUtils.firstNonBlank(
+                                request.continuationToken(), request.startAfter()));
+        int maxKeys = request.maxKeys() == null ? Integer.MAX_VALUE : request.maxKeys();
+        List<S3Object> contents = new ArrayList<>();
+        boolean truncated = false;
+        try (Stream<Path> files = Files.walk(dir)) {
+            List<Path> matching =
+                    files.filter(Files::isRegularFile)
+                            .filter(
+                                    p -> {
+                                        String key = key(dir, p);
+                                        return key.startsWith(prefix) && key.compareTo(after) > 0;
+                                    })
+                            .sorted(Comparator.comparing(p -> key(dir, p)))
+                            .toList();
+            for (Path file : matching) {
+                if (contents.size() >= maxKeys) {
+                    truncated = true;
+                    break;
+                }
+                try {
+                    contents.add(describe(dir, file));
+                } catch (NoSuchFileException e) {
+                    // deleted since the bucket was walked
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw clientError(e);
+        }
+        var builder =
+                ListObjectsV2Response.builder()
+                        .name(request.bucket())
+                        .prefix(request.prefix())
+                        .contents(contents)
+                        .keyCount(contents.size())
+                        .isTruncated(truncated);
+        if (truncated) {
+            builder = builder.nextContinuationToken(contents.get(contents.size() - 1).key());
+        }
+        return status(builder, 200);
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(
+            GetObjectRequest request,
+            ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        Path file = objectFile(request.bucket(), request.key());
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(request.key());
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+        InputStream stream = Channels.newInputStream(channel);
+        try {
+            GetObjectResponse response = getObjectResponse(request.bucket(), request.key(), file);
+            if (request.ifMatch() != null && !request.ifMatch().equals(response.eTag())) {
+                throw error(412, "Precondition failed: " + request.key());
+            }
+            // a single byte range is read by positioning the channel, like a ranged S3 request
+            Optional<ByteRange> range = ByteRange.parse(request.range(), response.contentLength());
+            if (range.isPresent()) {
+                ByteRange r = range.get();
+                if (!r.isSatisfiable(response.contentLength())) {
+                    throw error(416, "Range not satisfiable: " + request.range());
+                }
+                channel.position(r.start());
+                stream = new BoundedInputStream(stream, r.length());
+                response =
+                        status(
+                                response.toBuilder()
+                                        .contentLength(r.length())
+                                        .contentRange(r.contentRange(response.contentLength())),
+                                206);
+            }
+            return responseTransformer.transform(response, AbortableInputStream.create(stream));
+        } catch (Exception e) {
+            try {
+                stream.close();
+            } catch (IOException ioe) {
+                e.addSuppressed(ioe);
+            }
+            if (e instanceof RuntimeException re) {
+                throw re;
+            }
+            throw SdkClientException.create(e.getMessage(), e);
+        }
+    }
+
+    // Copy the object to the destination within the kernel, without passing its bytes through
+    // the heap
+    @Override
+    public GetObjectResponse getObject(GetObjectRequest request, Path destination) {
+        Path file = objectFile(request.bucket(), request.key());
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                FileChannel out =
+                        FileChannel.open(
+                                destination,
+                                StandardOpenOption.CREATE_NEW,
+                                StandardOpenOption.WRITE)) {
+            transfer(in, out);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(request.key());
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+        return getObjectResponse(request.bucket(), request.key(), file);
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        Path file = objectFile(request.bucket(), request.key());
+        ObjectMetadata metadata = readMetadata(request.bucket(), request.key());
+        try {
+            return status(
+                    HeadObjectResponse.builder()
+                            .contentLength(Files.size(file))
+                            .lastModified(Files.getLastModifiedTime(file).toInstant())
+                            .eTag(eTag(file))
+                            .contentType(metadata.contentType())
+                            .contentEncoding(metadata.contentEncoding())
+                            .contentDisposition(metadata.contentDisposition())
+                            .expires(metadata.expiry()),
+                    200);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(request.key());
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        Path file = objectFile(request.bucket(), request.key());
+        Path tmp = tempFile();
+        try (InputStream in = requestBody.contentStreamProvider().newStream();
+                ReadableByteChannel src = Channels.newChannel(in);
+                FileChannel out =
+                        FileChannel.open(
+                                tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long n;
+            while ((n = out.transferFrom(src, position, 1024 * 1024)) > 0) {
+                position += n;
+            }
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+        ObjectMetadata metadata =
+                new ObjectMetadata(
+                        request.contentType(),
+                        request.contentEncoding(),
+                        request.contentDisposition(),
+                        request.expires() == null ? null : request.expires().toEpochMilli(),
+                        parseTagging(request.tagging()));
+        commit(request.bucket(), request.key(), tmp, file, metadata);
+        return status(PutObjectResponse.builder().eTag(eTag(file)), 200);
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        try {
+            delete(request.bucket(), request.key());
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+        return status(DeleteObjectResponse.builder(), 204);
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        bucketDir(request.bucket());
+        List<DeletedObject> deleted = new ArrayList<>();
+        List<S3Error> errors = new ArrayList<>();
+        for (ObjectIdentifier id : request.delete().objects()) {
+            try {
+                delete(request.bucket(), id.key());
+                deleted.add(DeletedObject.builder().key(id.key()).build());
+            } catch (IOException | S3Exception e) {
+                errors.add(
+                        S3Error.builder()
+                                .key(id.key())
+                                .code("InternalError")
+                                .message(e.getMessage())
+                                .build());
+            }
+        }
+        return status(DeleteObjectsResponse.builder().deleted(deleted).errors(errors), 200);
+    }
+
+    @Override
+    public GetObjectTaggingResponse getObjectTagging(GetObjectTaggingRequest request) {
+        Path file = objectFile(request.bucket(), request.key());
+        if (!Files.isRegularFile(file)) {
+            throw noSuchKey(request.key());
+        }
+        List<Tag> tags =
+                readMetadata(request.bucket(), request.key()).tags().entrySet().stream()
+                        .map(e -> Tag.builder().key(e.getKey()).value(e.getValue()).build())
+                        .toList();
+        return status(GetObjectTaggingResponse.builder().tagSet(tags), 200);
+    }
+
+    @Override
+    public PutObjectTaggingResponse putObjectTagging(PutObjectTaggingRequest request) {
+        Path file = objectFile(request.bucket(), request.key());
+        if (!Files.isRegularFile(file)) {
+            throw noSuchKey(request.key());
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        request.tagging().tagSet().forEach(t -> tags.put(t.key(), t.value()));
+        writeMetadata(
+                request.bucket(),
+                request.key(),
+                readMetadata(request.bucket(), request.key()).withTags(tags));
+        return status(PutObjectTaggingResponse.builder(), 200);
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            CreateMultipartUploadRequest request) {
+        objectFile(request.bucket(), request.key());
+        String uploadId = UUID.randomUUID().toString();
+        Path dir = root.resolve(UPLOADS_DIR).resolve(uploadId);
+        try {
+            Files.createDirectories(dir);
+            mapper.writeValue(
+                    dir.resolve(UPLOAD_FILE).toFile(),
+                    new Upload(
+                            request.bucket(),
+                            request.key(),
+                            new ObjectMetadata(
+                                    request.contentType(),
+                                    request.contentEncoding(),
+                                    request.contentDisposition(),
+                                    request.expires() == null
+                                            ? null
+                                            : request.expires().toEpochMilli(),
+                                    parseTagging(request.tagging()))));
+        } catch (IOException e) {
+            deleteQuietly(dir);
+            throw clientError(e);
+        }
+        return status(
+                CreateMultipartUploadResponse.builder()
+                        .bucket(request.bucket())
+                        .key(request.key())
+                        .uploadId(uploadId),
+                200);
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+        Path part = partFile(request.uploadId(), request.partNumber());
+        Path tmp = tempFile();
+        try (InputStream in = requestBody.contentStreamProvider().newStream()) {
+            Files.copy(in, tmp);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+        return commitPart(tmp, part);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest request) {
+        Path dir = uploadDir(request.uploadId());
+        Upload upload = readUpload(dir);
+        Path file = objectFile(upload.bucket(), upload.key());
+        Path tmp = tempFile();
+        List<CompletedPart> parts =
+                request.multipartUpload().parts().stream()
+                        .sorted(Comparator.comparing(CompletedPart::partNumber))
+                        .toList();
+        try (FileChannel out =
+                FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (CompletedPart part : parts) {
+                Path partFile = dir.resolve(PART_PREFIX + part.partNumber());
+                try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                    transfer(in, out);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            deleteQuietly(tmp);
+            throw error(400, "Upload " + request.uploadId() + " is missing a part");
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+        commit(upload.bucket(), upload.key(), tmp, file, upload.metadata());
+        deleteQuietly(dir);
+        return status(
+                CompleteMultipartUploadResponse.builder()
+                        .bucket(upload.bucket())
+                        .key(upload.key())
+                        .eTag(eTag(file)),
+                200);
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        deleteQuietly(uploadDir(request.uploadId()));
+        return status(AbortMultipartUploadResponse.builder(), 204);
+    }
+
+    // Delete the objects whose expiry time has passed. S3 leaves this to the bucket's lifecycle
+    // rules, which a plain directory does not have.
+    int deleteExpired(Instant now) throws IOException {
+        Path metadataRoot = root.resolve(METADATA_DIR);
+        if (!Files.isDirectory(metadataRoot)) {
+            return 0;
+        }
+        List<Path> sidecars;
+        try (Stream<Path> files = Files.walk(metadataRoot)) {
+            sidecars =
+                    files.filter(Files::isRegularFile)
+                            .filter(p -> p.getFileName().toString().endsWith(METADATA_SUFFIX))
+                            .toList();
+        }
+        int count = 0;
+        for (Path sidecar : sidecars) {
+            ObjectMetadata metadata;
+            try {
+                metadata = mapper.readValue(sidecar.toFile(), ObjectMetadata.class);
+            } catch (IOException e) {
+                logger.debugv("Could not read object metadata {0}: {1}", sidecar, e.getMessage());
+                continue;
+            }
+            if (metadata.expires() == null || metadata.expires() > now.toEpochMilli()) {
+                continue;
+            }
+            Path relative = metadataRoot.relativize(sidecar);
+            String bucket = relative.getName(0).toString();
+            String key = key(metadataRoot.resolve(bucket), sidecar);
+            delete(bucket, key.substring(0, key.length() - METADATA_SUFFIX.length()));
+            count++;
+        }
+        return count;
+    }
+
+    // The object's file, when it is stored without any content encoding and so can be sent to a
+    // client as it is
+    Optional<Path> plainFile(String bucket, String key) {
+        Path file = objectFile(bucket, key);
+        if (!Files.isRegularFile(file)
+                || StringUtils.isNotBlank(readMetadata(bucket, key).contentEncoding())) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    Path partFile(String uploadId, int partNumber) {
+        return uploadDir(uploadId).resolve(PART_PREFIX + partNumber);
+    }
+
+    UploadPartResponse commitPart(Path tmp, Path part) {
+        try {
+            Files.move(
+                    tmp, part, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+        return status(UploadPartResponse.builder().eTag(eTag(part)), 200);
+    }
+
+    // staged in the uploads directory, which is on the same filesystem as the objects so that
+    // finished files can be moved into place atomically
+    Path tempFile() {
+        Path dir = root.resolve(UPLOADS_DIR);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+        return dir.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    private void commit(String bucket, String key, Path tmp, Path file, ObjectMetadata metadata) {
+        try {
+            Files.createDirectories(file.getParent());
+            writeMetadata(bucket, key, metadata);
+            Files.move(
+                    tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+    }
+
+    private void delete(String bucket, String key) throws IOException {
+        Path dir = bucketDir(bucket);
+        Path file = objectFile(bucket, key);
+        Files.deleteIfExists(file);
+        Path sidecar = metadataFile(bucket, key);
+        Files.deleteIfExists(sidecar);
+        pruneEmpty(dir, file.getParent());
+        pruneEmpty(root.resolve(METADATA_DIR).resolve(bucket), sidecar.getParent());
+    }
+
+    // remove the per-JVM directories which no longer hold any objects
+    private void pruneEmpty(Path top, Path dir) throws IOException {
+        while (dir != null && dir.startsWith(top) && !dir.equals(top)) {
+            try {
+                if (!Files.deleteIfExists(dir)) {
+                    return;
+                }
+            } catch (DirectoryNotEmptyException e) {
+                return;
+            }
+            dir = dir.getParent();
+        }
+    }
+
+    private Path bucketDir(String bucket) {
+        Path dir = root.resolve(validName(bucket));
+        if (!Files.isDirectory(dir)) {
+            throw NoSuchBucketException.builder()
+                    .statusCode(404)
+                    .message("No such bucket: " + bucket)
+                    .build();
+        }
+        return dir;
+    }
+
+    private Path objectFile(String bucket, String key) {
+        Path dir = bucketDir(bucket);
+        return resolveKey(dir, key);
+    }
+
+    private Path metadataFile(String bucket, String key) {
+        Path path = resolveKey(root.resolve(METADATA_DIR).resolve(validName(bucket)), key);
+        return path.resolveSibling(path.getFileName() + METADATA_SUFFIX);
+    }
+
+    private Path uploadDir(String uploadId) {
+        Path dir = root.resolve(UPLOADS_DIR).resolve(validName(uploadId));
+        if (!Files.isRegularFile(dir.resolve(UPLOAD_FILE))) {
+            throw NoSuchUploadException.builder()
+                    .statusCode(404)
+                    .message("No such upload: " + uploadId)
+                    .build();
+        }
+        return dir;
+    }
+
+    private Upload readUpload(Path dir) {
+        try {
+            return mapper.readValue(dir.resolve(UPLOAD_FILE).toFile(), Upload.class);
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+    }
+
+    private ObjectMetadata readMetadata(String bucket, String key) {
+        Path sidecar = metadataFile(bucket, key);
+        if (!Files.isRegularFile(sidecar)) {
+            return ObjectMetadata.EMPTY;
+        }
+        try {
+            return mapper.readValue(sidecar.toFile(), ObjectMetadata.class);
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+    }
+
+    private void writeMetadata(String bucket, String key, ObjectMetadata metadata) {
+        Path sidecar = metadataFile(bucket, key);
+        Path tmp = tempFile();
+        try {
+            Files.createDirectories(sidecar.getParent());
+            mapper.writeValue(tmp.toFile(), metadata);
+            Files.move(
+                    tmp,
+                    sidecar,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw clientError(e);
+        }
+    }
+
+    private GetObjectResponse getObjectResponse(String bucket, String key, Path file) {
+        ObjectMetadata metadata = readMetadata(bucket, key);
+        try {
+            return status(
+                    GetObjectResponse.builder()
+                            .contentLength(Files.size(file))
+                            .lastModified(Files.getLastModifiedTime(file).toInstant())
+                            .eTag(eTag(file))
+                            .contentType(metadata.contentType())
+                            .contentEncoding(metadata.contentEncoding())
+                            .contentDisposition(metadata.contentDisposition())
+                            .expires(metadata.expiry())
+                            .tagCount(metadata.tags().size()),
+                    200);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(key);
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+    }
+
+    private S3Object describe(Path dir, Path file) throws IOException {
+        return S3Object.builder()
+                .key(key(dir, file))
+                .size(Files.size(file))
+                .lastModified(Files.getLastModifiedTime(file).toInstant())
+                .eTag(eTag(file))
+                .build();
+    }
+
+    // Objects are never modified in place, only replaced, so the modification time and size
+    // identify a version of the object
+    private String eTag(Path file) {
+        try {
+            return String.format(
+                    "\"%x-%x\"", Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+        } catch (IOException e) {
+            throw clientError(e);
+        }
+    }
+
+    private static String key(Path dir, Path file) {
+        return dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    // keys are relative paths within the bucket and must not escape it
+    private static Path resolveKey(Path dir, String key) {
+        if (StringUtils.isBlank(key) || key.startsWith("/") || key.endsWith("/")) {
+            throw invalidName(key);
+        }
+        for (String segment : key.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw invalidName(key);
+            }
+        }
+        Path path = dir.resolve(key).normalize();
+        if (!path.startsWith(dir) || path.equals(dir)) {
+            throw invalidName(key);
+        }
+        return path;
+    }
+
+    private static String validName(String name) {
+        if (StringUtils.isBlank(name)
+                || name.startsWith(".")
+                || name.contains("/")
+                || name.contains("\\")) {
+            throw invalidName(name);
+        }
+        return name;
+    }
+
+    private static void transfer(FileChannel in, FileChannel out) throws IOException {
+        long size = in.size();
+        long position = 0;
+        while (position < size) {
+            position += in.transferTo(position, size - position, out);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(p);
+                    }
+                }
+            } else {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.debugv("Could not delete {0}: {1}", path, e.getMessage());
+        }
+    }
+
+    static Map<String, String> parseTagging(String tagging) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        if (StringUtils.isBlank(tagging)) {
+            return tags;
+        }
+        for (String pair : tagging.split("&")) {
+            String[] kv = pair.split("=", 2);
+            tags.put(
+                    URLDecoder.decode(kv[0], StandardCharsets.UTF_8),
+                    kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "");
+        }
+        return tags;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends SdkResponse> T status(SdkResponse.Builder builder, int statusCode) {
+        return (T)
+                builder.sdkHttpResponse(SdkHttpResponse.builder().statusCode(statusCode).build())
+                        .build();
+    }
+
+    static NoSuchKeyException noSuchKey(String key) {
+        return NoSuchKeyException.builder().statusCode(404).message("No such key: " + key).build();
+    }
+
+    static SdkClientException clientError(Exception e) {
+        return SdkClientException.create(e.getMessage(), e);
+    }
+
+    private static S3Exception invalidName(String name) {
+        return error(400, "Invalid name: " + name);
+    }
+
+    private static S3Exception error(int statusCode, String message) {
+        return (S3Exception) S3Exception.builder().statusCode(statusCode).message(message).build();
+    }
+
+    record ObjectMetadata(
+            String contentType,
+            String contentEncoding,
+            String contentDisposition,
+            Long expires,
+            Map<String, String> tags) {
+        static final ObjectMetadata EMPTY = new ObjectMetadata(null, null, null, null, Map.of());
+
+        ObjectMetadata {
+            tags = tags == null ? Map.of() : tags;
+        }
+
+        ObjectMetadata withTags(Map<String, String> tags) {
+            return new ObjectMetadata(
+                    contentType, contentEncoding, contentDisposition, expires, tags);
+        }
+
+        Instant expiry() {
+            return expires == null ? null : Instant.ofEpochMilli(expires);
+        }
+    }
+
+    record Upload(String bucket, String key, ObjectMetadata metadata) {}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+import io.cryostat.ConfigProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+// Selects where archived recordings, cached reports and templates are stored: an S3 compatible
+// object storage service, or a directory on local disk for small deployments which would rather
+// not run one. Both are used through the S3 client interfaces, so everything which reads or writes
+// storage is the same either way.
+@ApplicationScoped
+public class StorageBackend {
+
+    public static final String S3 = "s3";
+    public static final String FILESYSTEM = "filesystem";
+
+    @Inject Instance<S3Client> s3Client;
+    @Inject Instance<S3AsyncClient> s3AsyncClient;
+    @Inject ObjectMapper mapper;
+    @Inject Logger logger;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_BACKEND)
+    String backend;
+
+    @ConfigProperty(name = ConfigProperties.STORAGE_FILESYSTEM_DIR)
+    Path dir;
+
+    private FileSystemS3Client fileSystemClient;
+
+    void onStart(@Observes StartupEvent evt) throws IOException {
+        if (!isFileSystem()) {
+            return;
+        }
+        Files.createDirectories(dir);
+        logger.infov("Using local storage directory {0}", dir);
+    }
+
+    public boolean isFileSystem() {
+        return FILESYSTEM.equalsIgnoreCase(backend);
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Storage
+    S3Client produceStorage() {
+        if (isFileSystem()) {
+            return fileSystemClient();
+        }
+        return s3Client.get();
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Storage
+    S3AsyncClient produceAsyncStorage() {
+        if (isFileSystem()) {
+            return new FileSystemS3AsyncClient(
+                    fileSystemClient(), Infrastructure.getDefaultWorkerPool());
+        }
+        return s3AsyncClient.get();
+    }
+
+    // The stored file of an object which can be sent to clients directly from disk, if storage
+    // is local and the object was stored without compression
+    public Optional<Path> file(String bucket, String key) {
+        if (!isFileSystem()) {
+            return Optional.empty();
+        }
+        return fileSystemClient().plainFile(bucket, key);
+    }
+
+    @Scheduled(
+            every = "${" + ConfigProperties.STORAGE_FILESYSTEM_EXPIRY_PERIOD + "}",
+            delayed = "${" + ConfigProperties.STORAGE_FILESYSTEM_EXPIRY_PERIOD + "}",
+            concurrentExecution = ConcurrentExecution.SKIP)
+    void deleteExpired() {
+        if (!isFileSystem()) {
+            return;
+        }
+        try {
+            int count = fileSystemClient().deleteExpired(Instant.now());
+            if (count > 0) {
+                logger.debugv("Deleted {0} expired objects from local storage", count);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete expired objects from local storage", e);
+        }
+    }
+
+    private synchronized FileSystemS3Client fileSystemClient() {
+        if (fileSystemClient == null) {
+            fileSystemClient = new FileSystemS3Client(dir, mapper, logger);
+        }
+        return fileSystemClient;
+    }
+}
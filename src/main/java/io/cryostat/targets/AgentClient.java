@@ -17,11 +17,18 @@ package io.cryostat.targets;
 
 import java.net.URI;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import org.openjdk.jmc.common.unit.IConstrainedMap;
 import org.openjdk.jmc.common.unit.IConstraint;
@@ -41,23 +48,38 @@ import io.cryostat.core.serialization.SerializableRecordingDescriptor;
 import io.cryostat.credentials.Credential;
 import io.cryostat.discovery.DiscoveryPlugin;
 import io.cryostat.targets.AgentJFRService.StartRecordingRequest;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.TargetDiscovery;
 import io.cryostat.util.HttpStatusCodeIdentifier;
+import io.cryostat.util.WriteStreamInputStream;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CompositeCacheKey;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.vertx.ConsumeEvent;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.unchecked.Unchecked;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.authentication.UsernamePasswordCredentials;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.predicate.ErrorConverter;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.predicate.ResponsePredicateResult;
+import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpRequest;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
 import io.vertx.mutiny.ext.web.client.WebClient;
 import io.vertx.mutiny.ext.web.codec.BodyCodec;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.ForbiddenException;
 import jdk.jfr.RecordingState;
@@ -69,19 +91,33 @@ import org.jboss.logging.Logger;
 public class AgentClient {
 
     public static final String NULL_CREDENTIALS = "No credentials found for agent";
+    private static final int STREAM_BUFFER_BYTES = 4 * 1024 * 1024;
+    static final String METADATA_CACHE_NAME = "agentmetadata";
 
     private final Target target;
     private final WebClient webClient;
     private final Duration httpTimeout;
+    private final Duration streamTimeout;
     private final ObjectMapper mapper;
+    private final Cache metadataCache;
+    private final HostMetrics metrics;
     private final Logger logger = Logger.getLogger(getClass());
 
     private AgentClient(
-            Target target, WebClient webClient, ObjectMapper mapper, Duration httpTimeout) {
+            Target target,
+            WebClient webClient,
+            ObjectMapper mapper,
+            Duration httpTimeout,
+            Duration streamTimeout,
+            Cache metadataCache,
+            HostMetrics metrics) {
         this.target = target;
         this.webClient = webClient;
         this.mapper = mapper;
         this.httpTimeout = httpTimeout;
+        this.streamTimeout = streamTimeout;
+        this.metadataCache = metadataCache;
+        this.metrics = metrics;
     }
 
     Target getTarget() {
@@ -96,6 +132,10 @@ public class AgentClient {
         return httpTimeout;
     }
 
+    Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
     Uni<Boolean> ping() {
         return invoke(HttpMethod.GET, "/", BodyCodec.none())
                 .map(HttpResponse::statusCode)
@@ -217,20 +257,59 @@ public class AgentClient {
         }
     }
 
-    Uni<Buffer> openStream(long id) {
-        return invoke(HttpMethod.GET, "/recordings/" + id, BodyCodec.buffer())
-                .map(
-                        resp -> {
-                            int statusCode = resp.statusCode();
-                            if (HttpStatusCodeIdentifier.isSuccessCode(statusCode)) {
-                                return resp.body();
-                            } else if (statusCode == 403) {
-                                throw new ForbiddenException(
-                                        new UnsupportedOperationException("openStream"));
-                            } else {
-                                throw new AgentApiException(statusCode);
-                            }
-                        });
+    // The recording is piped into the returned stream as it arrives, pausing the agent's response
+    // whenever the reader falls behind by more than STREAM_BUFFER_BYTES. A non-success response
+    // fails the stream before any body data is delivered.
+    WriteStreamInputStream openStream(long id) {
+        return openStream(id, Map.of());
+    }
+
+    // Fetch only part of the recording. Agents which do not support ranged requests ignore the
+    // query parameters and send the whole recording, which is a superset of the requested range.
+    WriteStreamInputStream openStream(long id, Duration lastPartDuration) {
+        return openStream(
+                id, Map.of("lastPartDuration", String.valueOf(lastPartDuration.toMillis())));
+    }
+
+    WriteStreamInputStream openStream(long id, Instant startTime, Instant endTime) {
+        return openStream(
+                id,
+                Map.of(
+                        "startTime",
+                        String.valueOf(startTime.toEpochMilli()),
+                        "endTime",
+                        String.valueOf(endTime.toEpochMilli())));
+    }
+
+    private WriteStreamInputStream openStream(long id, Map<String, String> queryParams) {
+        WriteStreamInputStream stream = new WriteStreamInputStream(STREAM_BUFFER_BYTES);
+        HttpRequest<Void> req =
+                request(
+                        HttpMethod.GET,
+                        "/recordings/" + id,
+                        BodyCodec.newInstance(io.vertx.ext.web.codec.BodyCodec.pipe(stream.sink())),
+                        streamTimeout);
+        queryParams.forEach(req::addQueryParam);
+        req.getDelegate()
+                .expect(
+                        ResponsePredicate.create(
+                                r ->
+                                        HttpStatusCodeIdentifier.isSuccessCode(r.statusCode())
+                                                ? ResponsePredicateResult.success()
+                                                : ResponsePredicateResult.failure(
+                                                        String.valueOf(r.statusCode())),
+                                ErrorConverter.create(
+                                        result -> {
+                                            int statusCode = result.response().statusCode();
+                                            if (statusCode == 403) {
+                                                return new ForbiddenException(
+                                                        new UnsupportedOperationException(
+                                                                "openStream"));
+                                            }
+                                            return new AgentApiException(statusCode);
+                                        })));
+        metrics.record(req.send(), true).subscribe().with(resp -> {}, stream::fail);
+        return stream;
     }
 
     Uni<Void> stopRecording(long id) {
@@ -315,12 +394,20 @@ public class AgentClient {
     }
 
     Uni<Collection<? extends IEventTypeInfo>> eventTypes() {
+        return cached("event-types", this::fetchEventTypes);
+    }
+
+    private Uni<Collection<? extends IEventTypeInfo>> fetchEventTypes() {
         return invoke(HttpMethod.GET, "/event-types/", BodyCodec.jsonArray())
                 .map(HttpResponse::body)
                 .map(arr -> arr.stream().map(o -> new AgentEventTypeInfo((JsonObject) o)).toList());
     }
 
     Uni<IConstrainedMap<EventOptionID>> eventSettings() {
+        return cached("event-settings", this::fetchEventSettings);
+    }
+
+    private Uni<IConstrainedMap<EventOptionID>> fetchEventSettings() {
         return invoke(HttpMethod.GET, "/event-settings/", BodyCodec.jsonArray())
                 .map(HttpResponse::body)
                 .map(
@@ -376,17 +463,43 @@ public class AgentClient {
     }
 
     Uni<List<String>> eventTemplates() {
+        return cached("event-templates", this::fetchEventTemplates);
+    }
+
+    private Uni<List<String>> fetchEventTemplates() {
         return invoke(HttpMethod.GET, "/event-templates/", BodyCodec.jsonArray())
                 .map(HttpResponse::body)
                 .map(arr -> arr.stream().map(Object::toString).toList());
     }
 
+    // Event metadata rarely changes over the lifetime of a JVM, so it is cached by jvmId until the
+    // target is modified or lost, or the cache entry expires
+    private <T> Uni<T> cached(String kind, Supplier<Uni<T>> loader) {
+        String jvmId = target.jvmId;
+        if (StringUtils.isBlank(jvmId)) {
+            return loader.get();
+        }
+        return metadataCache.getAsync(new CompositeCacheKey(jvmId, kind), k -> loader.get());
+    }
+
     private <T> Uni<HttpResponse<T>> invoke(HttpMethod mtd, String path, BodyCodec<T> codec) {
         return invoke(mtd, path, null, codec);
     }
 
     private <T> Uni<HttpResponse<T>> invoke(
             HttpMethod mtd, String path, Buffer payload, BodyCodec<T> codec) {
+        HttpRequest<T> req = request(mtd, path, codec, httpTimeout);
+        Uni<HttpResponse<T>> uni;
+        if (payload != null) {
+            uni = req.sendBuffer(payload);
+        } else {
+            uni = req.send();
+        }
+        return metrics.record(uni, false);
+    }
+
+    private <T> HttpRequest<T> request(
+            HttpMethod mtd, String path, BodyCodec<T> codec, Duration timeout) {
         logger.debugv("{0} {1} {2}", mtd, getUri(), path);
 
         Credential credential =
@@ -394,41 +507,222 @@ public class AgentClient {
                         .singleResult()
                         .credential;
 
-        HttpRequest<T> req =
-                webClient
-                        .request(mtd, getUri().getPort(), getUri().getHost(), path)
-                        .ssl("https".equals(getUri().getScheme()))
-                        .timeout(httpTimeout.toMillis())
-                        .followRedirects(true)
-                        .as(codec)
-                        .authentication(
-                                new UsernamePasswordCredentials(
-                                        credential.username, credential.password));
-
-        Uni<HttpResponse<T>> uni;
-        if (payload != null) {
-            uni = req.sendBuffer(payload);
-        } else {
-            uni = req.send();
-        }
-        return uni;
+        return webClient
+                .request(mtd, getUri().getPort(), getUri().getHost(), path)
+                .ssl("https".equals(getUri().getScheme()))
+                // for streaming requests this bounds the time between chunks rather than the
+                // duration of the whole transfer
+                .timeout(timeout.toMillis())
+                .followRedirects(true)
+                .as(codec)
+                .authentication(
+                        new UsernamePasswordCredentials(credential.username, credential.password));
     }
 
     @ApplicationScoped
     public static class Factory {
 
         @Inject ObjectMapper mapper;
-        @Inject WebClient webClient;
+        @Inject Vertx vertx;
         @Inject Logger logger;
 
-        @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
-        Duration timeout;
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP_CONTROL_TIMEOUT)
+        Duration controlTimeout;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP_STREAM_TIMEOUT)
+        Duration streamTimeout;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP_CONNECT_TIMEOUT)
+        Duration connectTimeout;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP_KEEP_ALIVE_TIMEOUT)
+        Duration keepAliveTimeout;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP_MAX_POOL_SIZE)
+        int maxPoolSize;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP2_ENABLED)
+        boolean http2;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP2_MAX_POOL_SIZE)
+        int http2MaxPoolSize;
+
+        @ConfigProperty(name = ConfigProperties.AGENT_HTTP2_MULTIPLEXING_LIMIT)
+        int http2MultiplexingLimit;
+
+        @CacheName(METADATA_CACHE_NAME)
+        Cache metadataCache;
+
+        private final Map<String, HostMetrics> metrics = new ConcurrentHashMap<>();
+        private WebClient tlsClient;
+        private WebClient plainClient;
+
+        void onStop(@Observes ShutdownEvent evt) {
+            synchronized (this) {
+                if (tlsClient != null) {
+                    tlsClient.close();
+                }
+                if (plainClient != null) {
+                    plainClient.close();
+                }
+            }
+        }
 
         public AgentClient create(Target target) {
-            return new AgentClient(target, webClient, mapper, timeout);
+            URI uri = target.connectUrl;
+            boolean tls = "https".equals(uri.getScheme());
+            return new AgentClient(
+                    target,
+                    client(tls),
+                    mapper,
+                    controlTimeout,
+                    streamTimeout,
+                    metadataCache,
+                    metrics.computeIfAbsent(authority(uri), HostMetrics::new));
+        }
+
+        public List<HostStats> metrics() {
+            return metrics.values().stream().map(HostMetrics::snapshot).toList();
+        }
+
+        // Agents are contacted over their own connection pools, separate from the default
+        // WebClient, so that many small control requests reuse warm (and for TLS, already
+        // handshaken) connections. HTTP/2 is only offered via ALPN over TLS, where the agent
+        // can decline it and fall back to HTTP/1.1; cleartext connections always use HTTP/1.1
+        // since prior-knowledge h2c would fail against agents which do not support it.
+        private synchronized WebClient client(boolean tls) {
+            if (tls) {
+                if (tlsClient == null) {
+                    WebClientOptions opts = options("cryostat-agent-tls").setSsl(true);
+                    if (http2) {
+                        opts.setProtocolVersion(HttpVersion.HTTP_2)
+                                .setUseAlpn(true)
+                                .setHttp2MaxPoolSize(http2MaxPoolSize)
+                                .setHttp2MultiplexingLimit(http2MultiplexingLimit)
+                                .setHttp2KeepAliveTimeout((int) keepAliveTimeout.toSeconds());
+                    }
+                    tlsClient = WebClient.create(vertx, opts);
+                }
+                return tlsClient;
+            }
+            if (plainClient == null) {
+                plainClient = WebClient.create(vertx, options("cryostat-agent"));
+            }
+            return plainClient;
+        }
+
+        private WebClientOptions options(String name) {
+            WebClientOptions opts = new WebClientOptions();
+            opts.setName(name)
+                    .setKeepAlive(true)
+                    .setKeepAliveTimeout((int) keepAliveTimeout.toSeconds())
+                    .setMaxPoolSize(maxPoolSize)
+                    .setConnectTimeout((int) connectTimeout.toMillis());
+            return opts;
+        }
+
+        private static String authority(URI uri) {
+            return String.format("%s:%d", uri.getHost(), uri.getPort());
+        }
+
+        @ConsumeEvent(value = Target.TARGET_JVM_DISCOVERY, blocking = true)
+        void onMessage(TargetDiscovery event) {
+            switch (event.kind()) {
+                case MODIFIED:
+                    // fall-through
+                case LOST:
+                    invalidate(event.jvmId()).subscribe().with((v) -> {}, logger::warn);
+                    if (event.kind() == EventKind.LOST && event.serviceRef().connectUrl != null) {
+                        metrics.remove(authority(event.serviceRef().connectUrl));
+                    }
+                    break;
+                default:
+                    // no-op
+                    break;
+            }
+        }
+
+        public Uni<Void> invalidate(String jvmId) {
+            if (StringUtils.isBlank(jvmId)) {
+                return Uni.createFrom().voidItem();
+            }
+            // 0-index is the jvmId, see cached()
+            return metadataCache.invalidateIf(
+                    k -> Objects.equals(((CompositeCacheKey) k).getKeyElements()[0], jvmId));
         }
     }
 
+    // Vert.x does not expose its connection pool statistics without a metrics SPI implementation,
+    // so these are tracked at the request level
+    static class HostMetrics {
+        private final String host;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder streams = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+        HostMetrics(String host) {
+            this.host = host;
+        }
+
+        // streaming transfers are counted separately and excluded from the latency figures, since
+        // their duration depends on the size of the recording rather than on the connection
+        <T> Uni<HttpResponse<T>> record(Uni<HttpResponse<T>> uni, boolean stream) {
+            return Uni.createFrom()
+                    .deferred(
+                            () -> {
+                                long start = System.nanoTime();
+                                (stream ? streams : requests).increment();
+                                inFlight.incrementAndGet();
+                                return uni.onTermination()
+                                        .invoke(
+                                                (resp, t, cancelled) ->
+                                                        complete(
+                                                                stream,
+                                                                System.nanoTime() - start,
+                                                                t != null || !isSuccess(resp)));
+                            });
+        }
+
+        private void complete(boolean stream, long elapsedNanos, boolean error) {
+            inFlight.decrementAndGet();
+            if (!stream) {
+                totalLatencyNanos.add(elapsedNanos);
+                maxLatencyNanos.accumulate(elapsedNanos);
+            }
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        private static boolean isSuccess(HttpResponse<?> resp) {
+            return resp == null || HttpStatusCodeIdentifier.isSuccessCode(resp.statusCode());
+        }
+
+        HostStats snapshot() {
+            long count = requests.sum();
+            return new HostStats(
+                    host,
+                    count,
+                    streams.sum(),
+                    errors.sum(),
+                    inFlight.get(),
+                    count == 0 ? 0 : Duration.ofNanos(totalLatencyNanos.sum() / count).toMillis(),
+                    Duration.ofNanos(maxLatencyNanos.get()).toMillis());
+        }
+    }
+
+    public record HostStats(
+            String host,
+            long requests,
+            long streams,
+            long errors,
+            long inFlight,
+            long meanLatencyMs,
+            long maxLatencyMs) {}
+
     private static class AgentEventTypeInfo implements IEventTypeInfo {
 
         final JsonObject json;
@@ -16,10 +16,11 @@
 package io.cryostat.targets;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -50,10 +51,9 @@ import io.cryostat.core.net.CryostatFlightRecorderService;
 import io.cryostat.core.templates.Template;
 import io.cryostat.core.templates.TemplateService;
 import io.cryostat.core.templates.TemplateType;
+import io.cryostat.util.WriteStreamInputStream;
 
 import io.smallrye.common.annotation.Blocking;
-import io.smallrye.mutiny.Uni;
-import io.vertx.mutiny.core.buffer.Buffer;
 import org.jboss.logging.Logger;
 
 class AgentJFRService implements CryostatFlightRecorderService {
@@ -165,18 +165,22 @@ class AgentJFRService implements CryostatFlightRecorderService {
     @Override
     public InputStream openStream(IRecordingDescriptor descriptor, boolean removeOnClose)
             throws FlightRecorderException {
-        Uni<Buffer> u = client.openStream(descriptor.getId());
-        Buffer b = u.await().atMost(client.getTimeout());
-        return new BufferedInputStream(new ByteArrayInputStream(b.getBytes()));
+        return open(client.openStream(descriptor.getId()));
     }
 
+    @Blocking
     @Override
     public InputStream openStream(
             IRecordingDescriptor descriptor, IQuantity lastPartDuration, boolean removeOnClose)
             throws FlightRecorderException {
-        throw new UnimplementedException();
+        return open(
+                client.openStream(
+                        descriptor.getId(),
+                        Duration.ofMillis(
+                                lastPartDuration.clampedLongValueIn(UnitLookup.MILLISECOND))));
     }
 
+    @Blocking
     @Override
     public InputStream openStream(
             IRecordingDescriptor descriptor,
@@ -184,7 +188,21 @@ class AgentJFRService implements CryostatFlightRecorderService {
             IQuantity endTime,
             boolean removeOnClose)
             throws FlightRecorderException {
-        throw new UnimplementedException();
+        return open(
+                client.openStream(
+                        descriptor.getId(),
+                        Instant.ofEpochMilli(startTime.clampedLongValueIn(UnitLookup.EPOCH_MS)),
+                        Instant.ofEpochMilli(endTime.clampedLongValueIn(UnitLookup.EPOCH_MS))));
+    }
+
+    private InputStream open(WriteStreamInputStream stream) throws FlightRecorderException {
+        try {
+            stream.awaitStart(client.getStreamTimeout());
+        } catch (IOException e) {
+            stream.close();
+            throw new FlightRecorderException("Failed to open agent recording stream", e);
+        }
+        return new BufferedInputStream(stream);
     }
 
     @Override
@@ -20,6 +20,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +36,7 @@ import io.cryostat.core.JvmIdentifier;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.credentials.Credential;
 import io.cryostat.discovery.DiscoveryNode;
+import io.cryostat.discovery.DiscoveryTree;
 import io.cryostat.expressions.MatchExpressionEvaluator;
 import io.cryostat.recordings.ActiveRecording;
 import io.cryostat.recordings.RecordingHelper;
@@ -49,6 +51,7 @@ import io.quarkus.vertx.ConsumeEvent;
 import io.smallrye.common.annotation.Blocking;
 import io.vertx.mutiny.core.eventbus.EventBus;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -295,6 +298,7 @@ public class Target extends PanacheEntity {
         @Inject TargetConnectionManager connectionManager;
         @Inject RecordingHelper recordingHelper;
         @Inject MatchExpressionEvaluator matchExpressionEvaluator;
+        @Inject Event<DiscoveryTree.Changed> treeChanges;
 
         @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
         Duration timeout;
@@ -394,20 +398,33 @@ public class Target extends PanacheEntity {
         }
 
         private void notify(EventKind eventKind, Target target) {
+            treeChanges.fire(
+                    new DiscoveryTree.Changed(
+                            new TargetDiscovery(eventKind, target, target.jvmId)));
             bus.publish(
                     MessagingServer.class.getName(),
                     new Notification(
                             TARGET_JVM_DISCOVERY,
                             new TargetDiscoveryEvent(
-                                    new TargetDiscovery(eventKind, target, target.jvmId))));
+                                    new TargetDiscovery(eventKind, target, target.jvmId)),
+                            target.jvmId,
+                            target.labels));
             bus.publish(TARGET_JVM_DISCOVERY, new TargetDiscovery(eventKind, target, target.jvmId));
         }
 
-        public record TargetDiscoveryEvent(TargetDiscovery event) {
+        public record TargetDiscoveryEvent(TargetDiscovery event)
+                implements Notification.Identified {
             public TargetDiscoveryEvent {
                 Objects.requireNonNull(event);
             }
 
+            // only repeated MODIFIED events supersede each other, so that a client is never sent a
+            // MODIFIED or LOST without the FOUND before it
+            @Override
+            public Object identity() {
+                return Arrays.asList(event.kind(), event.serviceRef().id);
+            }
+
             public String jvmId() {
                 return event.serviceRef().jvmId;
             }
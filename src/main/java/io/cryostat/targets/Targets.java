@@ -37,6 +37,7 @@ public class Targets {
 
     @Inject MatchExpressionEvaluator matchExpressionEvaluator;
     @Inject TargetConnectionManager connectionManager;
+    @Inject AgentClient.Factory agentClientFactory;
     @Inject Logger logger;
 
     @ConfigProperty(name = ConfigProperties.CONNECTIONS_FAILED_TIMEOUT)
@@ -64,4 +65,11 @@ public class Targets {
     public Target getById(@RestPath Long id) {
         return Target.find("id", id).singleResult();
     }
+
+    @GET
+    @Path("/api/beta/agents/metrics")
+    @RolesAllowed("read")
+    public List<AgentClient.HostStats> agentMetrics() {
+        return agentClientFactory.metrics();
+    }
 }
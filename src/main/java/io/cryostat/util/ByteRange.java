@@ -0,0 +1,121 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+
+// A single HTTP byte range, resolved against the length of the representation it selects from.
+// Requests for several ranges at once are treated as if no range was given, which is allowed, so
+// that the whole representation is sent instead of a multipart response.
+public record ByteRange(long start, long end) {
+
+    public static final String UNIT = "bytes";
+    public static final String RANGE = "Range";
+    public static final String IF_RANGE = "If-Range";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String CONTENT_RANGE = "Content-Range";
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public boolean isSatisfiable(long size) {
+        return start < size && start <= end;
+    }
+
+    public String contentRange(long size) {
+        return String.format("%s %d-%d/%d", UNIT, start, end, size);
+    }
+
+    public static String unsatisfiedContentRange(long size) {
+        return String.format("%s */%d", UNIT, size);
+    }
+
+    // the same range in the form of a Range request header, ie. for a ranged storage request
+    public String rangeHeader() {
+        return String.format("%s=%d-%d", UNIT, start, end);
+    }
+
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (StringUtils.isBlank(header)) {
+            return Optional.empty();
+        }
+        String[] parts = header.trim().split("=", 2);
+        if (parts.length != 2 || !UNIT.equalsIgnoreCase(parts[0].trim())) {
+            return Optional.empty();
+        }
+        String spec = parts[1].trim();
+        if (spec.contains(",")) {
+            return Optional.empty();
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.empty();
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                // a suffix of the given length
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(new ByteRange(Math.max(0, size - suffix), size - 1));
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return Optional.empty();
+            }
+            return Optional.of(new ByteRange(start, Math.min(end, size - 1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Whether a range request may be honoured given its If-Range precondition, which must match
+    // the current representation's ETag exactly or name its modification time
+    public static boolean ifRangeMatches(String ifRange, String eTag, Instant lastModified) {
+        if (StringUtils.isBlank(ifRange)) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        if (value.startsWith("\"")) {
+            return value.equals(eTag);
+        }
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            Instant date =
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.equals(lastModified.truncatedTo(ChronoUnit.SECONDS));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
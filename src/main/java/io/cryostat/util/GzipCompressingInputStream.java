@@ -0,0 +1,95 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+// Produces the gzip encoding of the wrapped stream as it is read, so that a recording can be
+// compressed on its way to storage without being buffered in full or spooled to disk
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final Output out = new Output();
+    private final GZIPOutputStream gzip;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int pos;
+    private boolean finished;
+
+    public GzipCompressingInputStream(InputStream in) throws IOException {
+        this.in = in;
+        this.gzip = new GZIPOutputStream(out, CHUNK_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        while (pos >= out.size()) {
+            if (finished) {
+                return -1;
+            }
+            out.reset();
+            pos = 0;
+            int n = in.read(chunk);
+            if (n < 0) {
+                gzip.finish();
+                finished = true;
+            } else {
+                gzip.write(chunk, 0, n);
+            }
+        }
+        int n = Math.min(len, out.size() - pos);
+        System.arraycopy(out.buffer(), pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return out.size() - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // releases the native deflater
+            gzip.close();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
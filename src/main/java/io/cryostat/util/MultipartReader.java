@@ -0,0 +1,246 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class MultipartReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final Pattern BOUNDARY_PATTERN =
+            Pattern.compile("(?i)(?:^|;)\\s*boundary\\s*=\\s*(\"([^\"]*)\"|[^;\\s]*)");
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    public MultipartReader(InputStream in, String boundary) {
+        this(in, boundary, DEFAULT_BUFFER_SIZE);
+    }
+
+    MultipartReader(InputStream in, String boundary, int bufferSize) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buf = new byte[Math.max(bufferSize, 2 * delimiter.length)];
+        // treat the body as though it were preceded by a line break, so that the first boundary is
+        // found the same way as all the others and any preamble is skipped as if it were a part
+        buf[limit++] = '\r';
+        buf[limit++] = '\n';
+        this.current = new PartInputStream();
+    }
+
+    public static Optional<String> boundary(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        Matcher m = BOUNDARY_PATTERN.matcher(contentType);
+        if (!m.find()) {
+            return Optional.empty();
+        }
+        String boundary = m.group(2) != null ? m.group(2) : m.group(1);
+        return boundary.isEmpty() ? Optional.empty() : Optional.of(boundary);
+    }
+
+    /**
+     * Advance to the next part of the body, skipping over whatever remains unread of the current
+     * part. The returned part's body stream is only valid until the next call to this method.
+     */
+    public Optional<Part> next() throws IOException {
+        if (current != null) {
+            current.drain();
+            current = null;
+        }
+        if (finished) {
+            return Optional.empty();
+        }
+        if (fill(2) >= 2 && buf[pos] == '-' && buf[pos + 1] == '-') {
+            finished = true;
+            return Optional.empty();
+        }
+        if (!readLine().isBlank()) {
+            throw new IOException("Malformed multipart boundary");
+        }
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int total = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            total += line.length();
+            if (total > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart headers too large");
+            }
+            int idx = line.indexOf(':');
+            if (idx > 0) {
+                headers.put(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
+            }
+        }
+        current = new PartInputStream();
+        return Optional.of(new Part(headers, current));
+    }
+
+    private int fill(int wanted) throws IOException {
+        if (limit - pos >= wanted || eof) {
+            return limit - pos;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < wanted && !eof) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return limit - pos;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            if (fill(1) < 1) {
+                throw new IOException("Unexpected end of multipart stream");
+            }
+            byte b = buf[pos++];
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+            if (line.size() > MAX_HEADER_BYTES) {
+                throw new IOException("Multipart header line too long");
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private int indexOfDelimiter() {
+        outer:
+        for (int i = pos; i <= limit - delimiter.length; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public record Part(Map<String, String> headers, InputStream body) {
+        private static final String PARAM_REGEX = "(?i)(?:^|;)\\s*%s\\s*=\\s*(\"([^\"]*)\"|[^;]*)";
+
+        public Optional<String> name() {
+            return dispositionParam("name");
+        }
+
+        public Optional<String> filename() {
+            return dispositionParam("filename");
+        }
+
+        public Optional<String> contentType() {
+            return Optional.ofNullable(headers.get("Content-Type"));
+        }
+
+        public String readString(int maxBytes) throws IOException {
+            byte[] bytes = body.readNBytes(maxBytes + 1);
+            if (bytes.length > maxBytes) {
+                throw new IOException(String.format("Multipart field exceeds %d bytes", maxBytes));
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private Optional<String> dispositionParam(String key) {
+            String disposition = headers.get("Content-Disposition");
+            if (disposition == null) {
+                return Optional.empty();
+            }
+            Matcher m =
+                    Pattern.compile(String.format(PARAM_REGEX, Pattern.quote(key)))
+                            .matcher(disposition);
+            if (!m.find()) {
+                return Optional.empty();
+            }
+            return Optional.of(m.group(2) != null ? m.group(2) : m.group(1).trim());
+        }
+    }
+
+    private class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (done || current != this) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            fill(delimiter.length);
+            int idx = indexOfDelimiter();
+            int available;
+            if (idx >= 0) {
+                available = idx - pos;
+                if (available == 0) {
+                    pos += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+            } else if (eof) {
+                throw new IOException("Unexpected end of multipart stream");
+            } else {
+                // hold back anything which may be the start of a delimiter split across reads
+                available = limit - pos - (delimiter.length - 1);
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        void drain() throws IOException {
+            byte[] skip = new byte[8192];
+            while (read(skip, 0, skip.length) >= 0) {}
+        }
+    }
+}
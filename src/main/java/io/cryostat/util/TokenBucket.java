@@ -0,0 +1,61 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.util.concurrent.TimeUnit;
+
+// Limits a byte rate by making callers wait until the bytes they want to move have accrued. A
+// caller which takes more than is available goes into debt and waits for it to be repaid, so large
+// requests are neither starved nor split up, and later callers queue behind the debt.
+public class TokenBucket {
+
+    private final long ratePerSecond;
+    private final long capacity;
+    private double tokens;
+    private long lastRefill;
+
+    // a rate of zero or less is unlimited
+    public TokenBucket(long ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(ratePerSecond, 0);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public boolean isLimited() {
+        return ratePerSecond > 0;
+    }
+
+    public void acquire(long n) throws InterruptedException {
+        if (!isLimited() || n <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens =
+                    Math.min(
+                            capacity,
+                            tokens + (now - lastRefill) * (double) ratePerSecond / 1_000_000_000L);
+            lastRefill = now;
+            tokens -= n;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1_000_000_000L / ratePerSecond);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+public class WriteStreamInputStream extends InputStream {
+
+    private final Object lock = new Object();
+    private final Deque<Buffer> chunks = new ArrayDeque<>();
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+    private final Sink sink = new Sink();
+
+    private int maxQueuedBytes;
+    private long queuedBytes;
+    private Buffer current;
+    private int position;
+    private boolean ended;
+    private boolean closed;
+    private Throwable failure;
+    private Handler<Void> drainHandler;
+    private Context context;
+
+    public WriteStreamInputStream(int maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    public WriteStream<Buffer> sink() {
+        return sink;
+    }
+
+    /**
+     * Fail the stream, for example because the source request failed. If no data has been received
+     * yet then the failure is also reported by {@link #awaitStart(Duration)}, otherwise it is
+     * thrown to the reader once the data already received has been consumed.
+     */
+    public void fail(Throwable t) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = t;
+            }
+            lock.notifyAll();
+        }
+        started.completeExceptionally(t);
+    }
+
+    /**
+     * Wait until the source has produced its first chunk of data or has ended, or rethrow the
+     * failure that occurred before that point.
+     */
+    public void awaitStart(Duration timeout) throws IOException {
+        try {
+            started.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (TimeoutException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        Handler<Void> drain = null;
+        Context ctx;
+        int n;
+        synchronized (lock) {
+            while (current == null || position >= current.length()) {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                current = chunks.pollFirst();
+                position = 0;
+                if (current != null) {
+                    continue;
+                }
+                if (failure != null) {
+                    throw new IOException(failure);
+                }
+                if (ended) {
+                    return -1;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            n = Math.min(len, current.length() - position);
+            current.getBytes(position, position + n, b, off);
+            position += n;
+            queuedBytes -= n;
+            if (drainHandler != null && queuedBytes <= maxQueuedBytes / 2) {
+                drain = drainHandler;
+                drainHandler = null;
+            }
+            ctx = context;
+        }
+        if (drain != null) {
+            if (ctx != null) {
+                ctx.runOnContext(drain);
+            } else {
+                drain.handle(null);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public int available() {
+        synchronized (lock) {
+            return (int) Math.min(Integer.MAX_VALUE, queuedBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            chunks.clear();
+            current = null;
+            queuedBytes = 0;
+            lock.notifyAll();
+        }
+    }
+
+    private class Sink implements WriteStream<Buffer> {
+
+        @Override
+        public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public Future<Void> write(Buffer data) {
+            synchronized (lock) {
+                if (closed) {
+                    // the reader has gone away, so fail the write to stop the source
+                    return Future.failedFuture(new IOException("Stream closed"));
+                }
+                if (context == null) {
+                    context = Vertx.currentContext();
+                }
+                chunks.addLast(data);
+                queuedBytes += data.length();
+                lock.notifyAll();
+            }
+            started.complete(null);
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+            Future<Void> f = write(data);
+            if (handler != null) {
+                handler.handle(f);
+            }
+        }
+
+        @Override
+        public Future<Void> end() {
+            synchronized (lock) {
+                ended = true;
+                lock.notifyAll();
+            }
+            started.complete(null);
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void end(Handler<AsyncResult<Void>> handler) {
+            Future<Void> f = end();
+            if (handler != null) {
+                handler.handle(f);
+            }
+        }
+
+        @Override
+        public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+            synchronized (lock) {
+                maxQueuedBytes = maxSize;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean writeQueueFull() {
+            synchronized (lock) {
+                return queuedBytes >= maxQueuedBytes;
+            }
+        }
+
+        @Override
+        public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+            boolean drained;
+            synchronized (lock) {
+                // the reader may have caught up before the source asked to be told about it
+                drained = handler != null && queuedBytes <= maxQueuedBytes / 2;
+                drainHandler = drained ? null : handler;
+            }
+            if (drained) {
+                handler.handle(null);
+            }
+            return this;
+        }
+    }
+}
@@ -18,14 +18,25 @@ package io.cryostat.ws;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.cryostat.ConfigProperties;
+import io.cryostat.discovery.DiscoveryTree;
+import io.cryostat.targets.Target;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.scheduler.Scheduled;
 import io.quarkus.vertx.ConsumeEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.core.Vertx;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.websocket.OnClose;
@@ -34,6 +45,7 @@ import jakarta.websocket.OnMessage;
 import jakarta.websocket.OnOpen;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.ServerEndpoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 @ApplicationScoped
@@ -41,24 +53,39 @@ import org.jboss.logging.Logger;
 public class MessagingServer {
 
     private static final String CLIENT_ACTIVITY_CATEGORY = "WsClientActivity";
+    private static final String RESUME_TYPE = "resume";
+    private static final String SUBSCRIBE_TYPE = "subscribe";
+    private static final String BATCH_TYPE = "batch";
     private static final ByteBuffer PING_MSG =
             ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8));
 
     @Inject ObjectMapper mapper;
     @Inject Logger logger;
-    private final Set<Session> sessions = new CopyOnWriteArraySet<>();
+    @Inject DiscoveryTree tree;
+    @Inject Vertx vertx;
+    private final Map<Session, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @ConfigProperty(name = ConfigProperties.WEBSOCKET_QUEUE_CAPACITY)
+    int queueCapacity;
+
+    @ConfigProperty(name = ConfigProperties.WEBSOCKET_OVERFLOW_POLICY)
+    SessionQueue.OverflowPolicy overflowPolicy;
+
+    @ConfigProperty(name = ConfigProperties.WEBSOCKET_BATCH_WINDOW)
+    Duration batchWindow;
 
     @OnOpen
     public void onOpen(Session session) throws InterruptedException {
         logger.debugv("Adding session {0}", session.getId());
-        sessions.add(session);
+        sessions.put(session, new SessionQueue(session, queueCapacity, overflowPolicy, dropped));
         broadcast(new Notification(CLIENT_ACTIVITY_CATEGORY, Map.of(session.getId(), "connected")));
     }
 
     @OnClose
     public void onClose(Session session) throws InterruptedException {
         logger.debugv("Removing session {0}", session.getId());
-        sessions.remove(session);
+        remove(session);
         broadcast(
                 new Notification(
                         CLIENT_ACTIVITY_CATEGORY, Map.of(session.getId(), "disconnected")));
@@ -73,7 +100,7 @@ public class MessagingServer {
         } catch (IOException ioe) {
             logger.error("Unable to close session", ioe);
         }
-        sessions.remove(session);
+        remove(session);
         broadcast(
                 new Notification(
                         CLIENT_ACTIVITY_CATEGORY, Map.of(session.getId(), "disconnected")));
@@ -82,45 +109,197 @@ public class MessagingServer {
     @OnMessage
     public void onMessage(Session session, String message) {
         logger.debugv("{0} message: \"{1}\"", session.getId(), message);
+        JsonNode node;
+        try {
+            node = mapper.readTree(message);
+        } catch (JsonProcessingException e) {
+            logger.debugv(e, "Ignoring malformed message from {0}", session.getId());
+            return;
+        }
+        String type = node.path("type").asText();
+        if (SUBSCRIBE_TYPE.equals(type)) {
+            subscribe(session, node);
+        } else if (BATCH_TYPE.equals(type)) {
+            var queue = sessions.get(session);
+            if (queue != null) {
+                queue.batching(node.path("enabled").asBoolean(true));
+            }
+        } else if (RESUME_TYPE.equals(type)) {
+            String epoch = node.path("epoch").asText();
+            long version = node.path("version").asLong(-1);
+            // may need to rebuild the tree snapshot from the database, so get off the IO thread
+            Infrastructure.getDefaultWorkerPool().execute(() -> resume(session, epoch, version));
+        }
+    }
+
+    // Restrict the notifications sent to this session to the given categories and, for
+    // notifications concerning a target, to targets with the given jvmIds and matching all of the
+    // given label selectors. Omitted or empty criteria match everything, so an empty subscription
+    // restores the default of receiving all notifications.
+    private void subscribe(Session session, JsonNode node) {
+        var queue = sessions.get(session);
+        if (queue == null) {
+            return;
+        }
+        try {
+            var subscription = Subscription.from(node);
+            queue.subscription(subscription);
+            logger.debugv("Session {0} subscribed: {1}", session.getId(), subscription);
+        } catch (IllegalArgumentException e) {
+            logger.debugv(e, "Ignoring invalid subscription from {0}", session.getId());
+        }
+    }
+
+    // A client that knows the discovery tree as of some version asks to be caught up. Deltas it
+    // missed are replayed from the tree's buffer if possible, otherwise it receives a full
+    // snapshot. In either case the client should discard any further deltas at or below the
+    // version it has applied, since live deltas may interleave with the replay.
+    private void resume(Session session, String epoch, long version) {
+        var missed = tree.deltasSince(epoch, version);
+        if (missed.isPresent()) {
+            logger.debugv(
+                    "Replaying {0} discovery deltas to {1} since {2}",
+                    missed.get().size(), session.getId(), version);
+            missed.get()
+                    .forEach(
+                            d ->
+                                    serialize(new Notification(DiscoveryTree.DELTA_CATEGORY, d))
+                                            .ifPresent(frame -> send(session, frame)));
+        } else {
+            logger.debugv("Sending discovery snapshot to {0}", session.getId());
+            serialize(new Notification(DiscoveryTree.SNAPSHOT_CATEGORY, tree.snapshotMessage()))
+                    .ifPresent(frame -> send(session, frame));
+        }
     }
 
     @ConsumeEvent(blocking = true, ordered = true)
     void broadcast(Notification notification) {
+        var target = new NotificationTarget(notification);
+        SessionQueue.Frame frame = null;
+        for (var queue : sessions.values()) {
+            var subscription = queue.subscription();
+            if (!subscription.acceptsCategory(notification.category())
+                    || !subscription.acceptsTarget(target::jvmId, target::labels)) {
+                continue;
+            }
+            if (frame == null) {
+                var serialized = serialize(notification);
+                if (serialized.isEmpty()) {
+                    return;
+                }
+                frame = serialized.get();
+                logger.debugv("Broadcasting: {0}", frame.json());
+            }
+            if (queue.batching()) {
+                if (queue.batch(frame, target.coalesceKey())) {
+                    vertx.setTimer(batchWindow.toMillis(), id -> queue.flush());
+                }
+            } else {
+                queue.offer(frame);
+            }
+        }
+    }
+
+    private Optional<SessionQueue.Frame> serialize(Notification notification) {
         var map =
                 Map.of(
                         "meta",
                         Map.of("category", notification.category()),
                         "message",
                         notification.message());
-        String json;
         try {
-            json = mapper.writeValueAsString(map);
+            return Optional.of(
+                    new SessionQueue.Frame(
+                            notification.category(), mapper.writeValueAsString(map)));
         } catch (JsonProcessingException e) {
             logger.errorv(e, "Unable to serialize message to JSON: {0}", notification);
-            return;
+            return Optional.empty();
         }
-        logger.debugv("Broadcasting: {0}", json);
-        sessions.forEach(
-                s ->
-                        s.getAsyncRemote()
-                                .sendText(
-                                        json,
-                                        h -> {
-                                            if (!h.isOK()) {
-                                                logger.warn(h.getException());
-                                            }
-                                        }));
+    }
+
+    private void send(Session session, SessionQueue.Frame frame) {
+        var queue = sessions.get(session);
+        if (queue != null) {
+            queue.offer(frame);
+        }
+    }
+
+    private void remove(Session session) {
+        var queue = sessions.remove(session);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    public Metrics metrics() {
+        var list =
+                sessions.entrySet().stream()
+                        .map(
+                                e ->
+                                        new SessionMetrics(
+                                                e.getKey().getId(),
+                                                e.getValue().depth(),
+                                                e.getValue().dropped()))
+                        .toList();
+        return new Metrics(queueCapacity, overflowPolicy, dropped.get(), list);
     }
 
     @Scheduled(every = "${cryostat.websocket.ping-period:20s}")
     void pingClients() {
-        sessions.forEach(
-                session -> {
-                    try {
-                        session.getBasicRemote().sendPing(PING_MSG);
-                    } catch (IOException e) {
-                        logger.debug(e);
-                    }
-                });
+        sessions.keySet()
+                .forEach(
+                        session -> {
+                            try {
+                                session.getBasicRemote().sendPing(PING_MSG);
+                            } catch (IOException e) {
+                                logger.debug(e);
+                            }
+                        });
+    }
+
+    // The target a notification concerns, if any. Labels the sender did not provide are looked up
+    // at most once per broadcast, and only if some session filters by label.
+    private class NotificationTarget {
+        private final Notification notification;
+        private Map<String, String> labels;
+
+        NotificationTarget(Notification notification) {
+            this.notification = notification;
+            this.labels = notification.labels();
+        }
+
+        Optional<String> jvmId() {
+            return Optional.ofNullable(notification.jvmId());
+        }
+
+        Map<String, String> labels() {
+            if (labels == null) {
+                labels = jvmId().flatMap(this::lookupLabels).orElse(Map.of());
+            }
+            return labels;
+        }
+
+        // Updates to the same entity within a batch window supersede each other. Discovery tree
+        // deltas are never coalesced since clients track their versions.
+        Optional<Object> coalesceKey() {
+            if (!(notification.message() instanceof Notification.Identified message)) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(message.identity())
+                    .map(identity -> List.of(notification.category(), identity));
+        }
+
+        private Optional<Map<String, String>> lookupLabels(String id) {
+            return QuarkusTransaction.joiningExisting()
+                    .call(() -> Target.getTargetByJvmId(id).map(t -> Map.copyOf(t.labels)));
+        }
     }
+
+    public record Metrics(
+            int queueCapacity,
+            SessionQueue.OverflowPolicy overflowPolicy,
+            long droppedTotal,
+            List<SessionMetrics> sessions) {}
+
+    public record SessionMetrics(String id, int queueDepth, long dropped) {}
 }
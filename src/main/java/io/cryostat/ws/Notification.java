@@ -15,11 +15,35 @@
  */
 package io.cryostat.ws;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 // FIXME the category should come from an enum and be non-null
-public record Notification(String category, Object message) {
+// jvmId identifies the target a notification concerns, if any, so that sessions subscribed to
+// particular targets can be matched without inspecting the message. labels are that target's
+// labels, or null if the sender did not have them at hand and they should be looked up.
+public record Notification(
+        String category, Object message, String jvmId, Map<String, String> labels) {
     public Notification {
         Objects.requireNonNull(category);
+        if (labels != null) {
+            labels = Collections.unmodifiableMap(new HashMap<>(labels));
+        }
+    }
+
+    public Notification(String category, Object message) {
+        this(category, message, null, null);
+    }
+
+    public Notification(String category, Object message, String jvmId) {
+        this(category, message, jvmId, null);
+    }
+
+    // Implemented by messages about a single entity. Notifications of the same category about the
+    // same entity within one batch window supersede each other.
+    public interface Identified {
+        Object identity();
     }
 }
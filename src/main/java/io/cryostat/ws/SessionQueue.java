@@ -0,0 +1,271 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.ws;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.CloseReason.CloseCodes;
+import jakarta.websocket.Session;
+import org.jboss.logging.Logger;
+
+class SessionQueue {
+
+    static final String BATCH_CATEGORY = "batch";
+
+    private final Session session;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final AtomicLong droppedTotal;
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final Deque<Frame> pending = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+    private long dropped;
+    private volatile Subscription subscription = Subscription.ALL;
+    private volatile boolean batching;
+    // insertion-ordered so that a coalesced update takes the position of the first update to the
+    // same entity within the window
+    private Map<Object, Frame> batch;
+
+    SessionQueue(Session session, int capacity, OverflowPolicy policy, AtomicLong droppedTotal) {
+        this.session = session;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.droppedTotal = droppedTotal;
+    }
+
+    void offer(Frame frame) {
+        Frame next;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (pending.size() >= capacity) {
+                switch (policy) {
+                    case DISCONNECT:
+                        closed = true;
+                        dropped += pending.size() + 1;
+                        droppedTotal.addAndGet(pending.size() + 1);
+                        pending.clear();
+                        break;
+                    case COALESCE:
+                        if (!removeOldest(pending, frame.category())) {
+                            pending.removeFirst();
+                        }
+                        drop();
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        pending.removeFirst();
+                        drop();
+                        break;
+                }
+            }
+            if (closed) {
+                next = null;
+            } else {
+                pending.addLast(frame);
+                if (writing) {
+                    return;
+                }
+                writing = true;
+                next = pending.pollFirst();
+            }
+        }
+        if (next == null) {
+            disconnect();
+        } else {
+            write(next);
+        }
+    }
+
+    Subscription subscription() {
+        return subscription;
+    }
+
+    void subscription(Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    boolean batching() {
+        return batching;
+    }
+
+    void batching(boolean batching) {
+        this.batching = batching;
+        if (!batching) {
+            flush();
+        }
+    }
+
+    /**
+     * Add a frame to the current batch window, replacing any earlier frame in the window with the
+     * same coalescing key. The window holds at most as many frames as the queue, and the overflow
+     * policy applies to it in the same way. Returns true if this frame opened a new window, in
+     * which case the caller is responsible for calling {@link #flush()} when the window elapses.
+     */
+    boolean batch(Frame frame, Optional<?> key) {
+        boolean overflowed = false;
+        boolean opened;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            opened = batch == null;
+            if (opened) {
+                batch = new LinkedHashMap<>();
+            }
+            Object k = key.isPresent() ? key.get() : new Object();
+            if (!batch.containsKey(k) && batch.size() >= capacity) {
+                switch (policy) {
+                    case DISCONNECT:
+                        closed = true;
+                        overflowed = true;
+                        dropped += batch.size() + pending.size() + 1;
+                        droppedTotal.addAndGet(batch.size() + pending.size() + 1);
+                        batch = null;
+                        pending.clear();
+                        break;
+                    case COALESCE:
+                        if (!removeOldest(batch.values(), frame.category())) {
+                            removeOldest(batch.values());
+                        }
+                        drop();
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        removeOldest(batch.values());
+                        drop();
+                        break;
+                }
+            }
+            if (!overflowed) {
+                batch.put(k, frame);
+            }
+        }
+        if (overflowed) {
+            disconnect();
+            return false;
+        }
+        return opened;
+    }
+
+    void flush() {
+        Collection<Frame> frames;
+        synchronized (this) {
+            if (batch == null) {
+                return;
+            }
+            frames = batch.values();
+            batch = null;
+        }
+        String json = frames.stream().map(Frame::json).collect(Collectors.joining(",", "[", "]"));
+        offer(new Frame(BATCH_CATEGORY, json));
+    }
+
+    synchronized int depth() {
+        return pending.size();
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+        batch = null;
+    }
+
+    private void write(Frame frame) {
+        session.getAsyncRemote()
+                .sendText(
+                        frame.json(),
+                        h -> {
+                            if (!h.isOK()) {
+                                logger.warn(h.getException());
+                            }
+                            Frame next;
+                            synchronized (this) {
+                                next = closed ? null : pending.pollFirst();
+                                if (next == null) {
+                                    writing = false;
+                                }
+                            }
+                            if (next != null) {
+                                write(next);
+                            }
+                        });
+    }
+
+    private static boolean removeOldest(Collection<Frame> frames, String category) {
+        Iterator<Frame> it = frames.iterator();
+        while (it.hasNext()) {
+            if (Objects.equals(category, it.next().category())) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void removeOldest(Collection<Frame> frames) {
+        Iterator<Frame> it = frames.iterator();
+        it.next();
+        it.remove();
+    }
+
+    private void drop() {
+        dropped++;
+        droppedTotal.incrementAndGet();
+    }
+
+    private void disconnect() {
+        logger.warnv(
+                "Closing session {0}: outbound queue exceeded {1} messages",
+                session.getId(), capacity);
+        try {
+            session.close(new CloseReason(CloseCodes.TRY_AGAIN_LATER, "slow consumer"));
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+
+    enum OverflowPolicy {
+        // discard the oldest queued message
+        DROP_OLDEST,
+        // discard the oldest queued message of the same category as the incoming one, so that a
+        // burst of one kind of notification supersedes itself rather than evicting others
+        COALESCE,
+        // close the session and let the client reconnect and resume
+        DISCONNECT,
+        ;
+    }
+
+    record Frame(String category, String json) {}
+}
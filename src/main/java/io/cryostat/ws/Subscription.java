@@ -0,0 +1,72 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.ws;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import io.cryostat.graphql.matchers.LabelSelectorMatcher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+record Subscription(
+        Set<String> categories, Set<String> jvmIds, List<LabelSelectorMatcher> selectors) {
+
+    static final Subscription ALL = new Subscription(Set.of(), Set.of(), List.of());
+
+    static Subscription from(JsonNode node) throws IllegalArgumentException {
+        Set<String> categories = new HashSet<>();
+        node.path("categories").forEach(n -> categories.add(n.asText()));
+        Set<String> jvmIds = new HashSet<>();
+        node.path("jvmIds").forEach(n -> jvmIds.add(n.asText()));
+        List<LabelSelectorMatcher> selectors = new ArrayList<>();
+        node.path("labels").forEach(n -> selectors.add(LabelSelectorMatcher.parse(n.asText())));
+        return new Subscription(Set.copyOf(categories), Set.copyOf(jvmIds), List.copyOf(selectors));
+    }
+
+    boolean acceptsCategory(String category) {
+        return categories.isEmpty() || categories.contains(category);
+    }
+
+    boolean filtersTargets() {
+        return !jvmIds.isEmpty() || !selectors.isEmpty();
+    }
+
+    // notifications which do not concern any particular target are not subject to target filters
+    boolean acceptsTarget(
+            Supplier<Optional<String>> jvmIdSupplier, Supplier<Map<String, String>> labels) {
+        if (!filtersTargets()) {
+            return true;
+        }
+        Optional<String> jvmId = jvmIdSupplier.get();
+        if (jvmId.isEmpty()) {
+            return true;
+        }
+        if (!jvmIds.isEmpty() && !jvmIds.contains(jvmId.get())) {
+            return false;
+        }
+        if (selectors.isEmpty()) {
+            return true;
+        }
+        Map<String, String> l = labels.get();
+        return selectors.stream().allMatch(s -> s.test(l));
+    }
+}
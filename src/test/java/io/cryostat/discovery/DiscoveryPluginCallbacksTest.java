@@ -0,0 +1,97 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.cryostat.credentials.Credential;
+import io.cryostat.discovery.DiscoveryPlugin.PluginCallback;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DiscoveryPluginCallbacksTest {
+
+    static final URI CALLBACK = URI.create("http://plugin.example:8080/callback");
+
+    DiscoveryPluginCallbacks callbacks;
+    List<Credential> created;
+
+    @BeforeEach
+    void setup() {
+        created = new ArrayList<>();
+        callbacks =
+                new DiscoveryPluginCallbacks() {
+                    @Override
+                    PluginCallback create(URI callback, Credential credential) {
+                        created.add(credential);
+                        return mock(PluginCallback.class);
+                    }
+                };
+        callbacks.logger = Logger.getLogger(getClass());
+    }
+
+    static DiscoveryPlugin plugin(URI callback, long credentialId) {
+        Credential credential = new Credential();
+        credential.id = credentialId;
+        DiscoveryPlugin plugin = new DiscoveryPlugin();
+        plugin.callback = callback;
+        plugin.credential = credential;
+        return plugin;
+    }
+
+    @Test
+    void testReusesClientForSameRegistration() {
+        PluginCallback a = callbacks.get(plugin(CALLBACK, 1));
+        PluginCallback b = callbacks.get(plugin(CALLBACK, 1));
+        MatcherAssert.assertThat(b, Matchers.sameInstance(a));
+        MatcherAssert.assertThat(created, Matchers.hasSize(1));
+    }
+
+    @Test
+    void testReRegistrationWithNewCredentialGetsNewClient() {
+        DiscoveryPlugin previous = plugin(CALLBACK, 1);
+        DiscoveryPlugin replacement = plugin(CALLBACK, 2);
+        PluginCallback old = callbacks.get(previous);
+        // the replacement is pinged before the previous registration's removal is flushed
+        PluginCallback fresh = callbacks.get(replacement);
+        MatcherAssert.assertThat(fresh, Matchers.not(Matchers.sameInstance(old)));
+        MatcherAssert.assertThat(created.get(1), Matchers.sameInstance(replacement.credential));
+    }
+
+    @Test
+    void testEvictClosesEveryClientForCallback() throws Exception {
+        PluginCallback a = callbacks.get(plugin(CALLBACK, 1));
+        PluginCallback b = callbacks.get(plugin(CALLBACK, 2));
+        PluginCallback other = callbacks.get(plugin(URI.create("http://other.example/cb"), 1));
+        callbacks.evict(CALLBACK);
+        verify(a).close();
+        verify(b).close();
+        MatcherAssert.assertThat(
+                callbacks.get(plugin(CALLBACK, 1)), Matchers.not(Matchers.sameInstance(a)));
+        MatcherAssert.assertThat(
+                callbacks.get(plugin(URI.create("http://other.example/cb"), 1)),
+                Matchers.sameInstance(other));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.List;
+
+import io.cryostat.discovery.DiscoveryTree.Delta;
+import io.cryostat.discovery.DiscoveryTree.PathNode;
+import io.cryostat.targets.Target;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.TargetConnectionManager;
+
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class DiscoveryTreeDeltaTest {
+
+    static final String JVM_ID = "delta-test-jvm-id";
+
+    @Inject DiscoveryTree tree;
+    @Inject CustomDiscovery customDiscovery;
+
+    @InjectMock TargetConnectionManager connectionManager;
+
+    Delta delta(long since, EventKind kind) {
+        List<Delta> deltas = tree.deltasSince(tree.epoch(), since).orElseThrow();
+        return deltas.stream()
+                .filter(d -> d.kind() == kind && JVM_ID.equals(d.jvmId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    static List<String> names(Delta delta) {
+        return delta.parents().stream().map(PathNode::name).toList();
+    }
+
+    @Test
+    public void testResumesAcrossFoundAndLostTargets() throws Exception {
+        when(connectionManager.executeDirect(any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(JVM_ID));
+
+        // the target and its node are persisted through DiscoveryNode.target
+        long before = tree.version();
+        Target target = new Target();
+        target.connectUrl = new URI("service:jmx:rmi:///jndi/rmi://delta-test:9999/jmxrmi");
+        target.alias = "delta-test";
+        Response created = customDiscovery.create(target, false, false);
+        MatcherAssert.assertThat(
+                created.getStatus(), Matchers.equalTo(Response.Status.CREATED.getStatusCode()));
+
+        Delta found = delta(before, EventKind.FOUND);
+        MatcherAssert.assertThat(
+                names(found),
+                Matchers.contains(BaseNodeType.UNIVERSE.toString(), "Custom Targets"));
+
+        long seen = tree.version();
+        String location = created.getLocation().getPath();
+        long id = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+        Response deleted = customDiscovery.delete(id);
+        MatcherAssert.assertThat(
+                deleted.getStatus(), Matchers.equalTo(Response.Status.NO_CONTENT.getStatusCode()));
+
+        // the node is detached from its realm before the target is removed
+        Delta lost = delta(seen, EventKind.LOST);
+        MatcherAssert.assertThat(names(lost), Matchers.equalTo(names(found)));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.discovery;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Optional;
+
+import io.cryostat.discovery.DiscoveryTree.Changed;
+import io.cryostat.discovery.DiscoveryTree.Delta;
+import io.cryostat.discovery.DiscoveryTree.PathNode;
+import io.cryostat.targets.Target;
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.TargetDiscovery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import jakarta.enterprise.event.Event;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DiscoveryTreeTest {
+
+    DiscoveryTree tree;
+
+    @BeforeEach
+    void setup() {
+        tree = new DiscoveryTree();
+        tree.deltaBufferSize = 3;
+        tree.mapper = mock(ObjectMapper.class);
+        tree.bus = mock(EventBus.class);
+        tree.logger = Logger.getLogger(getClass());
+    }
+
+    void targetChanged(String jvmId) {
+        tree.onChange(new Changed(new TargetDiscovery(EventKind.FOUND, new Target(), jvmId)));
+    }
+
+    void structureChanged() {
+        tree.onChange(new Changed(null));
+    }
+
+    static DiscoveryNode node(long id, String name, DiscoveryNode parent) {
+        DiscoveryNode node = new DiscoveryNode();
+        node.id = id;
+        node.name = name;
+        node.nodeType = BaseNodeType.REALM.getKind();
+        node.parent = parent;
+        return node;
+    }
+
+    void commit(Changed evt) {
+        tree.locate(evt);
+        tree.onChange(evt);
+    }
+
+    static List<Long> versions(Optional<List<Delta>> deltas) {
+        return deltas.orElseThrow().stream().map(Delta::version).toList();
+    }
+
+    @Test
+    void testReturnsMissedDeltasInOrder() {
+        targetChanged("a");
+        targetChanged("b");
+        targetChanged("c");
+        MatcherAssert.assertThat(
+                versions(tree.deltasSince(tree.epoch(), 1)), Matchers.contains(2L, 3L));
+        MatcherAssert.assertThat(versions(tree.deltasSince(tree.epoch(), 3)), Matchers.empty());
+    }
+
+    @Test
+    void testEpochMismatchRequiresSnapshot() {
+        targetChanged("a");
+        MatcherAssert.assertThat(
+                tree.deltasSince("previous-run", 0), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testFutureVersionRequiresSnapshot() {
+        targetChanged("a");
+        MatcherAssert.assertThat(
+                tree.deltasSince(tree.epoch(), 2), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testEvictedDeltasRequireSnapshot() {
+        for (int i = 0; i < 5; i++) {
+            targetChanged("jvm-" + i);
+        }
+        // versions 1 and 2 have been evicted from the buffer of 3
+        MatcherAssert.assertThat(
+                tree.deltasSince(tree.epoch(), 1), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(
+                versions(tree.deltasSince(tree.epoch(), 2)), Matchers.contains(3L, 4L, 5L));
+    }
+
+    @Test
+    void testStructuralChangeRequiresSnapshot() {
+        targetChanged("a");
+        structureChanged();
+        targetChanged("b");
+        MatcherAssert.assertThat(
+                tree.deltasSince(tree.epoch(), 0), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(
+                tree.deltasSince(tree.epoch(), 1), Matchers.equalTo(Optional.empty()));
+        // a client which has seen the structural change can still be caught up
+        MatcherAssert.assertThat(
+                versions(tree.deltasSince(tree.epoch(), 2)), Matchers.contains(3L));
+    }
+
+    @Test
+    void testDeltasLocateTargets() {
+        DiscoveryNode universe = node(1, "Universe", null);
+        DiscoveryNode realm = node(2, "Realm", universe);
+        Target target = new Target();
+        target.id = 10L;
+        target.discoveryNode = node(3, "jvm", realm);
+        commit(new Changed(new TargetDiscovery(EventKind.FOUND, target, "a")));
+        // discovery detaches the node of a lost target before removing it
+        target.discoveryNode.parent = null;
+        commit(new Changed(new TargetDiscovery(EventKind.LOST, target, "a")));
+
+        List<PathNode> expected =
+                List.of(
+                        new PathNode(1L, "Universe", BaseNodeType.REALM.getKind()),
+                        new PathNode(2L, "Realm", BaseNodeType.REALM.getKind()));
+        List<Delta> deltas = tree.deltasSince(tree.epoch(), 0).orElseThrow();
+        MatcherAssert.assertThat(deltas.get(0).parents(), Matchers.equalTo(expected));
+        MatcherAssert.assertThat(deltas.get(1).parents(), Matchers.equalTo(expected));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnlyNodesWithoutTargetsAreStructural() {
+        DiscoveryNode.Listener listener = new DiscoveryNode.Listener();
+        listener.treeChanges = mock(Event.class);
+        DiscoveryNode targetNode = node(1, "jvm", null);
+        targetNode.target = new Target();
+        listener.postPersist(targetNode);
+        listener.postRemove(targetNode);
+        verify(listener.treeChanges, never()).fire(any());
+
+        listener.postPersist(node(2, "Realm", null));
+        verify(listener.treeChanges).fire(new Changed(null));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import io.cryostat.recordings.ArchiveAggregate.Stats;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class ArchiveAggregateTest {
+
+    static final String JVM_ID = "aggregate-test";
+    static final String ORPHAN_JVM_ID = "aggregate-test-orphan";
+    static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Inject RecordingHelper recordingHelper;
+
+    @AfterEach
+    @Transactional
+    void cleanup() {
+        ArchiveEntry.delete("jvmId", JVM_ID);
+        ArchiveAggregate.delete("jvmId in ?1", List.of(JVM_ID, ORPHAN_JVM_ID));
+    }
+
+    static Stats stats(String jvmId) {
+        return QuarkusTransaction.requiringNew().call(() -> ArchiveAggregate.stats(jvmId));
+    }
+
+    static Instant at(int minutes) {
+        return T0.plusSeconds(60L * minutes);
+    }
+
+    @Test
+    void testTracksIndexedArchives() {
+        recordingHelper.indexArchive(JVM_ID, "a.jfr", 10, at(1));
+        recordingHelper.indexArchive(JVM_ID, "b.jfr", 20, at(2));
+        recordingHelper.indexArchive(JVM_ID, "c.jfr", 30, at(3));
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(new Stats(3, 60, at(1), at(3))));
+
+        recordingHelper.unindexArchive(JVM_ID, "b.jfr");
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(new Stats(2, 40, at(1), at(3))));
+
+        recordingHelper.unindexArchive(JVM_ID, "a.jfr");
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(new Stats(1, 30, at(3), at(3))));
+
+        recordingHelper.unindexArchive(JVM_ID, "c.jfr");
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(Stats.EMPTY));
+    }
+
+    @Test
+    void testReplacedArchiveIsCountedOnce() {
+        recordingHelper.indexArchive(JVM_ID, "a.jfr", 10, at(1));
+        recordingHelper.indexArchive(JVM_ID, "a.jfr", 15, at(2));
+
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(new Stats(1, 15, at(2), at(2))));
+    }
+
+    @Test
+    void testConcurrentIndexingIsNotLost() throws Exception {
+        int archives = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> tasks =
+                    IntStream.range(0, archives)
+                            .<Callable<Void>>mapToObj(
+                                    i ->
+                                            () -> {
+                                                recordingHelper.indexArchive(
+                                                        JVM_ID, i + ".jfr", i, at(i));
+                                                return null;
+                                            })
+                            .toList();
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long size = IntStream.range(0, archives).sum();
+        MatcherAssert.assertThat(
+                stats(JVM_ID),
+                Matchers.equalTo(new Stats(archives, size, at(0), at(archives - 1))));
+    }
+
+    @Test
+    void testReconcileRepairsDrift() {
+        recordingHelper.indexArchive(JVM_ID, "a.jfr", 10, at(1));
+        recordingHelper.indexArchive(JVM_ID, "b.jfr", 20, at(2));
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> {
+                            ArchiveAggregate.update(
+                                    "archiveCount = 99, totalSize = 0 where jvmId = ?1", JVM_ID);
+                            ArchiveAggregate orphan = new ArchiveAggregate();
+                            orphan.jvmId = ORPHAN_JVM_ID;
+                            orphan.archiveCount = 5;
+                            orphan.persist();
+                        });
+
+        recordingHelper.reconcileArchiveAggregates();
+
+        MatcherAssert.assertThat(stats(JVM_ID), Matchers.equalTo(new Stats(2, 30, at(1), at(2))));
+        MatcherAssert.assertThat(stats(ORPHAN_JVM_ID), Matchers.equalTo(Stats.EMPTY));
+    }
+}
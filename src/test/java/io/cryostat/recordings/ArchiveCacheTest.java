@@ -0,0 +1,187 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+public class ArchiveCacheTest {
+
+    @TempDir Path dir;
+
+    ArchiveCache cache;
+    // the ETags of the objects in storage
+    Map<String, String> stored;
+
+    @BeforeEach
+    void setup() throws Exception {
+        stored = new HashMap<>();
+        cache =
+                new ArchiveCache(dir.resolve("cache"), 100, Logger.getLogger(getClass())) {
+                    @Override
+                    Optional<HeadObjectResponse> head(String storageKey) {
+                        return Optional.ofNullable(stored.get(storageKey))
+                                .map(
+                                        eTag ->
+                                                HeadObjectResponse.builder()
+                                                        .eTag(eTag)
+                                                        .lastModified(Instant.EPOCH)
+                                                        .build());
+                    }
+                };
+        cache.reset();
+    }
+
+    @Test
+    void testReadThroughCachesFullyReadStream() throws Exception {
+        byte[] data = bytes(40);
+        stored.put("a/1.jfr", "etag");
+        try (InputStream stream = cache.readThrough("a/1.jfr", "etag", stream(data))) {
+            MatcherAssert.assertThat(stream.readAllBytes(), Matchers.equalTo(data));
+        }
+        try (InputStream cached = cache.open("a/1.jfr").orElseThrow()) {
+            MatcherAssert.assertThat(cached.readAllBytes(), Matchers.equalTo(data));
+        }
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(40L));
+    }
+
+    @Test
+    void testPartiallyReadStreamIsNotCached() throws Exception {
+        stored.put("a/1.jfr", "etag");
+        try (InputStream stream = cache.readThrough("a/1.jfr", "etag", stream(bytes(40)))) {
+            stream.readNBytes(10);
+        }
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testCaptureOnlyCachedOnCommit() throws Exception {
+        stored.put("a/1.jfr", "etag");
+        var discarded = cache.capture("a/1.jfr", stream(bytes(10)));
+        discarded.readAllBytes();
+        discarded.discard();
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(false));
+
+        var committed = cache.capture("a/1.jfr", stream(bytes(10)));
+        committed.readAllBytes();
+        committed.commit("etag");
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(true));
+    }
+
+    @Test
+    void testCaptureWithoutETagNotCached() throws Exception {
+        var capture = cache.capture("a/1.jfr", stream(bytes(10)));
+        capture.readAllBytes();
+        capture.commit(null);
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testOverwrittenArchiveNotServed() throws Exception {
+        fill("a/1.jfr", 40);
+        // another instance stores a new archive under the same key
+        stored.put("a/1.jfr", "etag-2");
+        MatcherAssert.assertThat(cache.open("a/1.jfr").isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testDeletedArchiveNotServed() throws Exception {
+        fill("a/1.jfr", 40);
+        stored.remove("a/1.jfr");
+        MatcherAssert.assertThat(cache.link("a/1.jfr").isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testLookupReportsStoredValidators() throws Exception {
+        fill("a/1.jfr", 40);
+        var hit = cache.lookup("a/1.jfr").orElseThrow();
+        MatcherAssert.assertThat(hit.eTag(), Matchers.equalTo("etag-a/1.jfr"));
+        MatcherAssert.assertThat(hit.size(), Matchers.equalTo(40L));
+        MatcherAssert.assertThat(hit.lastModified(), Matchers.equalTo(Instant.EPOCH));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() throws Exception {
+        fill("a/1.jfr", 40);
+        fill("a/2.jfr", 40);
+        cache.get("a/1.jfr");
+        fill("a/3.jfr", 40);
+
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(true));
+        MatcherAssert.assertThat(cache.get("a/2.jfr").isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(cache.get("a/3.jfr").isPresent(), Matchers.is(true));
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(80L));
+    }
+
+    @Test
+    void testOversizedArchiveNotCached() throws Exception {
+        fill("a/1.jfr", 101);
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(false));
+        try (var files = Files.list(dir.resolve("cache"))) {
+            MatcherAssert.assertThat(files.count(), Matchers.equalTo(0L));
+        }
+    }
+
+    @Test
+    void testLinkSurvivesInvalidation() throws Exception {
+        byte[] data = bytes(40);
+        stored.put("a/1.jfr", "etag");
+        try (InputStream stream = cache.readThrough("a/1.jfr", "etag", stream(data))) {
+            stream.readAllBytes();
+        }
+        Path link = cache.link("a/1.jfr").orElseThrow();
+        cache.invalidate("a/1.jfr");
+        MatcherAssert.assertThat(cache.get("a/1.jfr").isPresent(), Matchers.is(false));
+        MatcherAssert.assertThat(Files.readAllBytes(link), Matchers.equalTo(data));
+    }
+
+    private void fill(String key, int size) throws Exception {
+        String eTag = "etag-" + key;
+        stored.put(key, eTag);
+        try (InputStream stream = cache.readThrough(key, eTag, stream(bytes(size)))) {
+            stream.readAllBytes();
+        }
+    }
+
+    private static InputStream stream(byte[] data) {
+        return new ByteArrayInputStream(data);
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import io.cryostat.recordings.ArchiveEntry.Usage;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ArchiveRetentionTest {
+
+    static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    ArchiveRetention retention;
+    RecordingHelper recordingHelper;
+    List<ArchiveEntry> entries;
+    List<List<String>> batches;
+
+    @BeforeEach
+    void setup() {
+        entries = new ArrayList<>();
+        batches = new ArrayList<>();
+        recordingHelper = mock(RecordingHelper.class);
+        when(recordingHelper.deleteArchives(anyList()))
+                .thenAnswer(
+                        inv -> {
+                            List<ArchiveEntry> batch = inv.getArgument(0);
+                            batches.add(batch.stream().map(e -> e.filename).toList());
+                            entries.removeAll(batch);
+                            return true;
+                        });
+        // the index is kept in memory, oldest first
+        retention =
+                new ArchiveRetention() {
+                    @Override
+                    Usage usage(String jvmId) {
+                        List<ArchiveEntry> matching = of(jvmId);
+                        return new Usage(
+                                matching.size(), matching.stream().mapToLong(e -> e.size).sum());
+                    }
+
+                    @Override
+                    List<ArchiveEntry> listOldestFirst(String jvmId) {
+                        return of(jvmId);
+                    }
+
+                    @Override
+                    List<ArchiveEntry> listArchivedBefore(Instant cutoff) {
+                        return entries.stream()
+                                .filter(e -> e.archivedTime.isBefore(cutoff))
+                                .limit(2)
+                                .toList();
+                    }
+
+                    List<ArchiveEntry> of(String jvmId) {
+                        return entries.stream()
+                                .filter(e -> jvmId == null || Objects.equals(jvmId, e.jvmId))
+                                .toList();
+                    }
+                };
+        retention.recordingHelper = recordingHelper;
+        retention.logger = Logger.getLogger(getClass());
+    }
+
+    void add(String jvmId, String filename, long size, long minutes) {
+        entries.add(ArchiveEntry.of(jvmId, filename, size, EPOCH.plusSeconds(60 * minutes)));
+    }
+
+    List<String> remaining() {
+        return entries.stream().map(e -> e.filename).toList();
+    }
+
+    @Test
+    void testTrimsOldestBeyondCount() {
+        add("a", "a1", 10, 1);
+        add("b", "b1", 10, 2);
+        add("a", "a2", 10, 3);
+        add("a", "a3", 10, 4);
+
+        int deleted = retention.trim("a", 1, 0);
+
+        MatcherAssert.assertThat(deleted, Matchers.equalTo(2));
+        MatcherAssert.assertThat(remaining(), Matchers.contains("b1", "a3"));
+    }
+
+    @Test
+    void testTrimsOldestBeyondSize() {
+        add("a", "a1", 50, 1);
+        add("b", "b1", 30, 2);
+        add("a", "a2", 30, 3);
+        add("b", "b2", 10, 4);
+
+        int deleted = retention.trim(null, 0, 60);
+
+        MatcherAssert.assertThat(deleted, Matchers.equalTo(2));
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a2", "b2"));
+        MatcherAssert.assertThat(batches, Matchers.contains(List.of("a1", "b1")));
+    }
+
+    @Test
+    void testTrimIgnoresNonPositiveLimits() {
+        add("a", "a1", 10, 1);
+
+        MatcherAssert.assertThat(retention.trim("a", 0, -1), Matchers.equalTo(0));
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a1"));
+    }
+
+    @Test
+    void testTrimStopsWhenDeletionFails() {
+        add("a", "a1", 10, 1);
+        add("a", "a2", 10, 2);
+        when(recordingHelper.deleteArchives(anyList())).thenReturn(false);
+
+        MatcherAssert.assertThat(retention.trim("a", 1, 0), Matchers.equalTo(0));
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a1", "a2"));
+    }
+
+    @Test
+    void testDeleteAllWorksThroughBatches() {
+        for (int i = 0; i < 5; i++) {
+            add("a", "a" + i, 10, i);
+        }
+
+        int deleted =
+                retention.deleteAll(() -> retention.listArchivedBefore(EPOCH.plusSeconds(60 * 4)));
+
+        MatcherAssert.assertThat(deleted, Matchers.equalTo(4));
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a4"));
+        MatcherAssert.assertThat(
+                batches, Matchers.contains(List.of("a0", "a1"), List.of("a2", "a3")));
+    }
+
+    @Test
+    void testDeleteAllStopsWhenDeletionFails() {
+        add("a", "a1", 10, 1);
+        when(recordingHelper.deleteArchives(anyList())).thenReturn(false);
+
+        MatcherAssert.assertThat(
+                retention.deleteAll(() -> retention.listArchivedBefore(Instant.MAX)),
+                Matchers.equalTo(0));
+    }
+
+    @Test
+    void testLimitFilesAppliesImmediately() {
+        add("a", "a1", 10, 1);
+        add("a", "a2", 10, 2);
+        add("b", "b1", 10, 3);
+
+        retention.limitFiles("a", 1);
+
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a2", "b1"));
+    }
+
+    @Test
+    void testLimitFilesDoesNotThrow() {
+        add("a", "a1", 10, 1);
+        add("a", "a2", 10, 2);
+        when(recordingHelper.deleteArchives(anyList())).thenThrow(new IllegalStateException());
+
+        retention.limitFiles("a", 1);
+
+        MatcherAssert.assertThat(remaining(), Matchers.contains("a1", "a2"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.recordings.ArchiveScheduler.Priority;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+public class ArchiveSchedulerTest {
+
+    @Test
+    void testPerTargetLimitDoesNotBlockOtherTargets() throws Exception {
+        ArchiveScheduler scheduler = new ArchiveScheduler(2, 1, 0, 0);
+        try (var first = scheduler.acquire(1, Priority.BACKGROUND)) {
+            Thread blocked =
+                    start(scheduler, 1, Priority.INTERACTIVE, new CopyOnWriteArrayList<>());
+            awaitWaiting(scheduler, 1);
+
+            try (var other = scheduler.acquire(2, Priority.BACKGROUND)) {
+                MatcherAssert.assertThat(scheduler.running(), Matchers.equalTo(2));
+            }
+            MatcherAssert.assertThat(blocked.isAlive(), Matchers.is(true));
+
+            first.close();
+            blocked.join(TimeUnit.SECONDS.toMillis(5));
+            MatcherAssert.assertThat(blocked.isAlive(), Matchers.is(false));
+        }
+        MatcherAssert.assertThat(scheduler.running(), Matchers.equalTo(0));
+    }
+
+    @Test
+    void testInteractiveAdmittedBeforeBackground() throws Exception {
+        ArchiveScheduler scheduler = new ArchiveScheduler(1, 0, 0, 0);
+        List<Priority> order = new CopyOnWriteArrayList<>();
+        Thread background;
+        Thread interactive;
+        try (var held = scheduler.acquire(1, Priority.BACKGROUND)) {
+            background = start(scheduler, 2, Priority.BACKGROUND, order);
+            awaitWaiting(scheduler, 1);
+            interactive = start(scheduler, 3, Priority.INTERACTIVE, order);
+            awaitWaiting(scheduler, 2);
+        }
+        background.join(TimeUnit.SECONDS.toMillis(5));
+        interactive.join(TimeUnit.SECONDS.toMillis(5));
+        MatcherAssert.assertThat(
+                order, Matchers.contains(Priority.INTERACTIVE, Priority.BACKGROUND));
+    }
+
+    private static Thread start(
+            ArchiveScheduler scheduler, long targetId, Priority priority, List<Priority> order) {
+        Thread t =
+                new Thread(
+                        () -> {
+                            try (var permit = scheduler.acquire(targetId, priority)) {
+                                order.add(priority);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        t.start();
+        return t;
+    }
+
+    private static void awaitWaiting(ArchiveScheduler scheduler, int n) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.waiting() < n && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        MatcherAssert.assertThat(scheduler.waiting(), Matchers.equalTo(n));
+    }
+}
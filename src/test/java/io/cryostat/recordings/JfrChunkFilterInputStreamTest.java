@@ -0,0 +1,94 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JfrChunkFilterInputStreamTest {
+
+    static byte[] chunk(long startNanos, long durationNanos, int bodyLength) {
+        ByteBuffer buf = ByteBuffer.allocate(JfrChunkFilterInputStream.HEADER_SIZE + bodyLength);
+        buf.put(new byte[] {'F', 'L', 'R', 0});
+        buf.putShort((short) 2);
+        buf.putShort((short) 0);
+        buf.putLong(JfrChunkFilterInputStream.HEADER_SIZE + bodyLength);
+        buf.putLong(0);
+        buf.putLong(0);
+        buf.putLong(startNanos);
+        buf.putLong(durationNanos);
+        buf.putLong(0);
+        buf.putLong(0);
+        buf.putInt(0);
+        for (int i = 0; i < bodyLength; i++) {
+            buf.put((byte) startNanos);
+        }
+        return buf.array();
+    }
+
+    static byte[] recording() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(chunk(100, 50, 10));
+        out.writeBytes(chunk(150, 50, 20));
+        out.writeBytes(chunk(200, 50, 30));
+        // still being written
+        out.writeBytes(chunk(250, 0, 5));
+        return out.toByteArray();
+    }
+
+    @Test
+    void testPassesCompleteChunksWhenUnfiltered() throws IOException {
+        var stream =
+                new JfrChunkFilterInputStream(
+                        new ByteArrayInputStream(recording()), Long.MIN_VALUE);
+        byte[] out = stream.readAllBytes();
+        MatcherAssert.assertThat(
+                out.length, Matchers.equalTo(3 * JfrChunkFilterInputStream.HEADER_SIZE + 60));
+        MatcherAssert.assertThat(stream.chunks(), Matchers.equalTo(3));
+        MatcherAssert.assertThat(stream.lastChunkStartNanos(), Matchers.equalTo(200L));
+        MatcherAssert.assertThat(stream.lastChunkEndNanos(), Matchers.equalTo(250L));
+    }
+
+    @Test
+    void testSkipsChunksAlreadyArchived() throws IOException {
+        var stream = new JfrChunkFilterInputStream(new ByteArrayInputStream(recording()), 150);
+        MatcherAssert.assertThat(stream.readAllBytes(), Matchers.equalTo(chunk(200, 50, 30)));
+        MatcherAssert.assertThat(stream.chunks(), Matchers.equalTo(1));
+    }
+
+    @Test
+    void testNoNewChunks() throws IOException {
+        var stream = new JfrChunkFilterInputStream(new ByteArrayInputStream(recording()), 200);
+        MatcherAssert.assertThat(stream.read(), Matchers.equalTo(-1));
+        MatcherAssert.assertThat(stream.lastChunkStartNanos(), Matchers.equalTo(200L));
+    }
+
+    @Test
+    void testRejectsNonJfrData() {
+        var stream =
+                new JfrChunkFilterInputStream(
+                        new ByteArrayInputStream(new byte[JfrChunkFilterInputStream.HEADER_SIZE]),
+                        Long.MIN_VALUE);
+        Assertions.assertThrows(IOException.class, stream::read);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import org.openjdk.jmc.common.item.Aggregators;
+import org.openjdk.jmc.common.item.IItemCollection;
+import org.openjdk.jmc.common.item.ItemFilters;
+import org.openjdk.jmc.flightrecorder.JfrLoaderToolkit;
+
+import io.cryostat.recordings.ArchiveEntry.Chunk;
+
+import jdk.jfr.Event;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JfrSlicerTest {
+
+    static final String TICK = "io.cryostat.test.Tick";
+    static final String TOCK = "io.cryostat.test.Tock";
+
+    @Name(TICK)
+    static class Tick extends Event {}
+
+    @Name(TOCK)
+    static class Tock extends Event {}
+
+    @TempDir static Path dir;
+
+    static byte[] recording;
+    static long split;
+
+    // two chunks of ticks and tocks, the second recorded entirely after the split time
+    @BeforeAll
+    static void record() throws Exception {
+        Path file = dir.resolve("recording.jfr");
+        try (Recording r = new Recording()) {
+            r.enable(Tick.class);
+            r.enable(Tock.class);
+            r.start();
+            emit(10, 20);
+            // starting another recording begins a new chunk
+            try (Recording rotate = new Recording()) {
+                rotate.start();
+            }
+            Thread.sleep(10);
+            split = nanos(Instant.now());
+            Thread.sleep(10);
+            emit(30, 40);
+            r.stop();
+            r.dump(file);
+        }
+        recording = Files.readAllBytes(file);
+    }
+
+    static void emit(int ticks, int tocks) {
+        for (int i = 0; i < ticks; i++) {
+            new Tick().commit();
+        }
+        for (int i = 0; i < tocks; i++) {
+            new Tock().commit();
+        }
+    }
+
+    static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    static List<Chunk> index() throws Exception {
+        return JfrSlicer.index(new ByteArrayInputStream(recording));
+    }
+
+    static byte[] slice(JfrSlicer slicer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        slicer.slice(new ByteArrayInputStream(recording), slicer.select(index()), out);
+        return out.toByteArray();
+    }
+
+    static long count(byte[] jfr, String type) throws Exception {
+        IItemCollection events = JfrLoaderToolkit.loadEvents(new ByteArrayInputStream(jfr));
+        return events.apply(ItemFilters.type(type)).getAggregate(Aggregators.count()).longValue();
+    }
+
+    @Test
+    void testIndexesChunks() throws Exception {
+        List<Chunk> chunks = index();
+        MatcherAssert.assertThat(chunks.size(), Matchers.greaterThanOrEqualTo(2));
+        MatcherAssert.assertThat(chunks.get(0).offset(), Matchers.equalTo(0L));
+        Chunk last = chunks.get(chunks.size() - 1);
+        MatcherAssert.assertThat(
+                last.offset() + last.size(), Matchers.equalTo((long) recording.length));
+        MatcherAssert.assertThat(last.eventTypes(), Matchers.hasItems(TICK, TOCK));
+    }
+
+    @Test
+    void testUnfilteredSliceIsWholeRecording() throws Exception {
+        JfrSlicer slicer = new JfrSlicer(Long.MIN_VALUE, Long.MAX_VALUE, List.of());
+        MatcherAssert.assertThat(slice(slicer), Matchers.equalTo(recording));
+    }
+
+    @Test
+    void testFiltersEventTypes() throws Exception {
+        byte[] sliced = slice(new JfrSlicer(Long.MIN_VALUE, Long.MAX_VALUE, List.of(TICK)));
+        MatcherAssert.assertThat(sliced.length, Matchers.lessThan(recording.length));
+        MatcherAssert.assertThat(count(sliced, TICK), Matchers.equalTo(40L));
+        MatcherAssert.assertThat(count(sliced, TOCK), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testFiltersEventTypePrefixes() throws Exception {
+        byte[] sliced =
+                slice(new JfrSlicer(Long.MIN_VALUE, Long.MAX_VALUE, List.of("io.cryostat.*")));
+        MatcherAssert.assertThat(count(sliced, TICK), Matchers.equalTo(40L));
+        MatcherAssert.assertThat(count(sliced, TOCK), Matchers.equalTo(60L));
+        MatcherAssert.assertThat(count(sliced, "jdk.ActiveRecording"), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testFiltersTimeWindow() throws Exception {
+        JfrSlicer slicer = new JfrSlicer(split, Long.MAX_VALUE, List.of(TICK, TOCK));
+        MatcherAssert.assertThat(slicer.select(index()).size(), Matchers.lessThan(index().size()));
+        byte[] sliced = slice(slicer);
+        MatcherAssert.assertThat(count(sliced, TICK), Matchers.equalTo(30L));
+        MatcherAssert.assertThat(count(sliced, TOCK), Matchers.equalTo(40L));
+    }
+
+    @Test
+    void testSelectsNothingOutsideRecording() throws Exception {
+        JfrSlicer slicer = new JfrSlicer(0, 1, List.of());
+        MatcherAssert.assertThat(slicer.select(index()), Matchers.empty());
+    }
+
+    @Test
+    void testSelectsNothingForUnrecordedEventType() throws Exception {
+        JfrSlicer slicer = new JfrSlicer(Long.MIN_VALUE, Long.MAX_VALUE, List.of("jdk.Nothing"));
+        MatcherAssert.assertThat(slicer.select(index()), Matchers.empty());
+    }
+}
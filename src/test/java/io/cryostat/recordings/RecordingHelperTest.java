@@ -0,0 +1,504 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.recordings;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+import io.cryostat.core.sys.Clock;
+import io.cryostat.recordings.ArchiveScheduler.Priority;
+import io.cryostat.recordings.Recordings.ArchivedRecording;
+import io.cryostat.recordings.Recordings.Metadata;
+import io.cryostat.targets.Target;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import org.apache.commons.codec.binary.Base64;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+public class RecordingHelperTest {
+
+    static final int PART_SIZE = 5 * 1024 * 1024;
+    static final int ARCHIVE_SIZE = 2 * RecordingHelper.ARCHIVE_PART_SIZE + 100;
+    static final String BUCKET = "archives";
+    static final CreateMultipartUploadRequest REQUEST =
+            CreateMultipartUploadRequest.builder().bucket(BUCKET).key("jvm/a.jfr").build();
+
+    RecordingHelper helper;
+    S3AsyncClient storage;
+    Map<String, ArchiveUpload> checkpoints;
+    List<byte[]> sources;
+
+    @BeforeEach
+    void setup() {
+        storage = mock(S3AsyncClient.class);
+        checkpoints = new HashMap<>();
+        sources = new CopyOnWriteArrayList<>();
+        AtomicLong ids = new AtomicLong();
+        // checkpoints are kept in memory rather than in the database, and each time the
+        // recording is opened it provides the next of the given sources
+        helper =
+                new RecordingHelper() {
+                    @Override
+                    synchronized Optional<ArchiveUpload> findCheckpoint(String resumeSource) {
+                        return Optional.ofNullable(checkpoints.get(resumeSource));
+                    }
+
+                    @Override
+                    synchronized void createCheckpoint(ArchiveUpload upload) {
+                        upload.id = ids.incrementAndGet();
+                        checkpoints.put(upload.source, upload);
+                    }
+
+                    @Override
+                    synchronized void updateCheckpoint(UploadState state) {
+                        checkpoints.values().stream()
+                                .filter(u -> u.id.equals(state.checkpointId))
+                                .forEach(
+                                        u -> {
+                                            u.parts = state.checkpointParts();
+                                            u.offset = state.offset;
+                                            u.checksum = state.crc.getValue();
+                                        });
+                    }
+
+                    @Override
+                    synchronized void deleteCheckpoint(long id) {
+                        checkpoints.values().removeIf(u -> u.id == id);
+                    }
+
+                    @Override
+                    public InputStream getActiveInputStream(ActiveRecording recording) {
+                        return new ByteArrayInputStream(sources.remove(0));
+                    }
+
+                    @Override
+                    public void indexArchive(
+                            String jvmId, String filename, long size, Instant archivedTime) {}
+                };
+        helper.asyncStorage = storage;
+        helper.archiveScheduler = new ArchiveScheduler(1, 1, 0, 0);
+        helper.logger = Logger.getLogger(getClass());
+        helper.base64Url = new Base64(0, null, true);
+        helper.archiveBucket = BUCKET;
+        helper.uploadMaxRetries = 2;
+        helper.uploadRetryBackoff = Duration.ofMillis(1);
+        helper.uploadMaxRetryBackoff = Duration.ofMillis(2);
+        helper.metadataConcurrency = 3;
+        helper.uploadResumeTtl = Duration.ofHours(1);
+        helper.archiveCache = new ArchiveCache(null, 0, helper.logger);
+        helper.bus = mock(EventBus.class);
+        helper.clock = mock(Clock.class);
+        when(helper.clock.now()).thenAnswer(inv -> Instant.now());
+
+        when(storage.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                CreateMultipartUploadResponse.builder().uploadId("id").build()));
+        when(storage.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                CompleteMultipartUploadResponse.builder().build()));
+        when(storage.abortMultipartUpload(any(AbortMultipartUploadRequest.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                AbortMultipartUploadResponse.builder().build()));
+        when(storage.putObjectTagging(any(PutObjectTaggingRequest.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                PutObjectTaggingResponse.builder().build()));
+    }
+
+    // Upload parts, failing the given part number once
+    List<Integer> uploadPartsFailingOnce(int failingPart) {
+        List<Integer> parts = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        when(storage.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(
+                        inv -> {
+                            UploadPartRequest req = inv.getArgument(0);
+                            if (req.partNumber() == failingPart
+                                    && failures.getAndIncrement() == 0) {
+                                return CompletableFuture.failedFuture(
+                                        S3Exception.builder().statusCode(403).build());
+                            }
+                            parts.add(req.partNumber());
+                            return CompletableFuture.completedFuture(
+                                    UploadPartResponse.builder()
+                                            .eTag("etag-" + req.partNumber())
+                                            .build());
+                        });
+        return parts;
+    }
+
+    static ActiveRecording recording() {
+        Target target = new Target();
+        target.id = 1L;
+        target.jvmId = "jvm";
+        target.alias = "app";
+        target.connectUrl = URI.create("service:jmx:rmi:///jndi/rmi://app:9091/jmxrmi");
+        ActiveRecording recording = new ActiveRecording();
+        recording.target = target;
+        recording.remoteId = 7;
+        recording.name = "rec";
+        recording.metadata = new Metadata(Map.of(), null);
+        return recording;
+    }
+
+    // A checkpoint left by an earlier background archive of the recording which uploaded its
+    // first part of the given bytes
+    ArchiveUpload pendingArchive(byte[] firstPart, Instant created) {
+        CRC32 crc = new CRC32();
+        crc.update(firstPart);
+        ArchiveUpload upload = new ArchiveUpload();
+        upload.source = "jvm/7/rec";
+        upload.bucket = BUCKET;
+        upload.objectKey = "jvm/app_rec_pending.jfr";
+        upload.uploadId = "pending";
+        upload.offset = firstPart.length;
+        upload.checksum = crc.getValue();
+        upload.parts = List.of(new ArchiveUpload.Part(1, "etag-1"));
+        upload.created = created;
+        helper.createCheckpoint(upload);
+        return upload;
+    }
+
+    static <T> T await(Uni<T> uni) {
+        return uni.subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem(Duration.ofSeconds(10))
+                .getItem();
+    }
+
+    static Throwable awaitFailure(Uni<?> uni) {
+        return uni.subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitFailure(Duration.ofSeconds(10))
+                .getFailure();
+    }
+
+    @Test
+    void testUploadsFullPartsInOrder() {
+        List<Integer> parts = new CopyOnWriteArrayList<>();
+        when(storage.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(
+                        inv -> {
+                            UploadPartRequest req = inv.getArgument(0);
+                            parts.add(req.contentLength().intValue());
+                            return CompletableFuture.completedFuture(
+                                    UploadPartResponse.builder()
+                                            .eTag("etag-" + req.partNumber())
+                                            .build());
+                        });
+        byte[] data = new byte[2 * PART_SIZE + 100];
+
+        long size =
+                await(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(data), PART_SIZE));
+
+        MatcherAssert.assertThat(size, Matchers.equalTo((long) data.length));
+        MatcherAssert.assertThat(parts, Matchers.contains(PART_SIZE, PART_SIZE, 100));
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(storage).completeMultipartUpload(complete.capture());
+        MatcherAssert.assertThat(
+                complete.getValue().multipartUpload().parts().stream()
+                        .map(p -> p.partNumber() + ":" + p.eTag())
+                        .toList(),
+                Matchers.contains("1:etag-1", "2:etag-2", "3:etag-3"));
+        verify(storage, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testRetriesTransientPartFailure() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(storage.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(
+                        inv -> {
+                            if (attempts.getAndIncrement() == 0) {
+                                return CompletableFuture.failedFuture(
+                                        S3Exception.builder().statusCode(503).build());
+                            }
+                            return CompletableFuture.completedFuture(
+                                    UploadPartResponse.builder().eTag("etag").build());
+                        });
+
+        long size =
+                await(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(new byte[10]), PART_SIZE));
+
+        MatcherAssert.assertThat(size, Matchers.equalTo(10L));
+        MatcherAssert.assertThat(attempts.get(), Matchers.equalTo(2));
+        verify(storage, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testAbortsUploadOnPartFailure() {
+        when(storage.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
+                                S3Exception.builder().statusCode(403).build()));
+
+        Throwable failure =
+                awaitFailure(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(new byte[10]), PART_SIZE));
+
+        MatcherAssert.assertThat(failure, Matchers.instanceOf(S3Exception.class));
+        ArgumentCaptor<AbortMultipartUploadRequest> abort =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(storage).abortMultipartUpload(abort.capture());
+        MatcherAssert.assertThat(abort.getValue().uploadId(), Matchers.equalTo("id"));
+        verify(storage, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testListingBoundsConcurrentMetadataRequests() {
+        List<S3Object> objects =
+                IntStream.range(0, 10)
+                        .mapToObj(i -> S3Object.builder().key("jvm/" + i + ".jfr").build())
+                        .toList();
+        when(storage.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(
+                                ListObjectsV2Response.builder().contents(objects).build()));
+        List<CompletableFuture<GetObjectTaggingResponse>> pending = new ArrayList<>();
+        when(storage.getObjectTagging(any(GetObjectTaggingRequest.class)))
+                .thenAnswer(
+                        inv -> {
+                            CompletableFuture<GetObjectTaggingResponse> f =
+                                    new CompletableFuture<>();
+                            synchronized (pending) {
+                                pending.add(f);
+                            }
+                            return f;
+                        });
+
+        var subscriber =
+                helper.listArchivedRecordingObjectsAsync("jvm")
+                        .subscribe()
+                        .withSubscriber(UniAssertSubscriber.create());
+
+        int completed = 0;
+        Instant deadline = Instant.now().plusSeconds(10);
+        while (completed < objects.size() && Instant.now().isBefore(deadline)) {
+            CompletableFuture<GetObjectTaggingResponse> next = null;
+            synchronized (pending) {
+                MatcherAssert.assertThat(
+                        pending.size() - completed,
+                        Matchers.lessThanOrEqualTo(helper.metadataConcurrency));
+                if (pending.size() > completed) {
+                    next = pending.get(completed);
+                }
+            }
+            if (next != null) {
+                next.complete(GetObjectTaggingResponse.builder().build());
+                completed++;
+            }
+        }
+
+        List<S3Object> listed = subscriber.awaitItem(Duration.ofSeconds(10)).getItem();
+        MatcherAssert.assertThat(listed, Matchers.equalTo(objects));
+    }
+
+    @Test
+    void testResumesInterruptedUploadFromCheckpoint() {
+        List<Integer> parts = uploadPartsFailingOnce(2);
+        byte[] data = new byte[2 * PART_SIZE + 100];
+
+        Throwable failure =
+                awaitFailure(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(data), PART_SIZE, "source"));
+
+        MatcherAssert.assertThat(failure, Matchers.instanceOf(S3Exception.class));
+        verify(storage, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        ArchiveUpload checkpoint = checkpoints.get("source");
+        MatcherAssert.assertThat(checkpoint.offset, Matchers.equalTo((long) PART_SIZE));
+        MatcherAssert.assertThat(
+                checkpoint.parts, Matchers.contains(new ArchiveUpload.Part(1, "etag-1")));
+
+        long size =
+                await(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(data), PART_SIZE, "source"));
+
+        MatcherAssert.assertThat(size, Matchers.equalTo((long) data.length));
+        MatcherAssert.assertThat(parts, Matchers.contains(1, 2, 3));
+        verify(storage, times(1)).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(storage).completeMultipartUpload(complete.capture());
+        MatcherAssert.assertThat(
+                complete.getValue().multipartUpload().parts().stream()
+                        .map(p -> p.partNumber() + ":" + p.eTag())
+                        .toList(),
+                Matchers.contains("1:etag-1", "2:etag-2", "3:etag-3"));
+        MatcherAssert.assertThat(checkpoints, Matchers.anEmptyMap());
+    }
+
+    @Test
+    void testDiscardsCheckpointWhenSourceChanged() {
+        uploadPartsFailingOnce(2);
+        byte[] data = new byte[2 * PART_SIZE + 100];
+        awaitFailure(
+                helper.multipartUploadAsync(
+                        REQUEST, new ByteArrayInputStream(data), PART_SIZE, "source"));
+
+        data[0] = 1;
+        Throwable failure =
+                awaitFailure(
+                        helper.multipartUploadAsync(
+                                REQUEST, new ByteArrayInputStream(data), PART_SIZE, "source"));
+
+        MatcherAssert.assertThat(RecordingHelper.isUploadSourceChanged(failure), Matchers.is(true));
+        ArgumentCaptor<AbortMultipartUploadRequest> abort =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(storage).abortMultipartUpload(abort.capture());
+        MatcherAssert.assertThat(abort.getValue().uploadId(), Matchers.equalTo("id"));
+        MatcherAssert.assertThat(checkpoints, Matchers.anEmptyMap());
+        verify(storage, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testDiscardsStaleCheckpoint() {
+        List<Integer> parts = uploadPartsFailingOnce(0);
+        pendingArchive(
+                new byte[RecordingHelper.ARCHIVE_PART_SIZE],
+                Instant.now().minus(Duration.ofHours(2)));
+        byte[] data = new byte[ARCHIVE_SIZE];
+        sources.add(data);
+
+        ArchivedRecording archived =
+                await(helper.archiveRecordingAsync(recording(), null, null, Priority.BACKGROUND));
+
+        MatcherAssert.assertThat(archived.name(), Matchers.not("app_rec_pending.jfr"));
+        MatcherAssert.assertThat(parts, Matchers.contains(1, 2, 3));
+        ArgumentCaptor<AbortMultipartUploadRequest> abort =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(storage).abortMultipartUpload(abort.capture());
+        MatcherAssert.assertThat(abort.getValue().uploadId(), Matchers.equalTo("pending"));
+        verify(storage, never()).putObjectTagging(any(PutObjectTaggingRequest.class));
+        MatcherAssert.assertThat(checkpoints, Matchers.anEmptyMap());
+    }
+
+    @Test
+    void testBackgroundArchiveResumesAndRetagsPendingUpload() {
+        List<Integer> parts = uploadPartsFailingOnce(0);
+        byte[] data = new byte[ARCHIVE_SIZE];
+        pendingArchive(new byte[RecordingHelper.ARCHIVE_PART_SIZE], Instant.now());
+        sources.add(data);
+
+        ArchivedRecording archived =
+                await(helper.archiveRecordingAsync(recording(), null, null, Priority.BACKGROUND));
+
+        MatcherAssert.assertThat(archived.name(), Matchers.equalTo("app_rec_pending.jfr"));
+        MatcherAssert.assertThat(parts, Matchers.contains(2, 3));
+        verify(storage, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        ArgumentCaptor<PutObjectTaggingRequest> tagging =
+                ArgumentCaptor.forClass(PutObjectTaggingRequest.class);
+        verify(storage).putObjectTagging(tagging.capture());
+        MatcherAssert.assertThat(
+                tagging.getValue().key(), Matchers.equalTo("jvm/app_rec_pending.jfr"));
+        MatcherAssert.assertThat(checkpoints, Matchers.anEmptyMap());
+    }
+
+    @Test
+    void testBackgroundArchiveReopensRecordingWhenSourceChanged() {
+        List<Integer> parts = uploadPartsFailingOnce(0);
+        byte[] changed = new byte[RecordingHelper.ARCHIVE_PART_SIZE];
+        changed[0] = 1;
+        pendingArchive(changed, Instant.now());
+        sources.add(new byte[ARCHIVE_SIZE]);
+        sources.add(new byte[ARCHIVE_SIZE]);
+
+        ArchivedRecording archived =
+                await(helper.archiveRecordingAsync(recording(), null, null, Priority.BACKGROUND));
+
+        MatcherAssert.assertThat(sources, Matchers.empty());
+        MatcherAssert.assertThat(archived.name(), Matchers.not("app_rec_pending.jfr"));
+        MatcherAssert.assertThat(archived.size(), Matchers.equalTo((long) ARCHIVE_SIZE));
+        MatcherAssert.assertThat(parts, Matchers.contains(1, 2, 3));
+        ArgumentCaptor<AbortMultipartUploadRequest> abort =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(storage).abortMultipartUpload(abort.capture());
+        MatcherAssert.assertThat(abort.getValue().uploadId(), Matchers.equalTo("pending"));
+        MatcherAssert.assertThat(checkpoints, Matchers.anEmptyMap());
+    }
+
+    @Test
+    void testInteractiveArchiveIgnoresPendingUpload() {
+        List<Integer> parts = uploadPartsFailingOnce(0);
+        pendingArchive(new byte[RecordingHelper.ARCHIVE_PART_SIZE], Instant.now());
+        sources.add(new byte[ARCHIVE_SIZE]);
+
+        ArchivedRecording archived =
+                await(helper.archiveRecordingAsync(recording(), null, null, Priority.INTERACTIVE));
+
+        MatcherAssert.assertThat(archived.name(), Matchers.not("app_rec_pending.jfr"));
+        MatcherAssert.assertThat(parts, Matchers.contains(1, 2, 3));
+        verify(storage, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(storage, never()).putObjectTagging(any(PutObjectTaggingRequest.class));
+        MatcherAssert.assertThat(checkpoints, Matchers.hasKey("jvm/7/rec"));
+    }
+}
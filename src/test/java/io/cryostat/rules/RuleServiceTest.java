@@ -0,0 +1,64 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.rules;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+public class RuleServiceTest {
+
+    private static final long PERIOD = 300_000;
+    private static final long NOW = 1_700_000_123_456L;
+
+    @Test
+    void testStartsWithinOnePeriodOfEarliest() {
+        for (int i = 0; i < 1000; i++) {
+            long start = RuleService.archivalStartTime(NOW, PERIOD, "rule/jvm-" + i, 0);
+            MatcherAssert.assertThat(start, Matchers.greaterThanOrEqualTo(NOW));
+            MatcherAssert.assertThat(start, Matchers.lessThan(NOW + PERIOD));
+        }
+    }
+
+    @Test
+    void testSlotIsStableAcrossRestarts() {
+        long first = RuleService.archivalStartTime(NOW, PERIOD, "rule/jvm", 0);
+        long later = RuleService.archivalStartTime(NOW + 12_345_678, PERIOD, "rule/jvm", 0);
+        MatcherAssert.assertThat(Math.floorMod(later - first, PERIOD), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void testSlotsAreSpreadAcrossPeriod() {
+        int[] buckets = new int[10];
+        for (int i = 0; i < 10_000; i++) {
+            long start = RuleService.archivalStartTime(NOW, PERIOD, "rule/jvm-" + i, 0);
+            buckets[(int) ((start - NOW) * buckets.length / PERIOD)]++;
+        }
+        for (int count : buckets) {
+            MatcherAssert.assertThat(
+                    count, Matchers.both(Matchers.greaterThan(800)).and(Matchers.lessThan(1200)));
+        }
+    }
+
+    @Test
+    void testNoSpreadWithoutSlotKey() {
+        MatcherAssert.assertThat(
+                RuleService.archivalStartTime(NOW, PERIOD, null, 0), Matchers.equalTo(NOW));
+        MatcherAssert.assertThat(
+                RuleService.archivalStartTime(NOW, PERIOD, null, 2 * PERIOD),
+                Matchers.equalTo(NOW + PERIOD));
+    }
+}
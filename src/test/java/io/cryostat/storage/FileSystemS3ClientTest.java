@@ -0,0 +1,346 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.model.Tagging;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+public class FileSystemS3ClientTest {
+
+    static final String BUCKET = "archives";
+
+    @TempDir Path dir;
+
+    FileSystemS3Client client;
+
+    @BeforeEach
+    void setup() {
+        client = new FileSystemS3Client(dir, new ObjectMapper(), Logger.getLogger(getClass()));
+        client.createBucket(CreateBucketRequest.builder().bucket(BUCKET).build());
+    }
+
+    @Test
+    void testMissingBucket() {
+        Assertions.assertThrows(
+                NoSuchBucketException.class,
+                () -> client.headBucket(HeadBucketRequest.builder().bucket("other").build()));
+    }
+
+    @Test
+    void testPutAndGetObject() throws Exception {
+        put("jvm/a.jfr", "hello", Map.of("label one", "value&1"));
+
+        var object =
+                client.getObject(
+                        GetObjectRequest.builder().bucket(BUCKET).key("jvm/a.jfr").build());
+        try (object) {
+            MatcherAssert.assertThat(
+                    new String(object.readAllBytes(), StandardCharsets.UTF_8),
+                    Matchers.equalTo("hello"));
+        }
+        MatcherAssert.assertThat(object.response().contentLength(), Matchers.equalTo(5L));
+        MatcherAssert.assertThat(object.response().contentType(), Matchers.equalTo("text/plain"));
+        MatcherAssert.assertThat(
+                object.response().sdkHttpResponse().isSuccessful(), Matchers.is(true));
+
+        var tags =
+                client.getObjectTagging(
+                        GetObjectTaggingRequest.builder().bucket(BUCKET).key("jvm/a.jfr").build());
+        MatcherAssert.assertThat(
+                tags.tagSet(),
+                Matchers.contains(Tag.builder().key("label one").value("value&1").build()));
+    }
+
+    @Test
+    void testRangedGetObject() throws Exception {
+        put("jvm/a.jfr", "0123456789", Map.of());
+
+        var object =
+                client.getObject(
+                        GetObjectRequest.builder()
+                                .bucket(BUCKET)
+                                .key("jvm/a.jfr")
+                                .range("bytes=2-5")
+                                .build());
+        try (object) {
+            MatcherAssert.assertThat(
+                    new String(object.readAllBytes(), StandardCharsets.UTF_8),
+                    Matchers.equalTo("2345"));
+        }
+        MatcherAssert.assertThat(object.response().contentLength(), Matchers.equalTo(4L));
+        MatcherAssert.assertThat(
+                object.response().contentRange(), Matchers.equalTo("bytes 2-5/10"));
+        MatcherAssert.assertThat(
+                object.response().sdkHttpResponse().statusCode(), Matchers.equalTo(206));
+
+        S3Exception unsatisfiable =
+                Assertions.assertThrows(
+                        S3Exception.class,
+                        () ->
+                                client.getObject(
+                                        GetObjectRequest.builder()
+                                                .bucket(BUCKET)
+                                                .key("jvm/a.jfr")
+                                                .range("bytes=10-")
+                                                .build()));
+        MatcherAssert.assertThat(unsatisfiable.statusCode(), Matchers.equalTo(416));
+
+        S3Exception changed =
+                Assertions.assertThrows(
+                        S3Exception.class,
+                        () ->
+                                client.getObject(
+                                        GetObjectRequest.builder()
+                                                .bucket(BUCKET)
+                                                .key("jvm/a.jfr")
+                                                .ifMatch("\"other\"")
+                                                .build()));
+        MatcherAssert.assertThat(changed.statusCode(), Matchers.equalTo(412));
+    }
+
+    @Test
+    void testMissingObject() {
+        Assertions.assertThrows(
+                NoSuchKeyException.class,
+                () ->
+                        client.getObject(
+                                GetObjectRequest.builder()
+                                        .bucket(BUCKET)
+                                        .key("jvm/b.jfr")
+                                        .build()));
+    }
+
+    @Test
+    void testKeysCannotEscapeBucket() {
+        Assertions.assertThrows(S3Exception.class, () -> put("../escape", "x", Map.of()));
+        Assertions.assertThrows(S3Exception.class, () -> put("jvm/../../escape", "x", Map.of()));
+        MatcherAssert.assertThat(Files.exists(dir.resolve("escape")), Matchers.is(false));
+    }
+
+    @Test
+    void testListObjectsInKeyOrderWithPrefixAndPages() {
+        put("b/2.jfr", "2", Map.of());
+        put("a/1.jfr", "1", Map.of());
+        put("b/1.jfr", "1", Map.of());
+
+        var all = client.listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build());
+        MatcherAssert.assertThat(
+                all.contents().stream().map(S3Object::key).toList(),
+                Matchers.contains("a/1.jfr", "b/1.jfr", "b/2.jfr"));
+
+        var page =
+                client.listObjectsV2(
+                        ListObjectsV2Request.builder()
+                                .bucket(BUCKET)
+                                .prefix("b")
+                                .maxKeys(1)
+                                .build());
+        MatcherAssert.assertThat(
+                page.contents().stream().map(S3Object::key).toList(), Matchers.contains("b/1.jfr"));
+        MatcherAssert.assertThat(page.isTruncated(), Matchers.is(true));
+
+        var next =
+                client.listObjectsV2(
+                        ListObjectsV2Request.builder()
+                                .bucket(BUCKET)
+                                .prefix("b")
+                                .continuationToken(page.nextContinuationToken())
+                                .build());
+        MatcherAssert.assertThat(
+                next.contents().stream().map(S3Object::key).toList(), Matchers.contains("b/2.jfr"));
+    }
+
+    @Test
+    void testDeleteObjectsRemovesEmptyDirectories() {
+        put("jvm/1.jfr", "1", Map.of());
+        put("jvm/2.jfr", "2", Map.of());
+
+        var res =
+                client.deleteObjects(
+                        DeleteObjectsRequest.builder()
+                                .bucket(BUCKET)
+                                .delete(
+                                        Delete.builder()
+                                                .objects(
+                                                        ObjectIdentifier.builder()
+                                                                .key("jvm/1.jfr")
+                                                                .build(),
+                                                        ObjectIdentifier.builder()
+                                                                .key("jvm/2.jfr")
+                                                                .build())
+                                                .build())
+                                .build());
+
+        MatcherAssert.assertThat(res.deleted(), Matchers.hasSize(2));
+        MatcherAssert.assertThat(
+                Files.exists(dir.resolve(BUCKET).resolve("jvm")), Matchers.is(false));
+        MatcherAssert.assertThat(Files.exists(dir.resolve(BUCKET)), Matchers.is(true));
+    }
+
+    @Test
+    void testMultipartUploadAppearsOnlyOnCompletion() throws Exception {
+        var async = new FileSystemS3AsyncClient(client, Runnable::run);
+        String uploadId =
+                async.createMultipartUpload(
+                                CreateMultipartUploadRequest.builder()
+                                        .bucket(BUCKET)
+                                        .key("jvm/c.jfr")
+                                        .tagging(
+                                                Tagging.builder()
+                                                        .tagSet(
+                                                                Tag.builder()
+                                                                        .key("k")
+                                                                        .value("v")
+                                                                        .build())
+                                                        .build())
+                                        .build())
+                        .get()
+                        .uploadId();
+        var part2 = uploadPart(async, uploadId, 2, "world");
+        var part1 = uploadPart(async, uploadId, 1, "hello ");
+
+        MatcherAssert.assertThat(
+                client.listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build())
+                        .contents(),
+                Matchers.empty());
+
+        async.completeMultipartUpload(
+                        CompleteMultipartUploadRequest.builder()
+                                .bucket(BUCKET)
+                                .key("jvm/c.jfr")
+                                .uploadId(uploadId)
+                                .multipartUpload(
+                                        CompletedMultipartUpload.builder()
+                                                .parts(List.of(part2, part1))
+                                                .build())
+                                .build())
+                .get();
+
+        var object =
+                client.getObject(
+                        GetObjectRequest.builder().bucket(BUCKET).key("jvm/c.jfr").build());
+        try (object) {
+            MatcherAssert.assertThat(
+                    new String(object.readAllBytes(), StandardCharsets.UTF_8),
+                    Matchers.equalTo("hello world"));
+        }
+        MatcherAssert.assertThat(object.response().tagCount(), Matchers.equalTo(1));
+        Assertions.assertThrows(NoSuchUploadException.class, () -> client.partFile(uploadId, 3));
+    }
+
+    @Test
+    void testExpiredObjectsDeleted() throws Exception {
+        Instant now = Instant.now();
+        client.putObject(
+                PutObjectRequest.builder()
+                        .bucket(BUCKET)
+                        .key("jvm/expired.jfr")
+                        .expires(now.minusSeconds(1))
+                        .build(),
+                RequestBody.fromString("x"));
+        client.putObject(
+                PutObjectRequest.builder()
+                        .bucket(BUCKET)
+                        .key("jvm/current.jfr")
+                        .expires(now.plusSeconds(60))
+                        .build(),
+                RequestBody.fromString("x"));
+
+        MatcherAssert.assertThat(client.deleteExpired(now), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+                client
+                        .listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build())
+                        .contents()
+                        .stream()
+                        .map(S3Object::key)
+                        .toList(),
+                Matchers.contains("jvm/current.jfr"));
+    }
+
+    private void put(String key, String content, Map<String, String> tags) {
+        client.putObject(
+                PutObjectRequest.builder()
+                        .bucket(BUCKET)
+                        .key(key)
+                        .contentType("text/plain")
+                        .tagging(
+                                Tagging.builder()
+                                        .tagSet(
+                                                tags.entrySet().stream()
+                                                        .map(
+                                                                e ->
+                                                                        Tag.builder()
+                                                                                .key(e.getKey())
+                                                                                .value(e.getValue())
+                                                                                .build())
+                                                        .toList())
+                                        .build())
+                        .build(),
+                RequestBody.fromString(content));
+    }
+
+    private CompletedPart uploadPart(
+            FileSystemS3AsyncClient async, String uploadId, int partNumber, String content)
+            throws Exception {
+        var res =
+                async.uploadPart(
+                                UploadPartRequest.builder()
+                                        .bucket(BUCKET)
+                                        .key("jvm/c.jfr")
+                                        .uploadId(uploadId)
+                                        .partNumber(partNumber)
+                                        .build(),
+                                AsyncRequestBody.fromString(content))
+                        .get();
+        return CompletedPart.builder().partNumber(partNumber).eTag(res.eTag()).build();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.targets;
+
+import io.cryostat.targets.Target.EventKind;
+import io.cryostat.targets.Target.Listener.TargetDiscoveryEvent;
+import io.cryostat.targets.Target.TargetDiscovery;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+class TargetDiscoveryEventTest {
+
+    static Object identity(EventKind kind, Target target) {
+        return new TargetDiscoveryEvent(new TargetDiscovery(kind, target, target.jvmId)).identity();
+    }
+
+    @Test
+    void testModificationsSupersedeEachOther() {
+        Target target = new Target();
+        target.id = 1L;
+        MatcherAssert.assertThat(
+                identity(EventKind.MODIFIED, target),
+                Matchers.equalTo(identity(EventKind.MODIFIED, target)));
+    }
+
+    @Test
+    void testFoundAndLostAreNeverMerged() {
+        Target target = new Target();
+        target.id = 1L;
+        Object found = identity(EventKind.FOUND, target);
+        Object modified = identity(EventKind.MODIFIED, target);
+        Object lost = identity(EventKind.LOST, target);
+        MatcherAssert.assertThat(found, Matchers.not(Matchers.equalTo(modified)));
+        MatcherAssert.assertThat(found, Matchers.not(Matchers.equalTo(lost)));
+        MatcherAssert.assertThat(modified, Matchers.not(Matchers.equalTo(lost)));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.time.Instant;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ByteRangeTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "'bytes=0-99', 0, 99",
+        "'bytes=10-', 10, 999",
+        "'bytes=900-2000', 900, 999",
+        "'bytes=-100', 900, 999",
+        "'bytes=-5000', 0, 999",
+        "' Bytes = 5 - 6 ', 5, 6",
+    })
+    void testParse(String header, long start, long end) {
+        MatcherAssert.assertThat(
+                ByteRange.parse(header, 1000).orElseThrow(),
+                Matchers.equalTo(new ByteRange(start, end)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "",
+                "bytes",
+                "items=0-1",
+                "bytes=abc",
+                "bytes=5-1",
+                "bytes=0-1,5-6",
+                "bytes=-",
+                "bytes=-1-2"
+            })
+    void testIgnored(String header) {
+        MatcherAssert.assertThat(ByteRange.parse(header, 1000).isPresent(), Matchers.is(false));
+    }
+
+    @Test
+    void testUnsatisfiable() {
+        MatcherAssert.assertThat(
+                ByteRange.parse("bytes=1000-", 1000).orElseThrow().isSatisfiable(1000),
+                Matchers.is(false));
+        MatcherAssert.assertThat(
+                ByteRange.parse("bytes=-0", 1000).orElseThrow().isSatisfiable(1000),
+                Matchers.is(false));
+        MatcherAssert.assertThat(
+                ByteRange.parse("bytes=999-", 1000).orElseThrow().isSatisfiable(1000),
+                Matchers.is(true));
+    }
+
+    @Test
+    void testHeaders() {
+        ByteRange range = new ByteRange(10, 19);
+        MatcherAssert.assertThat(range.length(), Matchers.equalTo(10L));
+        MatcherAssert.assertThat(range.contentRange(100), Matchers.equalTo("bytes 10-19/100"));
+        MatcherAssert.assertThat(range.rangeHeader(), Matchers.equalTo("bytes=10-19"));
+        MatcherAssert.assertThat(
+                ByteRange.unsatisfiedContentRange(100), Matchers.equalTo("bytes */100"));
+    }
+
+    @Test
+    void testIfRange() {
+        Instant modified = Instant.parse("2023-06-01T12:30:45.678Z");
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches(null, "\"abc\"", modified), Matchers.is(true));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("\"abc\"", "\"abc\"", modified), Matchers.is(true));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("\"abd\"", "\"abc\"", modified), Matchers.is(false));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("W/\"abc\"", "\"abc\"", modified), Matchers.is(false));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("Thu, 1 Jun 2023 12:30:45 GMT", "\"abc\"", modified),
+                Matchers.is(true));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("Thu, 1 Jun 2023 12:30:44 GMT", "\"abc\"", modified),
+                Matchers.is(false));
+        MatcherAssert.assertThat(
+                ByteRange.ifRangeMatches("yesterday", "\"abc\"", modified), Matchers.is(false));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+public class GzipCompressingInputStreamTest {
+
+    @Test
+    void testRoundTrip() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        Random random = new Random(1234);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) random.nextInt(16);
+        }
+        byte[] compressed =
+                new GzipCompressingInputStream(new ByteArrayInputStream(data)).readAllBytes();
+        MatcherAssert.assertThat(compressed.length, Matchers.lessThan(data.length));
+        MatcherAssert.assertThat(decompress(compressed), Matchers.equalTo(data));
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        byte[] compressed =
+                new GzipCompressingInputStream(new ByteArrayInputStream(new byte[0]))
+                        .readAllBytes();
+        MatcherAssert.assertThat(compressed.length, Matchers.greaterThan(0));
+        MatcherAssert.assertThat(decompress(compressed), Matchers.equalTo(new byte[0]));
+    }
+
+    @Test
+    void testSingleByteReads() throws IOException {
+        byte[] data = "hello hello hello hello".getBytes();
+        InputStream stream = new GzipCompressingInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = stream.read()) >= 0) {
+            out.write(b);
+        }
+        MatcherAssert.assertThat(decompress(out.toByteArray()), Matchers.equalTo(data));
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import io.cryostat.util.MultipartReader.Part;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MultipartReaderTest {
+
+    static final String BOUNDARY = "xyzzy";
+
+    @Test
+    void testBoundaryFromContentType() {
+        MatcherAssert.assertThat(
+                MultipartReader.boundary("multipart/form-data; boundary=abc123"),
+                Matchers.equalTo(Optional.of("abc123")));
+        MatcherAssert.assertThat(
+                MultipartReader.boundary("multipart/form-data; charset=utf-8; boundary=\"a b\""),
+                Matchers.equalTo(Optional.of("a b")));
+        MatcherAssert.assertThat(
+                MultipartReader.boundary("application/json"), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testReadsFieldsAndFile() throws IOException {
+        // binary content containing partial delimiters, split across small buffer reads
+        byte[] file = new byte[1000];
+        for (int i = 0; i < file.length; i++) {
+            file[i] = (byte) i;
+        }
+        byte[] tricky = "\r\n--xyzz".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(tricky, 0, file, 500, tricky.length);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes("preamble\r\n".getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(
+                ("--xyzzy\r\n"
+                                + "Content-Disposition: form-data; name=\"labels\"\r\n"
+                                + "\r\n"
+                                + "{\"a\":\"b\"}\r\n"
+                                + "--xyzzy\r\n"
+                                + "Content-Disposition: form-data; name=\"recording\";"
+                                + " filename=\"my.jfr\"\r\n"
+                                + "Content-Type: application/octet-stream\r\n"
+                                + "\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(file);
+        body.writeBytes(
+                ("\r\n--xyzzy\r\n"
+                                + "Content-Disposition: form-data; name=\"maxFiles\"\r\n"
+                                + "\r\n"
+                                + "5\r\n"
+                                + "--xyzzy--\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+
+        MultipartReader reader =
+                new MultipartReader(new ByteArrayInputStream(body.toByteArray()), BOUNDARY, 16);
+
+        Part labels = reader.next().orElseThrow();
+        MatcherAssert.assertThat(labels.name(), Matchers.equalTo(Optional.of("labels")));
+        MatcherAssert.assertThat(labels.filename(), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(labels.readString(64), Matchers.equalTo("{\"a\":\"b\"}"));
+
+        Part recording = reader.next().orElseThrow();
+        MatcherAssert.assertThat(recording.name(), Matchers.equalTo(Optional.of("recording")));
+        MatcherAssert.assertThat(recording.filename(), Matchers.equalTo(Optional.of("my.jfr")));
+        MatcherAssert.assertThat(
+                recording.contentType(), Matchers.equalTo(Optional.of("application/octet-stream")));
+        MatcherAssert.assertThat(recording.body().readAllBytes(), Matchers.equalTo(file));
+
+        // the unread remainder of a part is skipped when advancing
+        Part maxFiles = reader.next().orElseThrow();
+        MatcherAssert.assertThat(maxFiles.name(), Matchers.equalTo(Optional.of("maxFiles")));
+
+        MatcherAssert.assertThat(reader.next(), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(reader.next(), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void testFieldTooLarge() throws IOException {
+        String body =
+                "--xyzzy\r\n"
+                        + "Content-Disposition: form-data; name=\"labels\"\r\n"
+                        + "\r\n"
+                        + "0123456789\r\n"
+                        + "--xyzzy--\r\n";
+        MultipartReader reader =
+                new MultipartReader(
+                        new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)),
+                        BOUNDARY);
+        Part part = reader.next().orElseThrow();
+        Assertions.assertThrows(IOException.class, () -> part.readString(4));
+    }
+
+    @Test
+    void testTruncatedBody() throws IOException {
+        String body =
+                "--xyzzy\r\n"
+                        + "Content-Disposition: form-data; name=\"recording\"\r\n"
+                        + "\r\n"
+                        + "some data without a closing delimiter";
+        MultipartReader reader =
+                new MultipartReader(
+                        new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)),
+                        BOUNDARY);
+        Part part = reader.next().orElseThrow();
+        Assertions.assertThrows(IOException.class, () -> part.body().readAllBytes());
+    }
+}
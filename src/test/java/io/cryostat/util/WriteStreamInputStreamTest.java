@@ -0,0 +1,91 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class WriteStreamInputStreamTest {
+
+    @Test
+    void testReadsChunksInOrder() throws IOException {
+        WriteStreamInputStream stream = new WriteStreamInputStream(1024);
+        WriteStream<Buffer> sink = stream.sink();
+        sink.write(Buffer.buffer("hello "));
+        sink.write(Buffer.buffer("world"));
+        sink.end();
+
+        stream.awaitStart(Duration.ofSeconds(1));
+        String s = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        MatcherAssert.assertThat(s, Matchers.equalTo("hello world"));
+    }
+
+    @Test
+    void testBackpressure() throws IOException {
+        WriteStreamInputStream stream = new WriteStreamInputStream(8);
+        WriteStream<Buffer> sink = stream.sink();
+        sink.write(Buffer.buffer("0123456789"));
+        MatcherAssert.assertThat(sink.writeQueueFull(), Matchers.is(true));
+
+        AtomicBoolean drained = new AtomicBoolean();
+        sink.drainHandler(v -> drained.set(true));
+        MatcherAssert.assertThat(drained.get(), Matchers.is(false));
+
+        stream.readNBytes(4);
+        MatcherAssert.assertThat(drained.get(), Matchers.is(false));
+        stream.readNBytes(2);
+        MatcherAssert.assertThat(drained.get(), Matchers.is(true));
+        MatcherAssert.assertThat(sink.writeQueueFull(), Matchers.is(false));
+    }
+
+    @Test
+    void testFailureBeforeData() {
+        WriteStreamInputStream stream = new WriteStreamInputStream(1024);
+        stream.fail(new IllegalStateException("nope"));
+        Assertions.assertThrows(
+                IllegalStateException.class, () -> stream.awaitStart(Duration.ofSeconds(1)));
+        Assertions.assertThrows(IOException.class, stream::read);
+    }
+
+    @Test
+    void testFailureAfterData() throws IOException {
+        WriteStreamInputStream stream = new WriteStreamInputStream(1024);
+        stream.sink().write(Buffer.buffer("ab"));
+        stream.fail(new IOException("reset"));
+
+        stream.awaitStart(Duration.ofSeconds(1));
+        MatcherAssert.assertThat(stream.read(), Matchers.is((int) 'a'));
+        MatcherAssert.assertThat(stream.read(), Matchers.is((int) 'b'));
+        Assertions.assertThrows(IOException.class, stream::read);
+    }
+
+    @Test
+    void testClosedStreamRejectsWrites() {
+        WriteStreamInputStream stream = new WriteStreamInputStream(1024);
+        stream.close();
+        MatcherAssert.assertThat(
+                stream.sink().write(Buffer.buffer("x")).failed(), Matchers.is(true));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.ws;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.cryostat.ws.SessionQueue.Frame;
+import io.cryostat.ws.SessionQueue.OverflowPolicy;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SessionQueueTest {
+
+    Session session;
+    List<String> sent;
+    List<SendHandler> handlers;
+    AtomicLong droppedTotal;
+
+    @BeforeEach
+    void setup() {
+        session = mock(Session.class);
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        sent = new ArrayList<>();
+        handlers = new ArrayList<>();
+        droppedTotal = new AtomicLong();
+        doAnswer(
+                        inv -> {
+                            sent.add(inv.getArgument(0));
+                            handlers.add(inv.getArgument(1));
+                            return null;
+                        })
+                .when(remote)
+                .sendText(anyString(), any(SendHandler.class));
+    }
+
+    @Test
+    void testSendsInOrderOneAtATime() {
+        SessionQueue queue = new SessionQueue(session, 4, OverflowPolicy.DROP_OLDEST, droppedTotal);
+        queue.offer(new Frame("a", "1"));
+        queue.offer(new Frame("a", "2"));
+
+        MatcherAssert.assertThat(sent, Matchers.contains("1"));
+        MatcherAssert.assertThat(queue.depth(), Matchers.is(1));
+
+        handlers.get(0).onResult(new SendResult());
+        MatcherAssert.assertThat(sent, Matchers.contains("1", "2"));
+        MatcherAssert.assertThat(queue.depth(), Matchers.is(0));
+    }
+
+    @Test
+    void testDropOldest() {
+        SessionQueue queue = new SessionQueue(session, 2, OverflowPolicy.DROP_OLDEST, droppedTotal);
+        queue.offer(new Frame("a", "1"));
+        queue.offer(new Frame("a", "2"));
+        queue.offer(new Frame("b", "3"));
+        queue.offer(new Frame("a", "4"));
+
+        MatcherAssert.assertThat(queue.depth(), Matchers.is(2));
+        MatcherAssert.assertThat(queue.dropped(), Matchers.is(1L));
+        MatcherAssert.assertThat(droppedTotal.get(), Matchers.is(1L));
+
+        handlers.get(0).onResult(new SendResult());
+        handlers.get(1).onResult(new SendResult());
+        MatcherAssert.assertThat(sent, Matchers.contains("1", "3", "4"));
+    }
+
+    @Test
+    void testCoalesceSameCategory() {
+        SessionQueue queue = new SessionQueue(session, 2, OverflowPolicy.COALESCE, droppedTotal);
+        queue.offer(new Frame("a", "1"));
+        queue.offer(new Frame("b", "2"));
+        queue.offer(new Frame("a", "3"));
+        queue.offer(new Frame("a", "4"));
+
+        MatcherAssert.assertThat(queue.dropped(), Matchers.is(1L));
+
+        handlers.get(0).onResult(new SendResult());
+        handlers.get(1).onResult(new SendResult());
+        MatcherAssert.assertThat(sent, Matchers.contains("1", "2", "4"));
+    }
+
+    @Test
+    void testDisconnect() throws Exception {
+        SessionQueue queue = new SessionQueue(session, 1, OverflowPolicy.DISCONNECT, droppedTotal);
+        queue.offer(new Frame("a", "1"));
+        queue.offer(new Frame("a", "2"));
+        verify(session, never()).close(any(CloseReason.class));
+
+        queue.offer(new Frame("a", "3"));
+        verify(session).close(any(CloseReason.class));
+        MatcherAssert.assertThat(queue.depth(), Matchers.is(0));
+        MatcherAssert.assertThat(droppedTotal.get(), Matchers.is(2L));
+
+        queue.offer(new Frame("a", "4"));
+        handlers.get(0).onResult(new SendResult());
+        MatcherAssert.assertThat(sent, Matchers.contains("1"));
+    }
+
+    @Test
+    void testBatchCoalescesAndJoinsFrames() {
+        SessionQueue queue = new SessionQueue(session, 4, OverflowPolicy.DROP_OLDEST, droppedTotal);
+        queue.batching(true);
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("a", "{\"id\":1}"), Optional.of("x")), Matchers.is(true));
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("b", "{\"id\":2}"), Optional.empty()), Matchers.is(false));
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("a", "{\"id\":3}"), Optional.of("x")), Matchers.is(false));
+        MatcherAssert.assertThat(sent, Matchers.empty());
+
+        queue.flush();
+        MatcherAssert.assertThat(sent, Matchers.contains("[{\"id\":3},{\"id\":2}]"));
+
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("a", "{\"id\":4}"), Optional.empty()), Matchers.is(true));
+    }
+
+    @Test
+    void testBatchWindowDropsOldestBeyondCapacity() {
+        SessionQueue queue = new SessionQueue(session, 2, OverflowPolicy.DROP_OLDEST, droppedTotal);
+        queue.batch(new Frame("a", "1"), Optional.of("x"));
+        queue.batch(new Frame("b", "2"), Optional.empty());
+        // replacing a frame already in the window does not overflow it
+        queue.batch(new Frame("a", "3"), Optional.of("x"));
+        MatcherAssert.assertThat(queue.dropped(), Matchers.is(0L));
+
+        queue.batch(new Frame("b", "4"), Optional.empty());
+        MatcherAssert.assertThat(queue.dropped(), Matchers.is(1L));
+
+        queue.flush();
+        MatcherAssert.assertThat(sent, Matchers.contains("[2,4]"));
+    }
+
+    @Test
+    void testBatchWindowCoalescesSameCategory() {
+        SessionQueue queue = new SessionQueue(session, 2, OverflowPolicy.COALESCE, droppedTotal);
+        queue.batch(new Frame("a", "1"), Optional.empty());
+        queue.batch(new Frame("b", "2"), Optional.empty());
+        queue.batch(new Frame("b", "3"), Optional.empty());
+        MatcherAssert.assertThat(queue.dropped(), Matchers.is(1L));
+
+        queue.flush();
+        MatcherAssert.assertThat(sent, Matchers.contains("[1,3]"));
+    }
+
+    @Test
+    void testBatchWindowDisconnectsBeyondCapacity() throws Exception {
+        SessionQueue queue = new SessionQueue(session, 1, OverflowPolicy.DISCONNECT, droppedTotal);
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("a", "1"), Optional.empty()), Matchers.is(true));
+        verify(session, never()).close(any(CloseReason.class));
+
+        MatcherAssert.assertThat(
+                queue.batch(new Frame("a", "2"), Optional.empty()), Matchers.is(false));
+        verify(session).close(any(CloseReason.class));
+        MatcherAssert.assertThat(droppedTotal.get(), Matchers.is(2L));
+
+        queue.flush();
+        MatcherAssert.assertThat(sent, Matchers.empty());
+    }
+}
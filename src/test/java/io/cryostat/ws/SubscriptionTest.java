@@ -0,0 +1,95 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.cryostat.ws;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SubscriptionTest {
+
+    private static final Map<String, String> PROD = Map.of("env", "prod", "app", "web");
+    private static final Map<String, String> DEV = Map.of("env", "dev", "app", "web");
+
+    static Subscription parse(String json) throws Exception {
+        return Subscription.from(new ObjectMapper().readTree(json));
+    }
+
+    static boolean accepts(Subscription s, String jvmId, Map<String, String> labels) {
+        return s.acceptsTarget(() -> Optional.ofNullable(jvmId), () -> labels);
+    }
+
+    @Test
+    void testEmptySubscriptionAcceptsEverything() throws Exception {
+        Subscription s = parse("{\"type\":\"subscribe\"}");
+        MatcherAssert.assertThat(s, Matchers.equalTo(Subscription.ALL));
+        MatcherAssert.assertThat(s.acceptsCategory("WsClientActivity"), Matchers.is(true));
+        MatcherAssert.assertThat(accepts(s, "a", PROD), Matchers.is(true));
+    }
+
+    @Test
+    void testFiltersCategories() throws Exception {
+        Subscription s = parse("{\"categories\":[\"ActiveRecordingCreated\"]}");
+        MatcherAssert.assertThat(s.acceptsCategory("ActiveRecordingCreated"), Matchers.is(true));
+        MatcherAssert.assertThat(s.acceptsCategory("WsClientActivity"), Matchers.is(false));
+    }
+
+    @Test
+    void testFiltersJvmIds() throws Exception {
+        Subscription s = parse("{\"jvmIds\":[\"a\",\"b\"]}");
+        MatcherAssert.assertThat(accepts(s, "a", PROD), Matchers.is(true));
+        MatcherAssert.assertThat(accepts(s, "c", PROD), Matchers.is(false));
+    }
+
+    @Test
+    void testRequiresAllLabelSelectors() throws Exception {
+        Subscription s = parse("{\"labels\":[\"env=prod\",\"app=web\"]}");
+        MatcherAssert.assertThat(accepts(s, "a", PROD), Matchers.is(true));
+        MatcherAssert.assertThat(accepts(s, "a", DEV), Matchers.is(false));
+    }
+
+    @Test
+    void testTargetFiltersDoNotApplyToUntargetedNotifications() throws Exception {
+        Subscription s = parse("{\"jvmIds\":[\"a\"],\"labels\":[\"env=prod\"]}");
+        MatcherAssert.assertThat(accepts(s, null, Map.of()), Matchers.is(true));
+    }
+
+    @Test
+    void testLabelsOnlyResolvedWhenSelectorsPresent() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        Subscription s = parse("{\"jvmIds\":[\"a\"]}");
+        s.acceptsTarget(
+                () -> Optional.of("a"),
+                () -> {
+                    lookups.incrementAndGet();
+                    return PROD;
+                });
+        MatcherAssert.assertThat(lookups.get(), Matchers.equalTo(0));
+    }
+
+    @Test
+    void testRejectsInvalidSelector() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> parse("{\"labels\":[\"this is not a valid expression\"]}"));
+    }
+}
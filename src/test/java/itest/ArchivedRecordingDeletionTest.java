@@ -0,0 +1,180 @@
+/*
+ * Copyright The Cryostat Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package itest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.resources.LocalStackResource;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.multipart.MultipartForm;
+import itest.bases.StandardSelfTest;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@QuarkusTestResource(LocalStackResource.class)
+public class ArchivedRecordingDeletionTest extends StandardSelfTest {
+
+    static final String DELETE_URL = "/api/beta/fs/recordings/delete";
+    static final String JVM_ID = "archive-deletion-itest";
+
+    static void push(String filename) throws Exception {
+        MultipartForm form =
+                MultipartForm.create()
+                        .binaryFileUpload(
+                                "recording",
+                                filename,
+                                Buffer.buffer(new byte[] {1, 2, 3}),
+                                "application/octet-stream");
+        HttpResponse<Buffer> resp =
+                webClient
+                        .extensions()
+                        .post("/api/beta/recordings/" + JVM_ID, form, REQUEST_TIMEOUT_SECONDS);
+        MatcherAssert.assertThat(resp.statusCode(), Matchers.equalTo(204));
+    }
+
+    static HttpResponse<Buffer> delete(JsonObject request) throws Exception {
+        CompletableFuture<HttpResponse<Buffer>> future = new CompletableFuture<>();
+        webClient
+                .post(DELETE_URL)
+                .sendJsonObject(
+                        request,
+                        ar -> {
+                            if (ar.succeeded()) {
+                                future.complete(ar.result());
+                            } else {
+                                future.completeExceptionally(ar.cause());
+                            }
+                        });
+        return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    static JsonObject graphql(String query) throws Exception {
+        HttpResponse<Buffer> resp =
+                webClient
+                        .extensions()
+                        .post(
+                                "/api/v3/graphql",
+                                new JsonObject().put("query", query).toBuffer(),
+                                REQUEST_TIMEOUT_SECONDS);
+        MatcherAssert.assertThat(resp.statusCode(), Matchers.equalTo(200));
+        return resp.bodyAsJsonObject();
+    }
+
+    @Test
+    void testRestRejectsEmptyRequest() throws Exception {
+        MatcherAssert.assertThat(delete(new JsonObject()).statusCode(), Matchers.equalTo(400));
+        MatcherAssert.assertThat(
+                delete(new JsonObject().put("keys", new JsonArray()).put("labels", new JsonArray()))
+                        .statusCode(),
+                Matchers.equalTo(400));
+    }
+
+    @Test
+    void testRestDeletesByKey() throws Exception {
+        push("by-key.jfr");
+
+        HttpResponse<Buffer> resp =
+                delete(
+                        new JsonObject()
+                                .put(
+                                        "keys",
+                                        new JsonArray()
+                                                .add(
+                                                        new JsonObject()
+                                                                .put("jvmId", JVM_ID)
+                                                                .put("filename", "by-key.jfr"))));
+
+        MatcherAssert.assertThat(resp.statusCode(), Matchers.equalTo(200));
+        JsonArray results = resp.bodyAsJsonArray();
+        MatcherAssert.assertThat(results.size(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+                results.getJsonObject(0).getString("filename"), Matchers.equalTo("by-key.jfr"));
+        MatcherAssert.assertThat(
+                results.getJsonObject(0).getBoolean("deleted"), Matchers.equalTo(true));
+    }
+
+    @Test
+    void testRestDeletesByFilter() throws Exception {
+        push("by-filter-1.jfr");
+        push("by-filter-2.jfr");
+
+        HttpResponse<Buffer> resp = delete(new JsonObject().put("jvmId", JVM_ID));
+
+        MatcherAssert.assertThat(resp.statusCode(), Matchers.equalTo(200));
+        JsonArray results = resp.bodyAsJsonArray();
+        MatcherAssert.assertThat(
+                results.stream().map(r -> ((JsonObject) r).getString("filename")).toList(),
+                Matchers.hasItems("by-filter-1.jfr", "by-filter-2.jfr"));
+        MatcherAssert.assertThat(
+                results.stream().allMatch(r -> ((JsonObject) r).getBoolean("deleted")),
+                Matchers.is(true));
+
+        MatcherAssert.assertThat(
+                delete(new JsonObject().put("jvmId", JVM_ID)).bodyAsJsonArray(),
+                Matchers.emptyIterable());
+    }
+
+    @Test
+    void testGraphQLRejectsEmptyFilter() throws Exception {
+        push("graphql-empty.jfr");
+
+        JsonObject resp =
+                graphql("mutation { deleteArchivedRecordings(filter: {}) { filename deleted } }");
+
+        MatcherAssert.assertThat(resp.getJsonArray("errors"), Matchers.notNullValue());
+
+        JsonObject remaining =
+                graphql(
+                        "query { archivedRecordings(filter: { name: \"graphql-empty.jfr\" }) {"
+                                + " data { name } } }");
+        MatcherAssert.assertThat(
+                remaining
+                        .getJsonObject("data")
+                        .getJsonObject("archivedRecordings")
+                        .getJsonArray("data")
+                        .size(),
+                Matchers.equalTo(1));
+
+        delete(new JsonObject().put("jvmId", JVM_ID));
+    }
+
+    @Test
+    void testGraphQLDeletesByFilter() throws Exception {
+        push("graphql-filter.jfr");
+
+        JsonObject resp =
+                graphql(
+                        "mutation { deleteArchivedRecordings(filter: { name:"
+                                + " \"graphql-filter.jfr\" }) { filename deleted } }");
+
+        JsonArray results = resp.getJsonObject("data").getJsonArray("deleteArchivedRecordings");
+        MatcherAssert.assertThat(results.size(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+                results.getJsonObject(0).getString("filename"),
+                Matchers.equalTo("graphql-filter.jfr"));
+        MatcherAssert.assertThat(
+                results.getJsonObject(0).getBoolean("deleted"), Matchers.equalTo(true));
+    }
+}